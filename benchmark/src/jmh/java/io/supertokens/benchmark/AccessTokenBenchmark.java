@@ -0,0 +1,64 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.info.TokenInfo;
+import org.openjdk.jmh.annotations.*;
+
+// access tokens are signed with the latest dynamic key, and verification uses the cached key list of the app, so
+// neither of these should touch the db once the keys are loaded.
+@State(Scope.Benchmark)
+public class AccessTokenBenchmark {
+
+    @Param({"V2", "V3", "V5"})
+    public String version;
+
+    private CoreProcess process;
+    private final TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+    private final AppIdentifier appIdentifier = new AppIdentifier(null, null);
+    private final JsonObject userData = new JsonObject();
+    private String accessToken;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        process = CoreProcess.start();
+        userData.addProperty("role", "admin");
+        accessToken = createNewAccessToken().token;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        process.stop();
+    }
+
+    @Benchmark
+    public Object getInfoFromAccessToken() throws Exception {
+        return AccessToken.getInfoFromAccessToken(appIdentifier, process.getMain(), accessToken, false);
+    }
+
+    @Benchmark
+    public TokenInfo createNewAccessToken() throws Exception {
+        return AccessToken.createNewAccessToken(tenantIdentifier, process.getMain(), "sessionHandle", "userId",
+                "userId", "refreshTokenHash1", null, userData, null, null, AccessToken.VERSION.valueOf(version),
+                false);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import io.supertokens.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+// Runs a core in this JVM, in the same way as the tests do, except that it is not in testing mode. It gets its own
+// installation folder with no plugin folder, so it always uses the in memory db. The config is the config.yaml of
+// the installation path (see build.gradle) along with any extra lines that are passed in.
+public class CoreProcess {
+
+    public static final int PORT = Integer.parseInt(System.getProperty("supertokens.port", "3567"));
+
+    private static final long START_TIMEOUT_MS = 60000;
+
+    private final Path installationDir;
+    private Main main;
+    private Thread thread;
+
+    private CoreProcess(Path installationDir) {
+        this.installationDir = installationDir;
+    }
+
+    // each config line is a "key: value" line that is added to the config.yaml
+    public static CoreProcess start(String... configLines) throws Exception {
+        String sourceInstallationPath = System.getProperty("supertokens.installationPath", "../../");
+
+        Path installationDir = Files.createTempDirectory("supertokens-benchmark");
+        Files.copy(new File(sourceInstallationPath, "version.yaml").toPath(), installationDir.resolve("version.yaml"),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        StringBuilder config = new StringBuilder(
+                new String(Files.readAllBytes(new File(sourceInstallationPath, "config.yaml").toPath())));
+        config.append("\ndisable_telemetry: true\n");
+        for (String line : configLines) {
+            config.append(line).append("\n");
+        }
+        Path configFile = installationDir.resolve("config.yaml");
+        Files.write(configFile, config.toString().getBytes());
+
+        String[] args = {installationDir.toAbsolutePath() + File.separator,
+                "configFile=" + configFile.toAbsolutePath(), "port=" + PORT};
+
+        // Main has to be created in the thread that runs it, since it treats the thread that created it as its
+        // main thread
+        CoreProcess process = new CoreProcess(installationDir);
+        CountDownLatch created = new CountDownLatch(1);
+        process.thread = new Thread(() -> {
+            process.main = new Main();
+            created.countDown();
+            process.main.start(args);
+        }, "supertokens-benchmark-core");
+        process.thread.start();
+        created.await();
+
+        process.waitForStart();
+        return process;
+    }
+
+    public Main getMain() {
+        return main;
+    }
+
+    public void stop() throws InterruptedException, IOException {
+        main.wakeUpMainThreadToShutdown();
+        thread.join();
+        try (Stream<Path> files = Files.walk(installationDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private void waitForStart() throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        while (System.currentTimeMillis() - startTime < START_TIMEOUT_MS) {
+            if (!thread.isAlive()) {
+                throw new IllegalStateException("The core stopped while starting. Please check its logs in " +
+                        installationDir.resolve("logs"));
+            }
+            try {
+                HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + PORT + "/hello")
+                        .openConnection();
+                con.setConnectTimeout(1000);
+                con.setReadTimeout(1000);
+                if (con.getResponseCode() == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The core did not start within " + START_TIMEOUT_MS + " ms");
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import io.supertokens.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+
+// this is what refresh tokens are encrypted and decrypted with
+@State(Scope.Benchmark)
+public class EncryptionBenchmark {
+
+    private static final String MASTER_KEY = "1000:6a5d9b1f7b0c7c3ab8b7a8c39e3e8d1f:8d8c1c0f0a3c6f4b1e7a9d2c5b3e6f1a";
+
+    private String plaintext;
+    private String encrypted;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // about the size of a refresh token payload
+        plaintext = "{\"sessionHandle\":\"" + UUID.randomUUID() + "\",\"userId\":\"" +
+                UUID.randomUUID() + "\",\"nonce\":\"" + Utils.hashSHA256("nonce") +
+                "\",\"tenantId\":\"public\"}";
+        encrypted = Utils.encrypt(plaintext, MASTER_KEY);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return Utils.encrypt(plaintext, MASTER_KEY);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return Utils.decrypt(encrypted, MASTER_KEY);
+    }
+}
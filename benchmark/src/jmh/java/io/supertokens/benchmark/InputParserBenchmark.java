@@ -0,0 +1,39 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import com.google.gson.JsonObject;
+import io.supertokens.webserver.InputParser;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+public class InputParserBenchmark {
+
+    // a sign up request with some user context, which is about the size of most request bodies
+    private static final String BODY = "{\"email\":\"johndoe@example.com\",\"password\":\"validPass123\"," +
+            "\"userContext\":{\"_default\":{\"request\":{\"headers\":{\"rid\":\"emailpassword\"}}},\"keys\":" +
+            "[\"value1\",\"value2\",\"value3\"],\"nested\":{\"number\":1234567890,\"flag\":true}}}";
+
+    @Benchmark
+    public JsonObject parseJsonObjectOrThrowError() throws Exception {
+        // the reader can only be read once, so each call needs its own request
+        HttpServletRequest request = FakeRequests.create("/recipe/signup", BODY);
+        return InputParser.parseJsonObjectOrThrowError(request);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import de.mkammerer.argon2.Argon2Factory;
+import io.supertokens.emailpassword.ParsedFirebaseSCryptResponse;
+import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// verifies a password against a hash of each supported algorithm, with the default cost settings of the core. This
+// goes through PasswordHashing, so it includes waiting for a free hashing slot when run with more threads than the
+// pool size of the algorithm.
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "testPass123";
+
+    // taken from the firebase scrypt migration tests, along with the signer key below
+    private static final String FIREBASE_SCRYPT_HASH = "$" + ParsedFirebaseSCryptResponse.FIREBASE_SCRYPT_PREFIX +
+            "$9Y8ICWcqbzmI42DxV1jpyEjbrJPG8EQ6nI6oC32JYz+/dd7aEjI/R7jG9P5kYh8v9gyqFKaXMDzMg7eLCypbOA==" +
+            "$/cj0jC1br5o4+w==$m=14$r=9$s=Bw==";
+    private static final String FIREBASE_SIGNER_KEY =
+            "gRhC3eDeQOdyEn4bMd9c6kxguWVmcIVq/SKa0JDPFeM6TcEevkaW56sIWfx88OHbJKnCXdWscZx0l2WbCJ1wbg==";
+
+    @Param({"argon2", "bcrypt", "firebase_scrypt"})
+    public String algorithm;
+
+    private CoreProcess process;
+    private final AppIdentifier appIdentifier = new AppIdentifier(null, null);
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        process = CoreProcess.start("firebase_password_hashing_signer_key: \"" + FIREBASE_SIGNER_KEY + "\"");
+        switch (algorithm) {
+            case "argon2":
+                hash = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id, 16, 32)
+                        .hash(1, 87795, 2, PASSWORD.toCharArray());
+                break;
+            case "bcrypt":
+                hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(11));
+                break;
+            default:
+                hash = FIREBASE_SCRYPT_HASH;
+        }
+        if (!verifyPasswordWithHash()) {
+            throw new IllegalStateException("Password did not match the " + algorithm + " hash");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        process.stop();
+    }
+
+    @Benchmark
+    public boolean verifyPasswordWithHash() throws Exception {
+        return PasswordHashing.getInstance(process.getMain()).verifyPasswordWithHash(appIdentifier, PASSWORD, hash);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.session.refreshToken.RefreshToken;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+public class RefreshTokenBenchmark {
+
+    private CoreProcess process;
+    private final AppIdentifier appIdentifier = new AppIdentifier(null, null);
+    private String refreshToken;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        process = CoreProcess.start();
+        refreshToken = RefreshToken.createNewRefreshToken(new TenantIdentifier(null, null, null), process.getMain(),
+                "sessionHandle", "userId", null, null).token;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        process.stop();
+    }
+
+    @Benchmark
+    public RefreshToken.RefreshTokenInfo getInfoFromRefreshToken() throws Exception {
+        return RefreshToken.getInfoFromRefreshToken(appIdentifier, process.getMain(), refreshToken);
+    }
+}
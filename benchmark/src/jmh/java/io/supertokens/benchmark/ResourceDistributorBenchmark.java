@@ -0,0 +1,81 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmark;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import org.openjdk.jmh.annotations.*;
+
+// every request looks up a few resources (config, storage, signing keys, ...) for its app, so this is run with as
+// many threads as there are cores, and also while another thread keeps setting resources, which is what happens when
+// tenants are reloaded.
+@State(Scope.Benchmark)
+public class ResourceDistributorBenchmark {
+
+    private static final String RESOURCE_KEY = "io.supertokens.benchmark.ResourceDistributorBenchmark";
+
+    @Param({"1", "1000"})
+    public int numberOfApps;
+
+    private ResourceDistributor resourceDistributor;
+    private AppIdentifier[] apps;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int next = 0;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the main is only used when a resource is not found, which does not happen here
+        resourceDistributor = new ResourceDistributor(new Main());
+        apps = new AppIdentifier[numberOfApps];
+        for (int i = 0; i < numberOfApps; i++) {
+            apps[i] = new AppIdentifier(null, i == 0 ? null : "app" + i);
+            resourceDistributor.setResource(apps[i], RESOURCE_KEY, new ResourceDistributor.SingletonResource());
+        }
+    }
+
+    private AppIdentifier nextApp(ThreadState threadState) {
+        AppIdentifier app = apps[threadState.next];
+        threadState.next = (threadState.next + 1) % apps.length;
+        return app;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResourceDistributor.SingletonResource getResource(ThreadState threadState) throws Exception {
+        return resourceDistributor.getResource(nextApp(threadState), RESOURCE_KEY);
+    }
+
+    @Benchmark
+    @Group("getResourceWhileSetting")
+    @GroupThreads(7)
+    public ResourceDistributor.SingletonResource getResourceWhileSetting(ThreadState threadState) throws Exception {
+        return resourceDistributor.getResource(nextApp(threadState), RESOURCE_KEY);
+    }
+
+    @Benchmark
+    @Group("getResourceWhileSetting")
+    @GroupThreads(1)
+    public ResourceDistributor.SingletonResource setResource(ThreadState threadState) {
+        return resourceDistributor.setResource(nextApp(threadState), RESOURCE_KEY,
+                new ResourceDistributor.SingletonResource());
+    }
+}
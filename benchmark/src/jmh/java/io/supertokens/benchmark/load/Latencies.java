@@ -0,0 +1,73 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmark.load;
+
+import java.util.Arrays;
+
+// All the latencies of one operation, in nanoseconds. Each worker has its own instance, so this is not thread safe,
+// and they are merged once the run is over. We keep every value instead of a histogram since a run only has a few
+// million requests at most, and this way the percentiles are exact.
+public class Latencies {
+
+    private long[] values = new long[1024];
+    private int size = 0;
+    private long errors = 0;
+    private boolean sorted = false;
+
+    public void add(long latencyNanos) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.values.length * 2);
+        }
+        this.values[this.size++] = latencyNanos;
+        this.sorted = false;
+    }
+
+    public void addError() {
+        this.errors++;
+    }
+
+    public void addAll(Latencies other) {
+        if (this.size + other.size > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.values.length * 2, this.size + other.size));
+        }
+        System.arraycopy(other.values, 0, this.values, this.size, other.size);
+        this.size += other.size;
+        this.errors += other.errors;
+        this.sorted = false;
+    }
+
+    public int getCount() {
+        return this.size;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    // percentile is between 0 and 100. Uses the nearest rank method.
+    public double getPercentileMillis(double percentile) {
+        if (this.size == 0) {
+            return 0;
+        }
+        if (!this.sorted) {
+            Arrays.sort(this.values, 0, this.size);
+            this.sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * this.size);
+        return this.values[Math.max(0, Math.min(this.size, rank) - 1)] / 1_000_000.0;
+    }
+}
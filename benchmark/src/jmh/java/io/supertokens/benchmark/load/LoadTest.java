@@ -0,0 +1,196 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmark.load;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import io.supertokens.benchmark.CoreProcess;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// End to end load test of a core running in this JVM with the in memory db. It sends the requests of a workload (see
+// Workload) over loopback HTTP from a fixed number of concurrent clients, and reports the throughput and latency
+// percentiles of each API. This is run via the loadTest gradle task, which passes these system properties:
+// - loadTest.workload: mixed (default), auth, session or read
+// - loadTest.concurrency: number of concurrent clients. Default is 16
+// - loadTest.warmup: seconds for which the workload runs before we start measuring. Default is 10
+// - loadTest.duration: seconds for which we measure. Default is 30
+// - loadTest.users: number of users that are created before the run. Default is 200
+// - loadTest.coreConfig: extra config.yaml lines for the core, separated by ";". For example,
+//   "max_server_pool_size: 50;password_hashing_alg: ARGON2"
+// - loadTest.output: if set, the results are also written as JSON to this file
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.fromName(System.getProperty("loadTest.workload", "mixed"));
+        int concurrency = Integer.getInteger("loadTest.concurrency", 16);
+        int warmupSeconds = Integer.getInteger("loadTest.warmup", 10);
+        int durationSeconds = Integer.getInteger("loadTest.duration", 30);
+        int numberOfUsers = Integer.getInteger("loadTest.users", 200);
+        String[] coreConfig = Arrays.stream(System.getProperty("loadTest.coreConfig", "").split(";"))
+                .map(String::trim).filter(line -> !line.isEmpty()).toArray(String[]::new);
+        String output = System.getProperty("loadTest.output");
+
+        if (concurrency < 1 || durationSeconds < 1 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("concurrency and duration must be at least 1, and warmup must not be " +
+                    "negative");
+        }
+
+        CoreProcess core = CoreProcess.start(coreConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10)).build();
+            String baseUrl = "http://localhost:" + CoreProcess.PORT;
+            createRole(client, baseUrl);
+
+            List<Worker> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(new Worker(client, baseUrl, workload, i));
+            }
+
+            System.out.println("Creating " + numberOfUsers + " users");
+            List<Future<?>> setUps = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = workers.get(i);
+                // spreads the users over the workers, with each worker getting at least one
+                int usersOfWorker = numberOfUsers / concurrency + (i < numberOfUsers % concurrency ? 1 : 0);
+                setUps.add(executor.submit(() -> {
+                    worker.setUp(usersOfWorker);
+                    return null;
+                }));
+            }
+            for (Future<?> setUp : setUps) {
+                setUp.get();
+            }
+
+            System.out.println("Running the " + workload.name().toLowerCase() + " workload " + workload.getWeights() +
+                    " with " + concurrency + " clients. Warming up for " + warmupSeconds + " seconds");
+            for (Worker worker : workers) {
+                executor.submit(worker);
+            }
+            Thread.sleep(warmupSeconds * 1000L);
+
+            System.out.println("Measuring for " + durationSeconds + " seconds");
+            for (Worker worker : workers) {
+                worker.startRecording();
+            }
+            long startTime = System.nanoTime();
+            Thread.sleep(durationSeconds * 1000L);
+            for (Worker worker : workers) {
+                worker.stop();
+            }
+            double measuredSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("The workers did not stop");
+            }
+
+            Map<Operation, Latencies> results = new EnumMap<>(Operation.class);
+            Latencies total = new Latencies();
+            for (Worker worker : workers) {
+                for (Map.Entry<Operation, Latencies> entry : worker.getLatencies().entrySet()) {
+                    results.computeIfAbsent(entry.getKey(), k -> new Latencies()).addAll(entry.getValue());
+                    total.addAll(entry.getValue());
+                }
+            }
+
+            JsonObject report = printAndGetReport(workload, concurrency, measuredSeconds, results, total);
+            if (output != null) {
+                File outputFile = new File(output);
+                if (outputFile.getParentFile() != null) {
+                    outputFile.getParentFile().mkdirs();
+                }
+                Files.write(outputFile.toPath(), new GsonBuilder().setPrettyPrinting().create().toJson(report)
+                        .getBytes());
+                System.out.println("Results written to " + outputFile.getAbsolutePath());
+            }
+        } finally {
+            executor.shutdownNow();
+            core.stop();
+        }
+    }
+
+    private static void createRole(HttpClient client, String baseUrl) throws Exception {
+        JsonObject body = new JsonObject();
+        body.addProperty("role", Worker.ROLE);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/recipe/role"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Could not create the load test role: " + response.body());
+        }
+    }
+
+    private static JsonObject printAndGetReport(Workload workload, int concurrency, double measuredSeconds,
+                                                Map<Operation, Latencies> results, Latencies total) {
+        JsonObject report = new JsonObject();
+        report.addProperty("workload", workload.name().toLowerCase());
+        report.addProperty("concurrency", concurrency);
+        report.addProperty("durationSeconds", measuredSeconds);
+        JsonObject operations = new JsonObject();
+
+        String format = "%-30s %10s %8s %10s %9s %9s %9s %9s%n";
+        System.out.println();
+        System.out.printf(format, "API", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<Operation, Latencies> entry : results.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                operations.add(entry.getKey().name, printAndGetRow(format, entry.getKey().name, entry.getValue(),
+                        measuredSeconds));
+            }
+        }
+        report.add("apis", operations);
+        report.add("total", printAndGetRow(format, "total", total, measuredSeconds));
+        System.out.println();
+        return report;
+    }
+
+    private static JsonObject printAndGetRow(String format, String name, Latencies latencies, double measuredSeconds) {
+        JsonObject row = new JsonObject();
+        row.addProperty("requests", latencies.getCount());
+        row.addProperty("errors", latencies.getErrors());
+        row.addProperty("requestsPerSecond", latencies.getCount() / measuredSeconds);
+        row.addProperty("p50Millis", latencies.getPercentileMillis(50));
+        row.addProperty("p95Millis", latencies.getPercentileMillis(95));
+        row.addProperty("p99Millis", latencies.getPercentileMillis(99));
+        row.addProperty("maxMillis", latencies.getPercentileMillis(100));
+
+        System.out.printf(format, name, latencies.getCount(), latencies.getErrors(),
+                String.format("%.1f", latencies.getCount() / measuredSeconds),
+                String.format("%.2f", latencies.getPercentileMillis(50)),
+                String.format("%.2f", latencies.getPercentileMillis(95)),
+                String.format("%.2f", latencies.getPercentileMillis(99)),
+                String.format("%.2f", latencies.getPercentileMillis(100)));
+        return row;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmark.load;
+
+// the requests that the load test sends. The name is what is shown in the report.
+public enum Operation {
+    SIGN_UP("POST /recipe/signup"),
+    SIGN_IN("POST /recipe/signin"),
+    CREATE_SESSION("POST /recipe/session"),
+    VERIFY_SESSION("POST /recipe/session/verify"),
+    REFRESH_SESSION("POST /recipe/session/refresh"),
+    GET_USER_ROLES("GET /recipe/user/roles"),
+    LIST_USERS("GET /users");
+
+    public final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmark.load;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// One client of the load test. It sends one request at a time, so the concurrency of the test is the number of
+// workers. Each worker only uses the users and sessions that it created itself, so that a refresh by one worker can
+// never invalidate a refresh token that another worker is about to use.
+class Worker implements Runnable {
+
+    static final String ROLE = "loadtest";
+
+    static final String PASSWORD = "validPass123";
+
+    // we keep a bounded number of sessions per worker, so that the session table does not keep growing when the
+    // workload creates a lot of sessions
+    private static final int MAX_SESSIONS = 100;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Workload workload;
+    private final int id;
+    private final Random random;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Session> sessions = new ArrayList<>();
+    private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+    private int signUpCount = 0;
+
+    private volatile boolean recording = false;
+    private volatile boolean stopped = false;
+
+    Worker(HttpClient client, String baseUrl, Workload workload, int id) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+        this.id = id;
+        this.random = new Random(id);
+        for (Operation operation : Operation.values()) {
+            this.latencies.put(operation, new Latencies());
+        }
+    }
+
+    // creates the users (with the load test role) and sessions that the workload needs. None of this is recorded.
+    void setUp(int numberOfUsers) throws IOException, InterruptedException {
+        for (int i = 0; i < Math.max(1, numberOfUsers); i++) {
+            if (!signUp()) {
+                throw new IllegalStateException("Could not create the users for the load test");
+            }
+            JsonObject body = new JsonObject();
+            body.addProperty("userId", this.users.get(i).userId);
+            body.addProperty("role", ROLE);
+            if (!isOk(send("PUT", "/recipe/user/role", body))) {
+                throw new IllegalStateException("Could not add the load test role to a user");
+            }
+            if (this.sessions.size() < MAX_SESSIONS && !createSession()) {
+                throw new IllegalStateException("Could not create the sessions for the load test");
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!this.stopped) {
+            Operation operation = this.workload.next(this.random);
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = execute(operation);
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                return;
+            }
+            long duration = System.nanoTime() - start;
+            if (this.recording) {
+                Latencies operationLatencies = this.latencies.get(operation);
+                operationLatencies.add(duration);
+                if (!success) {
+                    operationLatencies.addError();
+                }
+            }
+        }
+    }
+
+    void startRecording() {
+        this.recording = true;
+    }
+
+    void stop() {
+        this.stopped = true;
+    }
+
+    // should only be called once this worker has stopped
+    Map<Operation, Latencies> getLatencies() {
+        return this.latencies;
+    }
+
+    private boolean execute(Operation operation) throws IOException, InterruptedException {
+        switch (operation) {
+            case SIGN_UP:
+                return signUp();
+            case SIGN_IN: {
+                JsonObject body = new JsonObject();
+                body.addProperty("email", randomItem(this.users).email);
+                body.addProperty("password", PASSWORD);
+                return isOk(send("POST", "/recipe/signin", body));
+            }
+            case CREATE_SESSION:
+                return createSession();
+            case VERIFY_SESSION: {
+                JsonObject body = new JsonObject();
+                body.addProperty("accessToken", randomItem(this.sessions).accessToken);
+                body.addProperty("doAntiCsrfCheck", false);
+                body.addProperty("enableAntiCsrf", false);
+                body.addProperty("checkDatabase", false);
+                return isOk(send("POST", "/recipe/session/verify", body));
+            }
+            case REFRESH_SESSION: {
+                int index = this.random.nextInt(this.sessions.size());
+                JsonObject body = new JsonObject();
+                body.addProperty("refreshToken", this.sessions.get(index).refreshToken);
+                body.addProperty("enableAntiCsrf", false);
+                JsonObject response = send("POST", "/recipe/session/refresh", body);
+                if (!isOk(response)) {
+                    return false;
+                }
+                // the old refresh token cannot be used anymore
+                this.sessions.set(index, new Session(response));
+                return true;
+            }
+            case GET_USER_ROLES:
+                return isOk(send("GET", "/recipe/user/roles?userId=" +
+                        URLEncoder.encode(randomItem(this.users).userId, StandardCharsets.UTF_8), null));
+            case LIST_USERS:
+                return isOk(send("GET", "/users?limit=20", null));
+            default:
+                throw new IllegalStateException("should never come here");
+        }
+    }
+
+    private boolean signUp() throws IOException, InterruptedException {
+        JsonObject body = new JsonObject();
+        String email = "load-" + this.id + "-" + (this.signUpCount++) + "@example.com";
+        body.addProperty("email", email);
+        body.addProperty("password", PASSWORD);
+        JsonObject response = send("POST", "/recipe/signup", body);
+        if (!isOk(response)) {
+            return false;
+        }
+        this.users.add(new User(email, response.get("user").getAsJsonObject().get("id").getAsString()));
+        return true;
+    }
+
+    private boolean createSession() throws IOException, InterruptedException {
+        JsonObject body = new JsonObject();
+        body.addProperty("userId", randomItem(this.users).userId);
+        body.add("userDataInJWT", new JsonObject());
+        body.add("userDataInDatabase", new JsonObject());
+        body.addProperty("enableAntiCsrf", false);
+        JsonObject response = send("POST", "/recipe/session", body);
+        if (!isOk(response)) {
+            return false;
+        }
+        if (this.sessions.size() < MAX_SESSIONS) {
+            this.sessions.add(new Session(response));
+        } else {
+            this.sessions.set(this.random.nextInt(MAX_SESSIONS), new Session(response));
+        }
+        return true;
+    }
+
+    // returns null if the core did not respond with a 200
+    private JsonObject send(String method, String path, JsonObject body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(this.baseUrl + path)).timeout(TIMEOUT);
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body.toString()));
+        }
+        HttpResponse<String> response = this.client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        return new JsonParser().parse(response.body()).getAsJsonObject();
+    }
+
+    private static boolean isOk(JsonObject response) {
+        return response != null && response.has("status") && response.get("status").getAsString().equals("OK");
+    }
+
+    private <T> T randomItem(List<T> items) {
+        return items.get(this.random.nextInt(items.size()));
+    }
+
+    private static class User {
+        final String email;
+        final String userId;
+
+        User(String email, String userId) {
+            this.email = email;
+            this.userId = userId;
+        }
+    }
+
+    private static class Session {
+        final String accessToken;
+        final String refreshToken;
+
+        Session(JsonObject response) {
+            this.accessToken = response.get("accessToken").getAsJsonObject().get("token").getAsString();
+            this.refreshToken = response.get("refreshToken").getAsJsonObject().get("token").getAsString();
+        }
+    }
+}
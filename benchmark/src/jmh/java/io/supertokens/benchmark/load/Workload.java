@@ -0,0 +1,78 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmark.load;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+// The workload profiles of the load test. Each one is a weighted mix of operations, and every request picks its
+// operation at random based on these weights. The weights are in the order of the Operation enum: sign up, sign in,
+// create session, verify session, refresh session, get user roles and list users.
+public enum Workload {
+    // roughly what a typical app does: mostly session verification, with some logins and dashboard like reads
+    MIXED(5, 10, 10, 45, 10, 15, 5),
+
+    // dominated by password hashing
+    AUTH(30, 70, 0, 0, 0, 0, 0),
+
+    // the session recipe on its own, which is what most traffic to the core is
+    SESSION(0, 0, 15, 70, 15, 0, 0),
+
+    // only reads, so this is mostly about the webserver and storage lookups
+    READ(0, 0, 0, 50, 0, 35, 15);
+
+    private final int[] weights;
+    private final int totalWeight;
+
+    Workload(int... weights) {
+        this.weights = weights;
+        this.totalWeight = Arrays.stream(weights).sum();
+    }
+
+    public Operation next(Random random) {
+        int value = random.nextInt(this.totalWeight);
+        for (int i = 0; i < this.weights.length; i++) {
+            value -= this.weights[i];
+            if (value < 0) {
+                return Operation.values()[i];
+            }
+        }
+        throw new IllegalStateException("should never come here");
+    }
+
+    public Map<Operation, Integer> getWeights() {
+        Map<Operation, Integer> result = new EnumMap<>(Operation.class);
+        for (int i = 0; i < this.weights.length; i++) {
+            if (this.weights[i] > 0) {
+                result.put(Operation.values()[i], this.weights[i]);
+            }
+        }
+        return result;
+    }
+
+    public static Workload fromName(String name) {
+        for (Workload workload : values()) {
+            if (workload.name().equalsIgnoreCase(name)) {
+                return workload;
+            }
+        }
+        throw new IllegalArgumentException("Unknown workload: " + name + ". It should be one of mixed, auth, " +
+                "session or read");
+    }
+}
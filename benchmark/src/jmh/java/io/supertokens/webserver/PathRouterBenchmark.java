@@ -0,0 +1,83 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.webserver;
+
+import io.supertokens.Main;
+import io.supertokens.benchmark.FakeRequests;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+
+// This is in the webserver package so that it can route a request without going through the rest of the service
+// method. The router has about as many APIs as the core has.
+@State(Scope.Benchmark)
+public class PathRouterBenchmark {
+
+    private static final String[] API_PATHS = {"/hello", "/config", "/recipe/session", "/recipe/session/verify",
+            "/recipe/session/refresh", "/recipe/signin", "/recipe/signup", "/recipe/user", "/recipe/role",
+            "/recipe/user/roles", "/users", "/user/id", "/recipe/jwt", "/recipe/multitenancy/tenant/v2",
+            "/recipe/multitenancy/app/v2", "/requests/stats", "/metrics"};
+
+    private static final int NUMBER_OF_OTHER_APIS = 150;
+
+    @Param({"/recipe/session/verify", "/appid-app1/recipe/session/verify", "/appid-app1/tenant1/recipe/signin",
+            "/tenant1/recipe/signin", "/does/not/exist"})
+    public String path;
+
+    private PathRouter pathRouter;
+    private HttpServletRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Main main = new Main();
+        pathRouter = new PathRouter(main);
+        pathRouter.addAPI(new BenchmarkAPI(main, "/"));
+        for (String apiPath : API_PATHS) {
+            pathRouter.addAPI(new BenchmarkAPI(main, apiPath));
+        }
+        for (int i = 0; i < NUMBER_OF_OTHER_APIS; i++) {
+            pathRouter.addAPI(new BenchmarkAPI(main, "/recipe/other/api" + i));
+        }
+        request = FakeRequests.create(path, "");
+    }
+
+    @Benchmark
+    public boolean routeRequest() {
+        // this finds the API for the request and asks it whether to check the API key
+        return pathRouter.checkAPIKey(request);
+    }
+
+    private static class BenchmarkAPI extends WebserverAPI {
+        private static final long serialVersionUID = 1L;
+        private final String path;
+
+        BenchmarkAPI(Main main, String path) {
+            super(main, "");
+            this.path = path;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        protected boolean checkAPIKey(HttpServletRequest req) {
+            return false;
+        }
+    }
+}
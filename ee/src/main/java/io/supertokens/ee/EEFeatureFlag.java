@@ -7,6 +7,7 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
 import com.google.gson.*;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.cronjobs.Cronjobs;
@@ -33,6 +34,7 @@ import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.ThirdPartyConfig;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.session.sqlStorage.SessionSQLStorage;
+import io.supertokens.storageLayer.DailyActiveUsersStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 import io.supertokens.version.Version;
@@ -194,16 +196,24 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
         // TODO Active users are present only on public tenant and TOTP users may be present on different storages
         Storage publicTenantStorage = StorageLayer.getStorage(this.appIdentifier.getAsPublicTenantIdentifier(), main);
          final long now = System.currentTimeMillis();
-         for (int i = 0; i < 30; i++) {
+         if (publicTenantStorage instanceof DailyActiveUsersStorage) {
              long today = now - (now % (24 * 60 * 60 * 1000L));
-             long timestamp = today - (i * 24 * 60 * 60 * 1000L);
-
-             int totpMau = 0;
-             // TODO Need to figure out a way to combine the data from different storages to get the final stats
-             // for (Storage storage : storages) {
-             totpMau += ((ActiveUsersStorage) publicTenantStorage).countUsersEnabledTotpAndActiveSince(this.appIdentifier, timestamp);
-             // }
-             totpMauArr.add(new JsonPrimitive(totpMau));
+             for (int totpMau : ((DailyActiveUsersStorage) publicTenantStorage)
+                     .countUsersEnabledTotpAndActiveSinceEachDay(this.appIdentifier, today, 30)) {
+                 totpMauArr.add(new JsonPrimitive(totpMau));
+             }
+         } else {
+             for (int i = 0; i < 30; i++) {
+                 long today = now - (now % (24 * 60 * 60 * 1000L));
+                 long timestamp = today - (i * 24 * 60 * 60 * 1000L);
+
+                 int totpMau = 0;
+                 // TODO Need to figure out a way to combine the data from different storages to get the final stats
+                 // for (Storage storage : storages) {
+                 totpMau += ((ActiveUsersStorage) publicTenantStorage).countUsersEnabledTotpAndActiveSince(this.appIdentifier, timestamp);
+                 // }
+                 totpMauArr.add(new JsonPrimitive(totpMau));
+             }
          }
 
          totpStats.add("maus", totpMauArr);
@@ -304,6 +314,15 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
         for (Storage storage : storages) {
             totalUserCountWithMoreThanOneLoginMethod += ((AuthRecipeStorage)storage).getUsersCountWithMoreThanOneLoginMethod(this.appIdentifier);
 
+            if (storage instanceof DailyActiveUsersStorage) {
+                int[] storageMaus = ((DailyActiveUsersStorage) storage)
+                        .countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceEachDay(appIdentifier, today, 30);
+                for (int i = 0; i < 30; i++) {
+                    maus[i] += storageMaus[i];
+                }
+                continue;
+            }
+
             for (int i = 0; i < 30; i++) {
                 long timestamp = today - (i * 24 * 60 * 60 * 1000L);
                 maus[i] += ((ActiveUsersStorage)storage).countUsersThatHaveMoreThanOneLoginMethodAndActiveSince(appIdentifier, timestamp);
@@ -317,6 +336,17 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
 
     private JsonArray getMAUs() throws StorageQueryException, TenantOrAppNotFoundException {
         JsonArray mauArr = new JsonArray();
+        Storage publicTenantStorage = StorageLayer.getStorage(this.appIdentifier.getAsPublicTenantIdentifier(), main);
+        if (publicTenantStorage instanceof DailyActiveUsersStorage) {
+            // one query for all the days, instead of one per day
+            long now = System.currentTimeMillis();
+            long today = now - (now % (24 * 60 * 60 * 1000L));
+            for (int mau : ((DailyActiveUsersStorage) publicTenantStorage)
+                    .countUsersActiveSinceEachDay(this.appIdentifier, today, 30)) {
+                mauArr.add(new JsonPrimitive(mau));
+            }
+            return mauArr;
+        }
         for (int i = 0; i < 30; i++) {
             long now = System.currentTimeMillis();
             long today = now - (now % (24 * 60 * 60 * 1000L));
@@ -337,6 +367,9 @@ public class EEFeatureFlag implements io.supertokens.featureflag.EEFeatureFlagIn
             return usageStats;
         }
 
+        // the MAU stats below read the last active times directly from the db
+        ActiveUsersBuffer.getInstance(main).flush(this.appIdentifier);
+
         EE_FEATURES[] features = getEnabledEEFeaturesFromDbOrCache();
 
         if (!this.appIdentifier.equals(new AppIdentifier(null, null)) && !Arrays.asList(features).contains(EE_FEATURES.MULTI_TENANCY)) { // Check for multitenancy on the base app
@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.ProcessState;
 import io.supertokens.ee.EEFeatureFlag;
 import io.supertokens.featureflag.EE_FEATURES;
@@ -1334,5 +1335,61 @@ public class EETest extends Mockito {
         process.kill();
         Assert.assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testFeaturesAreSyncedOnCoreStartIfOpaqueLicenseKeyPresent() throws Exception {
+        String[] args = {"../../"};
+
+        {
+            // syncing the features reads the active users of the app, so the active users buffer must exist by the
+            // time the feature flags are created
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+            process.getProcess().waitToEnableFeatureFlag();
+            process.startProcess();
+
+            boolean isBufferCreated = false;
+            for (int i = 0; i < 100 && !isBufferCreated; i++) {
+                try {
+                    ActiveUsersBuffer.getInstance(process.getProcess());
+                    isBufferCreated = true;
+                } catch (IllegalStateException e) {
+                    Thread.sleep(100);
+                }
+            }
+            assertTrue(isBufferCreated);
+
+            process.getProcess().proceedToEnableFeatureFlag();
+            Assert.assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            if (StorageLayer.getStorage(process.getProcess()).getType() == STORAGE_TYPE.SQL
+                    && !Version.getVersion(process.getProcess()).getPluginName().equals("sqlite")) {
+                FeatureFlag.getInstance(process.main)
+                        .setLicenseKeyAndSyncFeatures(OPAQUE_LICENSE_KEY_WITH_TEST_FEATURE);
+            }
+
+            process.kill();
+            Assert.assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        // we do this part only for non in mem db cause it requires saving the license key across core restarts..
+        {
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            Assert.assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            if (StorageLayer.getStorage(process.getProcess()).getType() == STORAGE_TYPE.SQL
+                    && !Version.getVersion(process.getProcess()).getPluginName().equals("sqlite")) {
+                ProcessState.EventAndException event = process.checkOrWaitForEvent(
+                        ProcessState.PROCESS_STATE.LICENSE_KEY_CHECK_NETWORK_CALL);
+                Assert.assertNotNull(event);
+                assertEquals(30, event.data.getAsJsonObject("paidFeatureUsageStats").get("maus").getAsJsonArray()
+                        .size());
+
+                Assert.assertEquals(FeatureFlag.getInstance(process.main).getEnabledFeatures().length, 1);
+                Assert.assertEquals(FeatureFlag.getInstance(process.main).getEnabledFeatures()[0], EE_FEATURES.TEST);
+            }
+
+            process.kill();
+            Assert.assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+    }
 }
- 
\ No newline at end of file
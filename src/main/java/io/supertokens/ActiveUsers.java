@@ -5,6 +5,7 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifierWithStorage;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.BatchedActiveUsersStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
@@ -12,6 +13,12 @@ public class ActiveUsers {
 
     public static void updateLastActive(AppIdentifierWithStorage appIdentifierWithStorage, Main main, String userId)
             throws TenantOrAppNotFoundException {
+        // the buffered time is only written with the time of the last update by storages that support it, so we
+        // write it right away to the others
+        if (appIdentifierWithStorage.getActiveUsersStorage() instanceof BatchedActiveUsersStorage &&
+                ActiveUsersBuffer.getInstance(main).add(appIdentifierWithStorage, userId)) {
+            return;
+        }
         try {
             appIdentifierWithStorage.getActiveUsersStorage().updateLastActive(appIdentifierWithStorage, userId);
         } catch (StorageQueryException ignored) {
@@ -30,6 +37,7 @@ public class ActiveUsers {
 
     public static int countUsersActiveSince(AppIdentifierWithStorage appIdentifierWithStorage, Main main, long time)
             throws StorageQueryException, TenantOrAppNotFoundException {
+        ActiveUsersBuffer.getInstance(main).flush(appIdentifierWithStorage);
         return appIdentifierWithStorage.getActiveUsersStorage().countUsersActiveSince(appIdentifierWithStorage, time);
     }
 
@@ -40,7 +48,7 @@ public class ActiveUsers {
                 time);
     }
 
-    public static void removeActiveUser(AppIdentifierWithStorage appIdentifierWithStorage, String userId)
+    public static void removeActiveUser(AppIdentifierWithStorage appIdentifierWithStorage, Main main, String userId)
             throws StorageQueryException {
         try {
             ((AuthRecipeSQLStorage) appIdentifierWithStorage.getActiveUsersStorage()).startTransaction(con -> {
@@ -48,6 +56,8 @@ public class ActiveUsers {
                 ((AuthRecipeSQLStorage) appIdentifierWithStorage.getActiveUsersStorage()).commitTransaction(con);
                 return null;
             });
+            // so that the next flush does not add the user back
+            ActiveUsersBuffer.getInstance(main).remove(appIdentifierWithStorage, userId);
 
         } catch (StorageTransactionLogicException e) {
             throw new StorageQueryException(e.actualException);
@@ -0,0 +1,211 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens;
+
+import io.supertokens.config.Config;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.BatchedActiveUsersStorage;
+import io.supertokens.storageLayer.StorageLayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps the last active time of users in memory, so that we do not write to the db on every sign in, session
+// creation and refresh. All the updates of a user that happen before the next flush are written once. The buffer is
+// flushed by the FlushActiveUsers cronjob, before we count the active users of an app and when the core stops.
+//
+// The number of users in the buffer is bounded by active_users_buffer_max_size. Once that is reached, the last active
+// time of users that are not already in the buffer is written to the db right away, like it is when the buffer is
+// disabled.
+public class ActiveUsersBuffer extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.ActiveUsersBuffer";
+
+    private final Main main;
+
+    private final int maxSize;
+
+    // app -> user ID -> last active time. We only remove an app from this map once the app is deleted, so that an
+    // update cannot be added to the map of an app that a flush has just removed.
+    private final Map<AppIdentifier, Map<String, Long>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private final Metrics.Counter flushedUsers;
+
+    private ActiveUsersBuffer(Main main) {
+        this.main = main;
+        this.maxSize = Config.getBaseConfig(main).getActiveUsersBufferMaxSize();
+
+        Metrics metrics = Metrics.getInstance(main);
+        metrics.gauge("supertokens_active_users_buffer_size",
+                "Number of users whose last active time is waiting to be written to the db", this.size::get);
+        this.flushedUsers = metrics.counter("supertokens_active_users_flushed_total",
+                "Number of last active times that were written to the db from the buffer");
+    }
+
+    public static ActiveUsersBuffer getInstance(Main main) {
+        try {
+            return (ActiveUsersBuffer) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void init(Main main) {
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new ActiveUsersBuffer(main));
+    }
+
+    // returns false if the update was not buffered, in which case the caller should write it to the db itself
+    public boolean add(AppIdentifier appIdentifier, String userId) {
+        if (this.maxSize == 0) {
+            return false;
+        }
+        Map<String, Long> users = this.pending.computeIfAbsent(getKey(appIdentifier),
+                k -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        if (users.replace(userId, now) != null) {
+            return true;
+        }
+        if (this.size.get() >= this.maxSize) {
+            return false;
+        }
+        if (users.put(userId, now) == null) {
+            this.size.incrementAndGet();
+        }
+        return true;
+    }
+
+    // removes the user from the buffer without writing their last active time, for when the user is deleted
+    public void remove(AppIdentifier appIdentifier, String userId) {
+        Map<String, Long> users = this.pending.get(getKey(appIdentifier));
+        if (users != null && users.remove(userId) != null) {
+            this.size.decrementAndGet();
+        }
+    }
+
+    // removes the users from the buffer without writing their last active time, for when they are deleted
+    public void remove(AppIdentifier appIdentifier, Collection<String> userIds) {
+        for (String userId : userIds) {
+            remove(appIdentifier, userId);
+        }
+    }
+
+    // removes all the users of this app from the buffer without writing their last active time, for when the app is
+    // deleted
+    public void removeApp(AppIdentifier appIdentifier) {
+        Map<String, Long> users = this.pending.remove(getKey(appIdentifier));
+        if (users == null) {
+            return;
+        }
+        for (String userId : new ArrayList<>(users.keySet())) {
+            if (users.remove(userId) != null) {
+                this.size.decrementAndGet();
+            }
+        }
+    }
+
+    // writes the buffered last active times of this app to the db. If that fails, the users are put back in the
+    // buffer, so that the next flush writes them, unless they were updated again in the meantime.
+    public void flush(AppIdentifier appIdentifier) {
+        AppIdentifier key = getKey(appIdentifier);
+        Map<String, Long> users = this.pending.get(key);
+        if (users == null || users.isEmpty()) {
+            return;
+        }
+
+        Storage storage;
+        try {
+            // active users are always stored in the public tenant's storage of the app
+            storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+        } catch (TenantOrAppNotFoundException e) {
+            // the app is being deleted, and removeApp will drop its users
+            return;
+        }
+        if (!(storage instanceof BatchedActiveUsersStorage)) {
+            // users are only buffered for storages that can write their buffered time (see ActiveUsers)
+            return;
+        }
+
+        Map<String, Long> lastActiveTimes = new HashMap<>();
+        for (String userId : new ArrayList<>(users.keySet())) {
+            Long lastActiveTime = users.remove(userId);
+            if (lastActiveTime != null) {
+                lastActiveTimes.put(userId, lastActiveTime);
+                this.size.decrementAndGet();
+            }
+        }
+        if (lastActiveTimes.isEmpty()) {
+            return;
+        }
+
+        try {
+            ((BatchedActiveUsersStorage) storage).updateLastActive(appIdentifier, lastActiveTimes);
+            this.flushedUsers.add(lastActiveTimes.size());
+        } catch (StorageQueryException e) {
+            Logging.error(main, appIdentifier.getAsPublicTenantIdentifier(),
+                    "Could not write the last active time of " + lastActiveTimes.size() + " users", false, e);
+            putBack(key, lastActiveTimes);
+        }
+    }
+
+    private void putBack(AppIdentifier key, Map<String, Long> lastActiveTimes) {
+        Map<String, Long> users = this.pending.get(key);
+        if (users == null) {
+            // the app was deleted in the meantime
+            return;
+        }
+        for (Map.Entry<String, Long> entry : lastActiveTimes.entrySet()) {
+            // the user may have been added again since we took them out, in which case we keep the later time
+            users.compute(entry.getKey(), (userId, lastActiveTime) -> {
+                if (lastActiveTime == null) {
+                    this.size.incrementAndGet();
+                    return entry.getValue();
+                }
+                return Math.max(lastActiveTime, entry.getValue());
+            });
+        }
+    }
+
+    public void flushAll() {
+        for (AppIdentifier appIdentifier : new ArrayList<>(this.pending.keySet())) {
+            flush(appIdentifier);
+        }
+    }
+
+    public int getSize() {
+        return this.size.get();
+    }
+
+    private static AppIdentifier getKey(AppIdentifier appIdentifier) {
+        // the callers pass an AppIdentifierWithStorage, and we do not want to keep the storage around
+        return new AppIdentifier(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId());
+    }
+}
@@ -27,23 +27,27 @@ import io.supertokens.cronjobs.deleteExpiredPasswordResetTokens.DeleteExpiredPas
 import io.supertokens.cronjobs.deleteExpiredPasswordlessDevices.DeleteExpiredPasswordlessDevices;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
 import io.supertokens.cronjobs.deleteExpiredTotpTokens.DeleteExpiredTotpTokens;
+import io.supertokens.cronjobs.flushActiveUsers.FlushActiveUsers;
 import io.supertokens.cronjobs.syncCoreConfigWithDb.SyncCoreConfigWithDb;
 import io.supertokens.cronjobs.telemetry.Telemetry;
 import io.supertokens.emailpassword.PasswordHashing;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.FeatureFlag;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.exceptions.DbInitException;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.session.SessionBlacklistingCache;
 import io.supertokens.session.refreshToken.RefreshTokenKey;
 import io.supertokens.signingkeys.AccessTokenSigningKey;
 import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.UserLookupPool;
 import io.supertokens.version.Version;
 import io.supertokens.webserver.Webserver;
 import org.jetbrains.annotations.TestOnly;
@@ -150,6 +154,9 @@ public class Main {
         // Handle kill signal gracefully
         handleKillSignalForWhenItHappens();
 
+        // the other resources add their metrics to this as they are created, so this has to be done first
+        Metrics.init(this);
+
         // loading configs for core from config.yaml file.
         try {
             Config.loadBaseConfig(this);
@@ -176,6 +183,13 @@ public class Main {
         // initialise cron job handler
         Cronjobs.init(this);
 
+        // buffers the last active time of users. This is created before the feature flags, since syncing them with
+        // the license key reads the active users of each app
+        ActiveUsersBuffer.init(this);
+
+        // creates the pool that looks for a user in all the storages of an app at the same time
+        UserLookupPool.init(this);
+
         // initialise storage module
         synchronized (waitToInitStorageModuleLock) {
             ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.WAITING_TO_INIT_STORAGE_MODULE, null);
@@ -254,12 +268,18 @@ public class Main {
         // starts DeleteExpiredAccessTokenSigningKeys cronjob if the access token signing keys can change
         Cronjobs.addCronjob(this, DeleteExpiredAccessTokenSigningKeys.init(this, uniqueUserPoolIdsTenants));
 
+        // writes the buffered last active time of users to the db on an interval
+        Cronjobs.addCronjob(this, FlushActiveUsers.init(this, uniqueUserPoolIdsTenants));
+
         // this is to ensure tenantInfos are in sync for the new cron job as well
         MultitenancyHelper.getInstance(this).refreshCronjobs();
 
         // creates password hashing pool
         PasswordHashing.init(this);
 
+        // caches the result of access token blacklisting checks, if enabled
+        SessionBlacklistingCache.init(this);
+
         // start web server to accept incoming traffic
         Webserver.getInstance(this).start();
 
@@ -417,6 +437,12 @@ public class Main {
             Logging.info(this, TenantIdentifier.BASE_TENANT, "Stopping SuperTokens...", true);
             Webserver.getInstance(this).stop();
             Cronjobs.shutdownAndAwaitTermination(this);
+            try {
+                ActiveUsersBuffer.getInstance(this).flushAll();
+            } catch (IllegalStateException ignored) {
+                // the core stopped before the buffer was created
+            }
+            UserLookupPool.shutdownAndAwaitTermination(this);
             StorageLayer.close(this);
             removeDotStartedFileForThisProcess();
             Logging.stopLogging(this);
@@ -26,13 +26,27 @@ import java.util.List;
 public class ProcessState extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.ProcessState";
+
+    // states are only recorded while testing. Outside of tests, getInstance returns this shared instance without
+    // looking up the resource distributor, and addState returns without taking any lock, so that the calls on hot
+    // paths (password hashing, getSession, etc) cost nothing.
+    private static final ProcessState DISABLED = new ProcessState(false);
+
+    private final boolean enabled;
     private List<EventAndException> history = new ArrayList<>();
 
     private ProcessState() {
+        this(true);
+    }
 
+    private ProcessState(boolean enabled) {
+        this.enabled = enabled;
     }
 
     public static ProcessState getInstance(Main main) {
+        if (!Main.isTesting) {
+            return DISABLED;
+        }
         try {
             return (ProcessState) main.getResourceDistributor()
                     .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
@@ -51,12 +65,15 @@ public class ProcessState extends ResourceDistributor.SingletonResource {
         return null;
     }
 
-    public synchronized void addState(PROCESS_STATE processState, Exception e) {
+    public void addState(PROCESS_STATE processState, Exception e) {
         addState(processState, e, null);
     }
 
-    public synchronized void addState(PROCESS_STATE processState, Exception e, JsonObject data) {
-        if (Main.isTesting) {
+    public void addState(PROCESS_STATE processState, Exception e, JsonObject data) {
+        if (!this.enabled || !Main.isTesting) {
+            return;
+        }
+        synchronized (this) {
             history.add(new EventAndException(processState, e, data));
         }
     }
@@ -23,45 +23,88 @@ import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoun
 import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 // the purpose of this class is to tie singleton classes to s specific main instance. So that
 // when the main instance dies, those singleton classes die too.
 
+// Reads of a single resource do not take the lock, since they happen on every request. All writes, and the
+// functions passed to withResourceDistributorLock, still hold the lock. A reader that does not find a resource
+// (for example because a writer has cleared and not yet re-added it) takes the lock before deciding that it does
+// not exist.
 public class ResourceDistributor {
-    private final Map<KeyClass, SingletonResource> resources = new HashMap<>(1);
+    // for how long a resource that was not found even after refreshing the tenants from the db is reported as
+    // not found without refreshing again
+    private static final long NOT_FOUND_RESOURCE_CACHE_TTL_MS = 5000;
+
+    private static final int MAX_NOT_FOUND_RESOURCES = 10000;
+
+    private final Map<KeyClass, SingletonResource> resources = new ConcurrentHashMap<>();
+
+    // resource key -> time at which it was not found. This is so that requests for apps or tenants that do not
+    // exist (for example /appid-doesnotexist/...) don't each reload all the tenants from the db. It is cleared
+    // whenever a resource is set, so that newly added tenants are found right away.
+    private final Map<KeyClass, Long> notFoundResources = new ConcurrentHashMap<>();
+
+    // number of times a missing resource has caused the tenants to be refreshed. Threads that were waiting for
+    // the lock while such a refresh happened use its result instead of refreshing again.
+    private volatile long refreshCountForMissingResources = 0;
+
     private final Main main;
 
     public ResourceDistributor(Main main) {
         this.main = main;
     }
 
-    public synchronized SingletonResource getResource(AppIdentifier appIdentifier, @Nonnull String key)
+    public SingletonResource getResource(AppIdentifier appIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
         return getResource(appIdentifier.getAsPublicTenantIdentifier(), key);
     }
 
-    public synchronized SingletonResource getResource(TenantIdentifier tenantIdentifier, @Nonnull String key)
+    public SingletonResource getResource(TenantIdentifier tenantIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
-        // first we do exact match
-        SingletonResource resource = resources.get(new KeyClass(tenantIdentifier, key));
+        // first we do exact match without taking the lock
+        KeyClass keyClass = new KeyClass(tenantIdentifier, key);
+        SingletonResource resource = resources.get(keyClass);
         if (resource != null) {
             return resource;
         }
 
-        if (tenantIdentifier.equals(new TenantIdentifier(null, null, null))) {
+        Long notFoundTime = notFoundResources.get(keyClass);
+        if (notFoundTime != null && System.currentTimeMillis() - notFoundTime < NOT_FOUND_RESOURCE_CACHE_TTL_MS) {
+            throw new TenantOrAppNotFoundException(tenantIdentifier);
+        }
+
+        return getResourceWithLock(keyClass, this.refreshCountForMissingResources);
+    }
+
+    private synchronized SingletonResource getResourceWithLock(KeyClass keyClass, long refreshCountBeforeLock)
+            throws TenantOrAppNotFoundException {
+        TenantIdentifier tenantIdentifier = keyClass.getTenantIdentifier();
+        String key = keyClass.key;
+
+        // a writer may have added the resource while we were waiting for the lock
+        SingletonResource resource = resources.get(keyClass);
+        if (resource != null) {
+            return resource;
+        }
+
+        if (tenantIdentifier.equals(TenantIdentifier.BASE_TENANT)) {
             // this means we are looking at base tenant and it's not something that
             // refreshing tenants will help with (in fact it will cause an infinite loop)
             throw new TenantOrAppNotFoundException(tenantIdentifier);
         }
 
-        MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+        // if another thread started a refresh after we did not find the resource, its result is as good as ours
+        if (this.refreshCountForMissingResources == refreshCountBeforeLock) {
+            this.refreshCountForMissingResources++;
+            MultitenancyHelper.getInstance(main)
+                    .refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+        }
 
         // we try again..
-        resource = resources.get(new KeyClass(tenantIdentifier, key));
+        resource = resources.get(keyClass);
         if (resource != null) {
             return resource;
         }
@@ -71,7 +114,7 @@ public class ResourceDistributor {
         for (KeyClass currKey : resources.keySet()) {
             if (currKey.getTenantIdentifier().getConnectionUriDomain()
                     .equals(tenantIdentifier.getConnectionUriDomain())) {
-                throw new TenantOrAppNotFoundException(tenantIdentifier);
+                throw getNotFoundException(keyClass);
             }
         }
 
@@ -85,33 +128,43 @@ public class ResourceDistributor {
             return resource;
         }
 
-        throw new TenantOrAppNotFoundException(tenantIdentifier);
+        throw getNotFoundException(keyClass);
+    }
+
+    private TenantOrAppNotFoundException getNotFoundException(KeyClass keyClass) {
+        if (notFoundResources.size() >= MAX_NOT_FOUND_RESOURCES) {
+            notFoundResources.clear();
+        }
+        notFoundResources.put(keyClass, System.currentTimeMillis());
+        return new TenantOrAppNotFoundException(keyClass.getTenantIdentifier());
+    }
+
+    @TestOnly
+    public long getNumberOfRefreshesForMissingResources() {
+        return this.refreshCountForMissingResources;
     }
 
     @TestOnly
-    public synchronized SingletonResource getResource(@Nonnull String key) {
+    public SingletonResource getResource(@Nonnull String key) {
         return resources.get(new KeyClass(new TenantIdentifier(null, null, null), key));
     }
 
     public synchronized SingletonResource setResource(TenantIdentifier tenantIdentifier,
                                                       @Nonnull String key,
                                                       SingletonResource resource) {
-        SingletonResource alreadyExists = resources.get(new KeyClass(tenantIdentifier, key));
+        SingletonResource alreadyExists = resources.putIfAbsent(new KeyClass(tenantIdentifier, key), resource);
         if (alreadyExists != null) {
             return alreadyExists;
         }
-        resources.put(new KeyClass(tenantIdentifier, key), resource);
+        if (!notFoundResources.isEmpty()) {
+            notFoundResources.clear();
+        }
         return resource;
     }
 
     public synchronized SingletonResource removeResource(TenantIdentifier tenantIdentifier,
                                                       @Nonnull String key) {
-        SingletonResource singletonResource = resources.get(new KeyClass(tenantIdentifier, key));
-        if (singletonResource == null) {
-            return null;
-        }
-        resources.remove(new KeyClass(tenantIdentifier, key));
-        return singletonResource;
+        return resources.remove(new KeyClass(tenantIdentifier, key));
     }
 
     public synchronized SingletonResource setResource(AppIdentifier appIdentifier,
@@ -185,14 +238,24 @@ public class ResourceDistributor {
 
         private final TenantIdentifier tenantIdentifier;
 
+        // keys are created for every resource lookup, so the hash is computed once here
+        private final int hashCode;
+
         public KeyClass(TenantIdentifier tenantIdentifier, @Nonnull String key) {
             this.key = key;
             this.tenantIdentifier = tenantIdentifier;
+            this.hashCode = computeHashCode(tenantIdentifier, key);
         }
 
         public KeyClass(AppIdentifier appIdentifier, @Nonnull String key) {
-            this.key = key;
-            this.tenantIdentifier = appIdentifier.getAsPublicTenantIdentifier();
+            this(appIdentifier.getAsPublicTenantIdentifier(), key);
+        }
+
+        private static int computeHashCode(TenantIdentifier tenantIdentifier, String key) {
+            int result = Objects.hashCode(tenantIdentifier.getTenantId());
+            result = 31 * result + Objects.hashCode(tenantIdentifier.getConnectionUriDomain());
+            result = 31 * result + Objects.hashCode(tenantIdentifier.getAppId());
+            return 31 * result + key.hashCode();
         }
 
         public TenantIdentifier getTenantIdentifier() {
@@ -211,10 +274,7 @@ public class ResourceDistributor {
 
         @Override
         public int hashCode() {
-            return (this.getTenantIdentifier().getTenantId() + "|" +
-                    this.getTenantIdentifier().getConnectionUriDomain() + "|" +
-                    this.getTenantIdentifier().getAppId() + "|" +
-                    this.key).hashCode();
+            return this.hashCode;
         }
     }
 
@@ -16,6 +16,7 @@
 
 package io.supertokens.authRecipe;
 
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.authRecipe.exception.AccountInfoAlreadyAssociatedWithAnotherPrimaryUserIdException;
 import io.supertokens.authRecipe.exception.InputUserIdIsNotAPrimaryUserException;
@@ -72,8 +73,10 @@ public class AuthRecipe {
                                          String recipeUserId)
             throws StorageQueryException, UnknownUserIdException, InputUserIdIsNotAPrimaryUserException {
         AuthRecipeSQLStorage storage = (AuthRecipeSQLStorage) appIdentifierWithStorage.getAuthRecipeStorage();
+        List<String> deletedUserIds = new ArrayList<>();
         try {
             UnlinkResult res = storage.startTransaction(con -> {
+                deletedUserIds.clear();
                 AuthRecipeUserInfo primaryUser = storage.getPrimaryUserById_Transaction(appIdentifierWithStorage, con,
                         recipeUserId);
                 if (primaryUser == null) {
@@ -100,7 +103,8 @@ public class AuthRecipe {
                         // The delete will also cause the automatic unlinking.
                         // We need to make sure that it only deletes sessions for recipeUserId and not other linked
                         // users who have their sessions for primaryUserId (that is equal to the recipeUserId)
-                        deleteUserHelper(con, appIdentifierWithStorage, recipeUserId, false, mappingResult);
+                        deleteUserHelper(con, appIdentifierWithStorage, recipeUserId, false, mappingResult,
+                                deletedUserIds);
                         return new UnlinkResult(mappingResult == null ? recipeUserId : mappingResult.externalUserId, true);
                     }
                 } else {
@@ -108,6 +112,7 @@ public class AuthRecipe {
                     return new UnlinkResult(mappingResult == null ? recipeUserId : mappingResult.externalUserId, false);
                 }
             });
+            ActiveUsersBuffer.getInstance(main).remove(appIdentifierWithStorage, deletedUserIds);
             Session.revokeAllSessionsForUser(main, appIdentifierWithStorage, res.userId, false);
             return res.wasLinked;
         } catch (StorageTransactionLogicException e) {
@@ -745,29 +750,36 @@ public class AuthRecipe {
     }
 
     @TestOnly
-    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, String userId,
+    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, Main main, String userId,
                                   UserIdMapping userIdMapping)
             throws StorageQueryException, StorageTransactionLogicException {
-        deleteUser(appIdentifierWithStorage, userId, true, userIdMapping);
+        deleteUser(appIdentifierWithStorage, main, userId, true, userIdMapping);
     }
 
-    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, String userId,
+    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, Main main, String userId,
                                   boolean removeAllLinkedAccounts,
                                   UserIdMapping userIdMapping)
             throws StorageQueryException, StorageTransactionLogicException {
         AuthRecipeSQLStorage storage = (AuthRecipeSQLStorage) appIdentifierWithStorage.getAuthRecipeStorage();
 
+        List<String> deletedUserIds = new ArrayList<>();
         storage.startTransaction(con -> {
-            deleteUserHelper(con, appIdentifierWithStorage, userId, removeAllLinkedAccounts, userIdMapping);
+            deletedUserIds.clear();
+            deleteUserHelper(con, appIdentifierWithStorage, userId, removeAllLinkedAccounts, userIdMapping,
+                    deletedUserIds);
             storage.commitTransaction(con);
             return null;
         });
+        // so that the next flush of the active users buffer does not add the deleted users back
+        ActiveUsersBuffer.getInstance(main).remove(appIdentifierWithStorage, deletedUserIds);
     }
 
+    // deletedUserIds gets the user IDs whose non auth recipe data (including their last active time) was deleted
     private static void deleteUserHelper(TransactionConnection con, AppIdentifierWithStorage appIdentifierWithStorage,
                                          String userId,
                                          boolean removeAllLinkedAccounts,
-                                         UserIdMapping userIdMapping)
+                                         UserIdMapping userIdMapping,
+                                         List<String> deletedUserIds)
             throws StorageQueryException {
         AuthRecipeSQLStorage storage = (AuthRecipeSQLStorage) appIdentifierWithStorage.getAuthRecipeStorage();
 
@@ -864,10 +876,12 @@ public class AuthRecipe {
 
             if (userIdToDeleteForNonAuthRecipeForRecipeUserId != null) {
                 deleteNonAuthRecipeUser(con, appIdentifierWithStorage, userIdToDeleteForNonAuthRecipeForRecipeUserId);
+                deletedUserIds.add(userIdToDeleteForNonAuthRecipeForRecipeUserId);
             }
 
             if (primaryUserIdToDeleteNonAuthRecipe != null) {
                 deleteNonAuthRecipeUser(con, appIdentifierWithStorage, primaryUserIdToDeleteNonAuthRecipe);
+                deletedUserIds.add(primaryUserIdToDeleteNonAuthRecipe);
 
                 // this is only done to also delete the user ID mapping in case it exists, since we do not delete in the
                 // previous call to deleteAuthRecipeUser above.
@@ -882,7 +896,8 @@ public class AuthRecipe {
                                 con,
                                 appIdentifierWithStorage,
                                 lM.getSupertokensUserId(), UserIdType.SUPERTOKENS);
-                deleteUserHelper(con, appIdentifierWithStorage, lM.getSupertokensUserId(), false, mappingResult);
+                deleteUserHelper(con, appIdentifierWithStorage, lM.getSupertokensUserId(), false, mappingResult,
+                        deletedUserIds);
             }
         }
     }
@@ -896,7 +911,7 @@ public class AuthRecipe {
         UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(appIdentifier,
                 userId, UserIdType.ANY);
 
-        deleteUser(appIdentifier, userId, removeAllLinkedAccounts, mapping);
+        deleteUser(appIdentifier, main, userId, removeAllLinkedAccounts, mapping);
     }
 
     @TestOnly
@@ -908,17 +923,17 @@ public class AuthRecipe {
         UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(appIdentifier,
                 userId, UserIdType.ANY);
 
-        deleteUser(appIdentifier, userId, mapping);
+        deleteUser(appIdentifier, main, userId, mapping);
     }
 
     @TestOnly
-    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, String userId)
+    public static void deleteUser(AppIdentifierWithStorage appIdentifierWithStorage, Main main, String userId)
             throws StorageQueryException, StorageTransactionLogicException {
         Storage storage = appIdentifierWithStorage.getStorage();
         UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(appIdentifierWithStorage,
                 userId, UserIdType.ANY);
 
-        deleteUser(appIdentifierWithStorage, userId, mapping);
+        deleteUser(appIdentifierWithStorage, main, userId, mapping);
     }
 
     private static void deleteNonAuthRecipeUser(TransactionConnection con, AppIdentifierWithStorage
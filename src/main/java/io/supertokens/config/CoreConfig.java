@@ -63,6 +63,10 @@ public class CoreConfig {
     @JsonProperty
     private boolean access_token_blacklisting = false;
 
+    @ConfigYamlOnly
+    @JsonProperty
+    private long access_token_blacklisting_cache_staleness = 0; // in MS
+
     @NotConflictingInApp
     @JsonProperty
     private double refresh_token_validity = 60 * 2400; // in mins
@@ -155,6 +159,62 @@ public class CoreConfig {
     @JsonProperty
     private int firebase_password_hashing_pool_size = 1;
 
+    @ConfigYamlOnly
+    @JsonProperty
+    private int bcrypt_hashing_pool_size = 10;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int password_hashing_max_queue_size = 0;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private long password_hashing_max_wait_time = 0; // in MS
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int async_logging_queue_size = 0;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private boolean async_logging_never_block = false;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int cronjob_worker_pool_size = 10;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int cronjob_max_concurrency_per_job = 5;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private long cronjob_max_jitter = 1000; // in MS
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int expiry_cleanup_batch_size = 1000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private long expiry_cleanup_batch_pause = 100; // in MS
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int active_users_flush_interval = 60; // in seconds
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int active_users_buffer_max_size = 100000;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private int user_lookup_pool_size = 10;
+
+    @ConfigYamlOnly
+    @JsonProperty
+    private long user_lookup_storage_timeout = 10000; // in MS
+
     @ConfigYamlOnly
     @JsonProperty
     private int bcrypt_log_rounds = 11;
@@ -276,6 +336,62 @@ public class CoreConfig {
         return firebase_password_hashing_pool_size;
     }
 
+    public int getBcryptHashingPoolSize() {
+        return bcrypt_hashing_pool_size;
+    }
+
+    public int getPasswordHashingMaxQueueSize() {
+        return password_hashing_max_queue_size;
+    }
+
+    public long getPasswordHashingMaxWaitTime() {
+        return password_hashing_max_wait_time;
+    }
+
+    public int getAsyncLoggingQueueSize() {
+        return async_logging_queue_size;
+    }
+
+    public boolean getAsyncLoggingNeverBlock() {
+        return async_logging_never_block;
+    }
+
+    public int getCronjobWorkerPoolSize() {
+        return cronjob_worker_pool_size;
+    }
+
+    public int getCronjobMaxConcurrencyPerJob() {
+        return cronjob_max_concurrency_per_job;
+    }
+
+    public long getCronjobMaxJitter() {
+        return cronjob_max_jitter;
+    }
+
+    public int getExpiryCleanupBatchSize() {
+        return expiry_cleanup_batch_size;
+    }
+
+    public long getExpiryCleanupBatchPause() {
+        return expiry_cleanup_batch_pause;
+    }
+
+    public int getActiveUsersFlushInterval() {
+        return active_users_flush_interval;
+    }
+
+    public int getActiveUsersBufferMaxSize() {
+        return active_users_buffer_max_size;
+    }
+
+    public int getUserLookupPoolSize() {
+        return user_lookup_pool_size;
+    }
+
+    public long getUserLookupStorageTimeout() {
+        return user_lookup_storage_timeout;
+    }
+
     public int getArgon2Iterations() {
         return argon2_iterations;
     }
@@ -324,6 +440,10 @@ public class CoreConfig {
         return (long) (refresh_token_validity);
     }
 
+    public long getAccessTokenBlacklistingCacheStaleness() {
+        return access_token_blacklisting_cache_staleness;
+    }
+
     public long getPasswordResetTokenLifetime() {
         return password_reset_token_lifetime;
     }
@@ -443,6 +563,10 @@ public class CoreConfig {
             }
         }
 
+        if (access_token_blacklisting_cache_staleness < 0) {
+            throw new InvalidConfigException("'access_token_blacklisting_cache_staleness' must be >= 0");
+        }
+
         if (password_reset_token_lifetime <= 0) {
             throw new InvalidConfigException("'password_reset_token_lifetime' must be >= 0");
         }
@@ -544,6 +668,58 @@ public class CoreConfig {
             if (bcrypt_log_rounds <= 0) {
                 throw new InvalidConfigException("'bcrypt_log_rounds' must be >= 1");
             }
+
+            if (bcrypt_hashing_pool_size <= 0) {
+                throw new InvalidConfigException("'bcrypt_hashing_pool_size' must be >= 1");
+            }
+        }
+
+        if (password_hashing_max_queue_size < 0) {
+            throw new InvalidConfigException("'password_hashing_max_queue_size' must be >= 0");
+        }
+
+        if (password_hashing_max_wait_time < 0) {
+            throw new InvalidConfigException("'password_hashing_max_wait_time' must be >= 0");
+        }
+
+        if (async_logging_queue_size < 0) {
+            throw new InvalidConfigException("'async_logging_queue_size' must be >= 0");
+        }
+
+        if (cronjob_worker_pool_size <= 0) {
+            throw new InvalidConfigException("'cronjob_worker_pool_size' must be >= 1");
+        }
+
+        if (cronjob_max_concurrency_per_job <= 0) {
+            throw new InvalidConfigException("'cronjob_max_concurrency_per_job' must be >= 1");
+        }
+
+        if (cronjob_max_jitter < 0) {
+            throw new InvalidConfigException("'cronjob_max_jitter' must be >= 0");
+        }
+
+        if (expiry_cleanup_batch_size <= 0) {
+            throw new InvalidConfigException("'expiry_cleanup_batch_size' must be >= 1");
+        }
+
+        if (expiry_cleanup_batch_pause < 0) {
+            throw new InvalidConfigException("'expiry_cleanup_batch_pause' must be >= 0");
+        }
+
+        if (active_users_flush_interval <= 0) {
+            throw new InvalidConfigException("'active_users_flush_interval' must be >= 1");
+        }
+
+        if (active_users_buffer_max_size < 0) {
+            throw new InvalidConfigException("'active_users_buffer_max_size' must be >= 0");
+        }
+
+        if (user_lookup_pool_size < 0) {
+            throw new InvalidConfigException("'user_lookup_pool_size' must be >= 0");
+        }
+
+        if (user_lookup_storage_timeout <= 0) {
+            throw new InvalidConfigException("'user_lookup_storage_timeout' must be >= 1");
         }
 
         if (base_path != null && !base_path.equals("") && !base_path.equals("/")) {
@@ -658,6 +834,8 @@ public class CoreConfig {
 
         firebase_password_hashing_pool_size = Math.max(1, firebase_password_hashing_pool_size);
 
+        bcrypt_hashing_pool_size = Math.max(1, bcrypt_hashing_pool_size);
+
         if (api_keys != null) {
             String[] apiKeys = api_keys.trim().replaceAll("\\s", "").split(",");
             Arrays.sort(apiKeys);
@@ -19,7 +19,10 @@ package io.supertokens.cronjobs;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
@@ -28,13 +31,19 @@ import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class CronTask extends ResourceDistributor.SingletonResource implements Runnable {
 
@@ -50,6 +59,15 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
 
     private final boolean isPerApp;
 
+    // number of user pools that are being worked on. This can be more than 0 when a run starts if the previous run
+    // went over its interval.
+    private final AtomicInteger userPoolsInProgress = new AtomicInteger(0);
+
+    // set when the current run goes over its interval. The work that is left is then stopped between user pools,
+    // tenants and batches of rows (see ExpirySweeper), instead of interrupting the threads, which could stop a db
+    // query half way through.
+    private volatile AtomicBoolean currentRunCancelled = new AtomicBoolean(false);
+
     protected CronTask(String jobName, Main main, List<List<TenantIdentifier>> tenantsInfo, boolean isPerApp) {
         this.jobName = jobName;
         this.main = main;
@@ -76,12 +94,14 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
     @Override
     public void run() {
         Logging.info(main, this.targetTenant, "Cronjob started: " + jobName, false);
+        long startTime = System.nanoTime();
 
         if (this.targetTenant != null) {
             try {
                 doTaskForTargetTenant(this.targetTenant);
             } catch (Exception e) {
                 ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+                countError();
                 Logging.error(main, this.targetTenant, "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
                 if (e instanceof QuitProgramException) {
                     main.wakeUpMainThreadToShutdown();
@@ -114,6 +134,7 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
                         doTaskPerApp(app);
                     } catch (Exception e) {
                         ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+                        countError();
                         Logging.error(main, app.getAsPublicTenantIdentifier(), "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
                         if (e instanceof QuitProgramException) {
                             main.wakeUpMainThreadToShutdown();
@@ -121,51 +142,142 @@ public abstract class CronTask extends ResourceDistributor.SingletonResource imp
                     }
                 }
             } else {
-                // we create one thread per unique storage and run the query based on that.
-                ExecutorService service = Executors.newFixedThreadPool(copied.size());
-                AtomicBoolean threwQuitProgramException = new AtomicBoolean(false);
-                for (List<TenantIdentifier> t : copied) {
-                    service.execute(() -> {
+                doTaskPerUserPool(copied);
+            }
+        }
+        Metrics.getInstance(main).timer("supertokens_cronjob_duration_seconds", "Time taken by each run of a cronjob",
+                "job", this.jobName).recordSince(startTime);
+        Logging.info(main, this.targetTenant, "Cronjob finished: " + jobName, false);
+    }
+
+    // The work for each user pool runs in the worker pool that is shared by all cronjobs. At most
+    // cronjob_max_concurrency_per_job user pools of this job are worked on at the same time, each by a lane that keeps
+    // taking the next user pool till there are none left. The lanes start after a random delay, and the order of the
+    // user pools is shuffled, so that the same database is not always the first one to be queried.
+    private void doTaskPerUserPool(List<List<TenantIdentifier>> userPools) {
+        Metrics metrics = Metrics.getInstance(main);
+        if (this.userPoolsInProgress.get() > 0) {
+            // the previous run went over its interval, and the work that it had already started is still going on. We
+            // skip this run instead of querying the same databases again in parallel.
+            metrics.counter("supertokens_cronjob_skipped_runs_total",
+                    "Number of runs of a cronjob that were skipped since the previous run was still working", "job",
+                    this.jobName).inc();
+            Logging.warn(main, null, "Skipping cronjob run since the previous run is still working: " + jobName);
+            return;
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        this.currentRunCancelled = cancelled;
+
+        CoreConfig config = Config.getBaseConfig(main);
+        List<List<TenantIdentifier>> shuffled = new ArrayList<>(userPools);
+        Collections.shuffle(shuffled);
+        Queue<List<TenantIdentifier>> pending = new ConcurrentLinkedQueue<>(shuffled);
+        CountDownLatch done = new CountDownLatch(shuffled.size());
+        AtomicBoolean threwQuitProgramException = new AtomicBoolean(false);
+
+        int lanes = Math.min(config.getCronjobMaxConcurrencyPerJob(), shuffled.size());
+        long maxJitter = Math.min(config.getCronjobMaxJitter(), this.getIntervalTimeSeconds() * 1000L / 10);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < lanes; i++) {
+                long delay = maxJitter > 0 ? ThreadLocalRandom.current().nextLong(maxJitter + 1) : 0;
+                futures.add(Cronjobs.getInstance(main).scheduleWork(() -> {
+                    List<TenantIdentifier> userPool;
+                    while (!cancelled.get() && !Thread.currentThread().isInterrupted()
+                            && (userPool = pending.poll()) != null) {
+                        this.userPoolsInProgress.incrementAndGet();
                         try {
-                            doTaskPerStorage(StorageLayer.getStorage(t.get(0), main));
-                        } catch (Exception e) {
-                            ProcessState.getInstance(main)
-                                    .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
-                            Logging.error(main, t.get(0), "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
-                            if (e instanceof QuitProgramException) {
-                                threwQuitProgramException.set(true);
-                            }
+                            doTaskForUserPool(userPool, cancelled, threwQuitProgramException);
+                        } finally {
+                            this.userPoolsInProgress.decrementAndGet();
+                            done.countDown();
                         }
+                    }
+                }, delay));
+            }
 
-                        for (TenantIdentifier tenant : t) {
-                            try {
-                                doTaskPerTenant(tenant);
-                            } catch (Exception e) {
-                                ProcessState.getInstance(main)
-                                        .addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
-                                Logging.error(main, tenant, "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
-                                if (e instanceof QuitProgramException) {
-                                    threwQuitProgramException.set(true);
-                                }
-                            }
-                        }
-                    });
-                }
-                service.shutdown();
-                boolean didShutdown = false;
-                try {
-                    didShutdown = service.awaitTermination(this.getIntervalTimeSeconds(), TimeUnit.SECONDS);
-                } catch (InterruptedException ignored) {
-                }
-                if (!didShutdown) {
-                    service.shutdownNow();
+            boolean finished = false;
+            boolean interrupted = false;
+            try {
+                finished = done.await(this.getIntervalTimeSeconds(), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // the core is shutting down
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            if (!finished) {
+                // we stop the work that is left so that it does not overlap with the next run. The user pools that
+                // are being worked on stop at their next check of cancelled, and the lanes that have not started yet
+                // do not start at all.
+                cancelled.set(true);
+                pending.clear();
+                for (Future<?> future : futures) {
+                    future.cancel(false);
                 }
-                if (threwQuitProgramException.get()) {
-                    main.wakeUpMainThreadToShutdown();
+            }
+            if (!finished && !interrupted) {
+                metrics.counter("supertokens_cronjob_overruns_total",
+                        "Number of runs of a cronjob that did not finish within its interval", "job",
+                        this.jobName).inc();
+            }
+        } catch (RejectedExecutionException ignored) {
+            // the core is shutting down
+            pending.clear();
+        }
+
+        if (threwQuitProgramException.get()) {
+            main.wakeUpMainThreadToShutdown();
+        }
+    }
+
+    private void doTaskForUserPool(List<TenantIdentifier> t, AtomicBoolean cancelled,
+                                   AtomicBoolean threwQuitProgramException) {
+        try {
+            doTaskPerStorage(StorageLayer.getStorage(t.get(0), main));
+        } catch (InterruptedException e) {
+            // the core is shutting down, so this is not an error
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+            countError();
+            Logging.error(main, t.get(0), "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
+            if (e instanceof QuitProgramException) {
+                threwQuitProgramException.set(true);
+            }
+        }
+
+        for (TenantIdentifier tenant : t) {
+            if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                doTaskPerTenant(tenant);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, e);
+                countError();
+                Logging.error(main, tenant, "Cronjob threw an exception: " + this.jobName, Main.isTesting, e);
+                if (e instanceof QuitProgramException) {
+                    threwQuitProgramException.set(true);
                 }
             }
         }
-        Logging.info(main, this.targetTenant, "Cronjob finished: " + jobName, false);
+    }
+
+    // true if the run that is calling this went over its interval, or the core is shutting down. Long running work,
+    // like deleting expired rows in batches, checks this between steps, and stops if it is true.
+    protected boolean isCancelled() {
+        return this.currentRunCancelled.get() || Thread.currentThread().isInterrupted();
+    }
+
+    private void countError() {
+        Metrics.getInstance(main).counter("supertokens_cronjob_errors_total",
+                "Number of times a cronjob threw an exception, counted once per tenant, app or storage", "job",
+                this.jobName).inc();
     }
 
     public void setTenantsInfo(List<List<TenantIdentifier>> tenantsInfo) {
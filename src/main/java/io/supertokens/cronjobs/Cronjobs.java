@@ -18,6 +18,8 @@ package io.supertokens.cronjobs;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
@@ -27,6 +29,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class Cronjobs extends ResourceDistributor.SingletonResource {
@@ -34,10 +38,23 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
     private static final String RESOURCE_KEY = "io.supertokens.cronjobs.Cronjobs";
     final Object lock = new Object();
     private final ScheduledExecutorService executor;
+
+    // the cronjobs do their work for each user pool in this pool, so that the number of threads querying the databases
+    // stays bounded no matter how many user pools there are
+    private final ScheduledThreadPoolExecutor workerPool;
     private List<CronTask> tasks = new ArrayList<>();
 
-    private Cronjobs() {
+    private Cronjobs(Main main) {
         this.executor = Executors.newScheduledThreadPool(5);
+        this.workerPool = new ScheduledThreadPoolExecutor(Config.getBaseConfig(main).getCronjobWorkerPoolSize());
+        this.workerPool.setRemoveOnCancelPolicy(true);
+
+        Metrics metrics = Metrics.getInstance(main);
+        metrics.gauge("supertokens_cronjob_workers_busy", "Number of cronjob worker threads that are doing work",
+                this.workerPool::getActiveCount);
+        metrics.gauge("supertokens_cronjob_workers_queue_size",
+                "Number of user pools that are waiting for a cronjob worker thread",
+                () -> this.workerPool.getQueue().size());
     }
 
     public static Cronjobs getInstance(Main main) {
@@ -50,7 +67,8 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
     }
 
     public static void init(Main main) {
-        main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Cronjobs());
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Cronjobs(main));
     }
 
     public static void shutdownAndAwaitTermination(Main main) {
@@ -64,13 +82,21 @@ public class Cronjobs extends ResourceDistributor.SingletonResource {
             }
             try {
                 instance.executor.shutdown();
+                // work that was already scheduled on the worker pool still runs after this, so that the cronjobs
+                // that are running can finish
+                instance.workerPool.shutdown();
                 instance.executor.awaitTermination(10, TimeUnit.SECONDS);
+                instance.workerPool.awaitTermination(10, TimeUnit.SECONDS);
             } catch (Exception e) {
                 // ignore any error as app is shutting down.
             }
         }
     }
 
+    ScheduledFuture<?> scheduleWork(Runnable work, long delayMS) {
+        return this.workerPool.schedule(work, delayMS, TimeUnit.MILLISECONDS);
+    }
+
     public void setTenantsInfo(List<List<TenantIdentifier>> tenantsInfo) {
         this.tasks.forEach(cronTask -> {
             cronTask.setTenantsInfo(tenantsInfo);
@@ -0,0 +1,69 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.cronjobs;
+
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+
+// Used by the cronjobs that clean up expired rows, so that they delete them in batches of expiry_cleanup_batch_size
+// rows with a pause of expiry_cleanup_batch_pause between batches, instead of in one query that locks a lot of rows at
+// once. Each batch is its own query, so a run that is stopped half way (for example, because the cronjob went over its
+// interval) just leaves the rest for the next run. The cronjob is checked for being cancelled between batches.
+public class ExpirySweeper {
+
+    private ExpirySweeper() {
+    }
+
+    // returns the total number of rows that were handled
+    public static long sweep(CronTask cronTask, String table, Batch batch)
+            throws StorageQueryException, StorageTransactionLogicException, InterruptedException {
+        Main main = cronTask.main;
+        CoreConfig config = Config.getBaseConfig(main);
+        int batchSize = config.getExpiryCleanupBatchSize();
+        long pause = config.getExpiryCleanupBatchPause();
+        Metrics.Counter deletedRows = Metrics.getInstance(main).counter("supertokens_expiry_cleanup_rows_total",
+                "Number of expired rows that the cleanup cronjobs deleted, per table", "table", table);
+
+        long total = 0;
+        while (true) {
+            int handled = batch.run(batchSize);
+            total += handled;
+            deletedRows.add(handled);
+            if (handled < batchSize) {
+                return total;
+            }
+            if (pause > 0) {
+                Thread.sleep(pause);
+            }
+            if (cronTask.isCancelled()) {
+                return total;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Batch {
+        // should handle at most limit rows, and return how many it handled. The sweep ends when this is less than
+        // limit.
+        int run(int limit) throws StorageQueryException, StorageTransactionLogicException;
+    }
+}
@@ -19,11 +19,13 @@ package io.supertokens.cronjobs.deleteExpiredDashboardSessions;
 import io.supertokens.Main;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.dashboard.sqlStorage.DashboardSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -59,7 +61,13 @@ public class DeleteExpiredDashboardSessions extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
-        ((DashboardSQLStorage) storage).revokeExpiredSessions();
+        if (storage instanceof ChunkedExpiryStorage) {
+            long currentTimeMillis = System.currentTimeMillis();
+            ExpirySweeper.sweep(this, "dashboard_user_sessions",
+                    limit -> ((ChunkedExpiryStorage) storage).deleteExpiredDashboardSessions(currentTimeMillis, limit));
+        } else {
+            ((DashboardSQLStorage) storage).revokeExpiredSessions();
+        }
     }
 
     @Override
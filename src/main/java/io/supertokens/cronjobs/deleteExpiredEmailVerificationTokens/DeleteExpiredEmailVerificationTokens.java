@@ -19,11 +19,13 @@ package io.supertokens.cronjobs.deleteExpiredEmailVerificationTokens;
 import io.supertokens.Main;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.emailverification.sqlStorage.EmailVerificationSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -59,7 +61,14 @@ public class DeleteExpiredEmailVerificationTokens extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
-        ((EmailVerificationSQLStorage) storage).deleteExpiredEmailVerificationTokens();
+        if (storage instanceof ChunkedExpiryStorage) {
+            long currentTimeMillis = System.currentTimeMillis();
+            ExpirySweeper.sweep(this, "emailverification_tokens",
+                    limit -> ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(currentTimeMillis,
+                            limit));
+        } else {
+            ((EmailVerificationSQLStorage) storage).deleteExpiredEmailVerificationTokens();
+        }
     }
 
     @Override
@@ -19,10 +19,12 @@ package io.supertokens.cronjobs.deleteExpiredPasswordResetTokens;
 import io.supertokens.Main;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -53,7 +55,14 @@ public class DeleteExpiredPasswordResetTokens extends CronTask {
         if (storage.getType() != STORAGE_TYPE.SQL) {
             return;
         }
-        ((EmailPasswordSQLStorage) storage).deleteExpiredPasswordResetTokens();
+        if (storage instanceof ChunkedExpiryStorage) {
+            long currentTimeMillis = System.currentTimeMillis();
+            ExpirySweeper.sweep(this, "emailpassword_pswd_reset_tokens",
+                    limit -> ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(currentTimeMillis,
+                            limit));
+        } else {
+            ((EmailPasswordSQLStorage) storage).deleteExpiredPasswordResetTokens();
+        }
     }
 
     @Override
@@ -20,11 +20,13 @@ import io.supertokens.Main;
 import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.passwordless.PasswordlessCode;
 import io.supertokens.pluginInterface.passwordless.PasswordlessDevice;
 import io.supertokens.pluginInterface.passwordless.sqlStorage.PasswordlessSQLStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
@@ -64,6 +66,16 @@ public class DeleteExpiredPasswordlessDevices extends CronTask {
 
         long codeExpirationCutoff = System.currentTimeMillis() -
                 Config.getConfig(tenantIdentifier, main).getPasswordlessCodeLifetime();
+
+        // We don't delete expired codes without the device because we want to detect if the submitted user input code
+        // belongs to an expired code or if it's just incorrect.
+        if (storage instanceof ChunkedExpiryStorage) {
+            ExpirySweeper.sweep(this, "passwordless_devices",
+                    limit -> ((ChunkedExpiryStorage) storage).deleteExpiredPasswordlessDevices(tenantIdentifier,
+                            codeExpirationCutoff, limit));
+            return;
+        }
+
         PasswordlessCode[] expiredCodes = storage.getCodesBefore(tenantIdentifier, codeExpirationCutoff);
         Set<String> uniqueDevicesIdHashes = Stream.of(expiredCodes).map(code -> code.deviceIdHash)
                 .collect(Collectors.toSet());
@@ -79,8 +91,6 @@ public class DeleteExpiredPasswordlessDevices extends CronTask {
                 if (Stream.of(codes).allMatch(code -> code.createdAt < codeExpirationCutoff)) {
                     storage.deleteDevice_Transaction(tenantIdentifier, con, deviceIdHash);
                 }
-                // We don't delete expired codes without the device because we want to detect if the submitted
-                // user input code belongs to an expired code or if it's just incorrect.
 
                 return null;
             });
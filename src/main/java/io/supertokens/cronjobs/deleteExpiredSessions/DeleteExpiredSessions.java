@@ -19,10 +19,12 @@ package io.supertokens.cronjobs.deleteExpiredSessions;
 import io.supertokens.Main;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.List;
@@ -53,7 +55,13 @@ public class DeleteExpiredSessions extends CronTask {
 
     @Override
     protected void doTaskPerStorage(Storage storage) throws Exception {
-        ((SessionStorage) storage).deleteAllExpiredSessions();
+        if (storage instanceof ChunkedExpiryStorage) {
+            long currentTimeMillis = System.currentTimeMillis();
+            ExpirySweeper.sweep(this, "session_info",
+                    limit -> ((ChunkedExpiryStorage) storage).deleteExpiredSessions(currentTimeMillis, limit));
+        } else {
+            ((SessionStorage) storage).deleteAllExpiredSessions();
+        }
     }
 
     @Override
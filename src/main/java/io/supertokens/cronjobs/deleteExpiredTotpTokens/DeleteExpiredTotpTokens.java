@@ -4,10 +4,12 @@ import io.supertokens.Main;
 import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.ExpirySweeper;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.totp.sqlStorage.TOTPSQLStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import org.jetbrains.annotations.TestOnly;
 
@@ -49,7 +51,14 @@ public class DeleteExpiredTotpTokens extends CronTask {
         // than rate limiting duration. This ensures that this DB query
         // doesn't delete totp codes that keep the rate limiting active for
         // the expected cooldown duration.
-        int deletedCount = storage.removeExpiredCodes(tenantIdentifier, expiredBefore);
+        long deletedCount;
+        if (storage instanceof ChunkedExpiryStorage) {
+            deletedCount = ExpirySweeper.sweep(this, "totp_used_codes",
+                    limit -> ((ChunkedExpiryStorage) storage).removeExpiredTotpCodes(tenantIdentifier, expiredBefore,
+                            limit));
+        } else {
+            deletedCount = storage.removeExpiredCodes(tenantIdentifier, expiredBefore);
+        }
         Logging.debug(this.main, tenantIdentifier, "Cron DeleteExpiredTotpTokens deleted " + deletedCount + " expired TOTP codes");
     }
 
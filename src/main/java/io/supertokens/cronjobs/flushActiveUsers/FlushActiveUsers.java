@@ -0,0 +1,77 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.cronjobs.flushActiveUsers;
+
+import io.supertokens.ActiveUsersBuffer;
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.List;
+
+// writes the last active times that are buffered in ActiveUsersBuffer to the db
+public class FlushActiveUsers extends CronTask {
+
+    public static final String RESOURCE_KEY = "io.supertokens.cronjobs.flushActiveUsers.FlushActiveUsers";
+
+    private FlushActiveUsers(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        super("FlushActiveUsers", main, tenantsInfo, true);
+    }
+
+    public static FlushActiveUsers init(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        return (FlushActiveUsers) main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
+                        new FlushActiveUsers(main, tenantsInfo));
+    }
+
+    @TestOnly
+    public static FlushActiveUsers getInstance(Main main) {
+        try {
+            return (FlushActiveUsers) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void doTaskPerApp(AppIdentifier app) throws Exception {
+        ActiveUsersBuffer.getInstance(main).flush(app);
+    }
+
+    @Override
+    public int getIntervalTimeSeconds() {
+        if (Main.isTesting) {
+            Integer interval = CronTaskTest.getInstance(main).getIntervalInSeconds(RESOURCE_KEY);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        return Config.getBaseConfig(main).getActiveUsersFlushInterval();
+    }
+
+    @Override
+    public int getInitialWaitTimeSeconds() {
+        return getIntervalTimeSeconds();
+    }
+}
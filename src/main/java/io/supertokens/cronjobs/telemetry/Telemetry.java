@@ -17,6 +17,7 @@
 package io.supertokens.cronjobs.telemetry;
 
 import com.google.gson.JsonObject;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.config.Config;
@@ -91,6 +92,7 @@ public class Telemetry extends CronTask {
         json.addProperty("superTokensVersion", coreVersion);
 
         if (StorageLayer.getBaseStorage(main).getType() == STORAGE_TYPE.SQL) {
+            ActiveUsersBuffer.getInstance(main).flush(app);
             ActiveUsersStorage activeUsersStorage = (ActiveUsersStorage) StorageLayer.getStorage(app.getAsPublicTenantIdentifier(), main);
             json.addProperty("mau", activeUsersStorage.countUsersActiveSince(app, System.currentTimeMillis() - 30 * 24 * 3600 * 1000L));
         } else {
@@ -24,29 +24,33 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.emailpassword.exceptions.UnsupportedPasswordHashingFormatException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import org.jetbrains.annotations.TestOnly;
 import org.mindrot.jbcrypt.BCrypt;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 public class PasswordHashing extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.emailpassword.PasswordHashing";
     final static int ARGON2_SALT_LENGTH = 16;
     final static int ARGON2_HASH_LENGTH = 32;
-    final BlockingQueue<Object> argon2BoundedQueue;
-    final BlockingQueue<Object> firebaseSCryptBoundedQueue;
+    final PasswordHashingLimiter argon2Limiter;
+    final PasswordHashingLimiter bcryptLimiter;
+    final PasswordHashingLimiter firebaseSCryptLimiter;
     final Main main;
 
     private PasswordHashing(Main main) {
-        this.argon2BoundedQueue = new LinkedBlockingQueue<>(
-                Config.getBaseConfig(main).getArgon2HashingPoolSize());
-        this.firebaseSCryptBoundedQueue = new LinkedBlockingQueue<>(
-                Config.getBaseConfig(main).getFirebaseSCryptPasswordHashingPoolSize());
+        CoreConfig config = Config.getBaseConfig(main);
+        Metrics metrics = Metrics.getInstance(main);
+        this.argon2Limiter = new PasswordHashingLimiter(metrics, "argon2", config.getArgon2HashingPoolSize(),
+                config.getPasswordHashingMaxQueueSize(), config.getPasswordHashingMaxWaitTime());
+        this.bcryptLimiter = new PasswordHashingLimiter(metrics, "bcrypt", config.getBcryptHashingPoolSize(),
+                config.getPasswordHashingMaxQueueSize(), config.getPasswordHashingMaxWaitTime());
+        this.firebaseSCryptLimiter = new PasswordHashingLimiter(metrics, "firebase scrypt",
+                config.getFirebaseSCryptPasswordHashingPoolSize(), config.getPasswordHashingMaxQueueSize(),
+                config.getPasswordHashingMaxWaitTime());
         this.main = main;
     }
 
@@ -68,8 +72,29 @@ public class PasswordHashing extends ResourceDistributor.SingletonResource {
     }
 
     public static void init(Main main) {
+        PasswordHashing passwordHashing = new PasswordHashing(main);
         main.getResourceDistributor()
-                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new PasswordHashing(main));
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, passwordHashing);
+
+        Metrics metrics = Metrics.getInstance(main);
+        addMetrics(metrics, passwordHashing.argon2Limiter);
+        addMetrics(metrics, passwordHashing.bcryptLimiter);
+        addMetrics(metrics, passwordHashing.firebaseSCryptLimiter);
+    }
+
+    private static void addMetrics(Metrics metrics, PasswordHashingLimiter limiter) {
+        String[] labels = {"algorithm", limiter.getName()};
+        metrics.gauge("supertokens_password_hashing_active", "Number of password hashes that are being computed",
+                limiter::getNumberOfActiveHashes, labels);
+        metrics.gauge("supertokens_password_hashing_pool_size",
+                "Maximum number of password hashes that are computed at the same time", limiter::getPoolSize, labels);
+        metrics.gauge("supertokens_password_hashing_queue_size",
+                "Number of password hashes that are waiting for a free slot", limiter::getQueueSize, labels);
+        // the number of hashes, the number of waits and the time spent on them are recorded by the limiter in the
+        // supertokens_password_hashing_duration_seconds and supertokens_password_hashing_wait_seconds timers
+        metrics.counter("supertokens_password_hashing_rejections_total",
+                "Number of password hashes rejected because too many were waiting",
+                limiter::getNumberOfRejections, labels);
     }
 
     @TestOnly
@@ -90,16 +115,16 @@ public class PasswordHashing extends ResourceDistributor.SingletonResource {
         if (Config.getConfig(tenantIdentifier, main).getPasswordHashingAlg() ==
                 CoreConfig.PASSWORD_HASHING_ALG.BCRYPT) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_HASH_BCRYPT, null);
-            passwordHash = BCrypt.hashpw(password,
-                    BCrypt.gensalt(Config.getConfig(tenantIdentifier, main).getBcryptLogRounds()));
+            passwordHash = this.bcryptLimiter.run(() -> BCrypt.hashpw(password,
+                    BCrypt.gensalt(Config.getConfig(tenantIdentifier, main).getBcryptLogRounds())));
         } else if (Config.getConfig(tenantIdentifier, main).getPasswordHashingAlg() ==
                 CoreConfig.PASSWORD_HASHING_ALG.ARGON2) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_HASH_ARGON, null);
-            passwordHash = withConcurrencyLimited(
+            passwordHash = this.argon2Limiter.run(
                     () -> argon2id.hash(Config.getConfig(tenantIdentifier, main).getArgon2Iterations(),
                             Config.getConfig(tenantIdentifier, main).getArgon2MemoryKb(),
                             Config.getConfig(tenantIdentifier, main).getArgon2Parallelism(),
-                            password.toCharArray()), this.argon2BoundedQueue);
+                            password.toCharArray()));
         }
 
         try {
@@ -115,25 +140,6 @@ public class PasswordHashing extends ResourceDistributor.SingletonResource {
         T op() throws TenantOrAppNotFoundException;
     }
 
-    private <T> T withConcurrencyLimited(Func<T> func, BlockingQueue<Object> blockingQueue)
-            throws TenantOrAppNotFoundException {
-        Object waiter = new Object();
-        try {
-            while (!blockingQueue.contains(waiter)) {
-                try {
-                    // put will wait for there to be an empty slot in the queue and return
-                    // only when there is a slot for waiter
-                    blockingQueue.put(waiter);
-                } catch (InterruptedException ignored) {
-                }
-            }
-
-            return func.op();
-        } finally {
-            blockingQueue.remove(waiter);
-        }
-    }
-
     @TestOnly
     public boolean verifyPasswordWithHash(String password, String hash) {
         try {
@@ -149,43 +155,51 @@ public class PasswordHashing extends ResourceDistributor.SingletonResource {
         if (PasswordHashingUtils.isInputHashInArgon2Format(hash)) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_ARGON, null);
             if (hash.startsWith("$argon2id")) {
-                return withConcurrencyLimited(() -> argon2id.verify(hash, password.toCharArray()),
-                        this.argon2BoundedQueue);
+                return this.argon2Limiter.run(() -> argon2id.verify(hash, password.toCharArray()));
             }
 
             if (hash.startsWith("$argon2i")) {
-                return withConcurrencyLimited(() -> argon2i.verify(hash, password.toCharArray()),
-                        this.argon2BoundedQueue);
+                return this.argon2Limiter.run(() -> argon2i.verify(hash, password.toCharArray()));
             }
 
             if (hash.startsWith("$argon2d")) {
-                return withConcurrencyLimited(() -> argon2d.verify(hash, password.toCharArray()),
-                        this.argon2BoundedQueue);
+                return this.argon2Limiter.run(() -> argon2d.verify(hash, password.toCharArray()));
             }
         } else if (PasswordHashingUtils.isInputHashInBcryptFormat(hash)) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_BCRYPT, null);
             String bCryptPasswordHash = PasswordHashingUtils
                     .replaceUnsupportedIdentifierForBcryptPasswordHashVerification(hash);
-            return BCrypt.checkpw(password, bCryptPasswordHash);
+            return this.bcryptLimiter.run(() -> BCrypt.checkpw(password, bCryptPasswordHash));
         } else if (ParsedFirebaseSCryptResponse.fromHashString(hash) != null) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_FIREBASE_SCRYPT, null);
-            return withConcurrencyLimited(
+            return this.firebaseSCryptLimiter.run(
                     () -> PasswordHashingUtils.verifyFirebaseSCryptPasswordHash(password, hash,
                             Config.getConfig(appIdentifier.getAsPublicTenantIdentifier(), main)
-                                    .getFirebase_password_hashing_signer_key()),
-                    this.firebaseSCryptBoundedQueue);
+                                    .getFirebase_password_hashing_signer_key()));
         }
 
         return false;
     }
 
+    public PasswordHashingLimiter getArgon2Limiter() {
+        return this.argon2Limiter;
+    }
+
+    public PasswordHashingLimiter getBcryptLimiter() {
+        return this.bcryptLimiter;
+    }
+
+    public PasswordHashingLimiter getFirebaseSCryptLimiter() {
+        return this.firebaseSCryptLimiter;
+    }
+
     @TestOnly
     public int getArgon2BlockedQueueSize() {
-        return this.argon2BoundedQueue.size();
+        return this.argon2Limiter.getNumberOfActiveHashes();
     }
 
     @TestOnly
     public int getFirebaseSCryptBlockedQueueSize() {
-        return this.firebaseSCryptBoundedQueue.size();
+        return this.firebaseSCryptLimiter.getNumberOfActiveHashes();
     }
 }
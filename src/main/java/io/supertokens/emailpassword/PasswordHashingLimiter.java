@@ -0,0 +1,155 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.emailpassword;
+
+import io.supertokens.emailpassword.exceptions.PasswordHashingOverloadedException;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limits the number of concurrent hashes for one hashing algorithm. Waiters get a slot in the order in which they
+// asked for it. If too many requests are already waiting, or if a request waits for too long, we fail with
+// PasswordHashingOverloadedException instead of tying up the request thread.
+public class PasswordHashingLimiter {
+
+    private final String name;
+    private final int poolSize;
+    private final Semaphore permits;
+
+    // 0 means no limit
+    private final int maxQueueSize;
+    private final long maxWaitTimeMS;
+
+    private final AtomicInteger queueSize = new AtomicInteger(0);
+    private final AtomicLong numberOfRejections = new AtomicLong(0);
+    private final Metrics.Timer hashDuration;
+    private final Metrics.Timer waitDuration;
+
+    PasswordHashingLimiter(Metrics metrics, String name, int poolSize, int maxQueueSize, long maxWaitTimeMS) {
+        this.name = name;
+        this.hashDuration = metrics.timer("supertokens_password_hashing_duration_seconds",
+                "Time spent computing password hashes", "algorithm", name);
+        this.waitDuration = metrics.timer("supertokens_password_hashing_wait_seconds",
+                "Time spent waiting for a free slot to compute password hashes", "algorithm", name);
+        this.poolSize = poolSize;
+        this.permits = new Semaphore(poolSize, true);
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitTimeMS = maxWaitTimeMS;
+    }
+
+    <T> T run(PasswordHashing.Func<T> func) throws TenantOrAppNotFoundException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return func.op();
+        } finally {
+            this.hashDuration.recordSince(start);
+            this.permits.release();
+        }
+    }
+
+    private void acquire() {
+        // like before, we ignore interrupts while waiting, but restore the interrupt flag for the caller
+        boolean interrupted = false;
+        try {
+            // unlike tryAcquire(), this does not jump ahead of threads that are already waiting
+            if (this.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        if (this.queueSize.incrementAndGet() > this.maxQueueSize && this.maxQueueSize > 0) {
+            this.queueSize.decrementAndGet();
+            this.numberOfRejections.incrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throw new PasswordHashingOverloadedException(
+                    "Too many requests waiting for " + this.name + " password hashing. Please try again later");
+        }
+
+        long waitStart = System.nanoTime();
+        boolean acquired = false;
+        try {
+            if (this.maxWaitTimeMS <= 0) {
+                this.permits.acquireUninterruptibly();
+                acquired = true;
+            } else {
+                long deadline = waitStart + TimeUnit.MILLISECONDS.toNanos(this.maxWaitTimeMS);
+                while (!acquired) {
+                    long timeLeft = deadline - System.nanoTime();
+                    if (timeLeft <= 0) {
+                        break;
+                    }
+                    try {
+                        acquired = this.permits.tryAcquire(timeLeft, TimeUnit.NANOSECONDS);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            this.queueSize.decrementAndGet();
+            this.waitDuration.recordSince(waitStart);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (!acquired) {
+            this.numberOfRejections.incrementAndGet();
+            throw new PasswordHashingOverloadedException(
+                    "Timed out waiting for " + this.name + " password hashing. Please try again later");
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+
+    // number of hashes happening right now
+    public int getNumberOfActiveHashes() {
+        return this.poolSize - this.permits.availablePermits();
+    }
+
+    // number of requests waiting for a slot right now
+    public int getQueueSize() {
+        return this.queueSize.get();
+    }
+
+    public long getNumberOfRejections() {
+        return this.numberOfRejections.get();
+    }
+
+    public long getNumberOfWaits() {
+        return this.waitDuration.getCount();
+    }
+
+    public long getNumberOfHashes() {
+        return this.hashDuration.getCount();
+    }
+}
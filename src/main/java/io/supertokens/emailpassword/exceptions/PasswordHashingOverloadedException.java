@@ -0,0 +1,29 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.emailpassword.exceptions;
+
+import java.io.Serial;
+
+// This is unchecked since it can be thrown from anywhere a password is hashed or verified, and is turned into a 503
+// response by WebserverAPI so that the client can retry the request.
+public class PasswordHashingOverloadedException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 4381259086523196637L;
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
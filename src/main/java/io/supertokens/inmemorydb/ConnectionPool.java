@@ -16,44 +16,167 @@
 
 package io.supertokens.inmemorydb;
 
+import io.supertokens.Main;
+import io.supertokens.metrics.Metrics;
 import org.sqlite.SQLiteConfig;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.ConnectionPool";
     private static String URL = "jdbc:sqlite:file::memory:?cache=shared";
 
+    static final int MAX_POOL_SIZE = 20;
+    private static final long CONNECTION_WAIT_TIMEOUT_MS = 30000;
+
     // we use this to keep all the information in memory across requests.
     private Connection alwaysAlive = null;
     private Lock lock = new Lock();
 
-    public ConnectionPool() throws SQLException {
-        SQLiteConfig config = new SQLiteConfig();
-        config.enforceForeignKeys(true);
-        this.alwaysAlive = DriverManager.getConnection(URL, config.toProperties());
+    private final SQLiteConfig config;
+
+    // connections that are not being used right now. These are never closed until the pool is closed.
+    private final BlockingQueue<Connection> idleConnections = new LinkedBlockingQueue<>();
+
+    // idle + in use connections
+    private final AtomicInteger numberOfConnections = new AtomicInteger(0);
+
+    // a thread that already holds a connection (for example, during a transaction) and asks for another one must not
+    // wait for the pool, since it may be waiting on itself. Such threads get a new connection even if the pool is full.
+    private final ThreadLocal<Integer> numberOfConnectionsHeldByThread = ThreadLocal.withInitial(() -> 0);
+
+    // time spent by callers waiting for a connection to be returned to the pool
+    private final Metrics.Timer waitDuration;
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(Metrics metrics) throws SQLException {
+        this.waitDuration = metrics.timer("supertokens_inmemorydb_connection_wait_seconds",
+                "Time spent waiting for a connection to the in memory db");
+        this.config = new SQLiteConfig();
+        this.config.enforceForeignKeys(true);
+        this.alwaysAlive = DriverManager.getConnection(URL, this.config.toProperties());
     }
 
     static boolean isAlreadyInitialised(Start start) {
         return getInstance(start) != null;
     }
 
-    static void initPool(Start start, boolean ignored) throws SQLException {
+    static void initPool(Start start, Main main, boolean ignored) throws SQLException {
+        Metrics metrics = Metrics.getInstance(main);
+        ConnectionPool connectionPool = new ConnectionPool(metrics);
         start.getResourceDistributor()
-                .setResource(RESOURCE_KEY, new ConnectionPool());
+                .setResource(RESOURCE_KEY, connectionPool);
+
+        // registering these again replaces the suppliers of the older pool
+        metrics.gauge("supertokens_inmemorydb_connections", "Number of open connections to the in memory db",
+                connectionPool.numberOfConnections::get);
+        metrics.gauge("supertokens_inmemorydb_idle_connections",
+                "Number of connections to the in memory db that are not being used",
+                connectionPool.idleConnections::size);
+        metrics.gauge("supertokens_inmemorydb_connections_max",
+                "Maximum number of connections to the in memory db that are kept open", () -> MAX_POOL_SIZE);
     }
 
     public static Connection getConnection(Start start) throws SQLException {
         if (!start.enabled) {
             throw new SQLException("Storage layer disabled");
         }
-        SQLiteConfig config = new SQLiteConfig();
-        config.enforceForeignKeys(true);
-        return new ConnectionWithLocks(DriverManager.getConnection(URL, config.toProperties()),
-                ConnectionPool.getInstance(start));
+        ConnectionPool connectionPool = ConnectionPool.getInstance(start);
+        return new ConnectionWithLocks(connectionPool.borrowConnection(), connectionPool);
+    }
+
+    private Connection borrowConnection() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool closed");
+        }
+        Connection con = this.idleConnections.poll();
+        if (con == null) {
+            con = createConnectionIfPoolNotFull();
+        }
+        if (con == null) {
+            if (this.numberOfConnectionsHeldByThread.get() > 0) {
+                this.numberOfConnections.incrementAndGet();
+                con = createConnection();
+            } else {
+                long waitStart = System.nanoTime();
+                try {
+                    con = this.idleConnections.poll(CONNECTION_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException(e);
+                } finally {
+                    this.waitDuration.recordSince(waitStart);
+                }
+                if (con == null) {
+                    throw new SQLException("Timed out waiting for a connection to the in memory db");
+                }
+            }
+        }
+        this.numberOfConnectionsHeldByThread.set(this.numberOfConnectionsHeldByThread.get() + 1);
+        return con;
+    }
+
+    private Connection createConnectionIfPoolNotFull() throws SQLException {
+        while (true) {
+            int current = this.numberOfConnections.get();
+            if (current >= MAX_POOL_SIZE) {
+                return null;
+            }
+            if (this.numberOfConnections.compareAndSet(current, current + 1)) {
+                return createConnection();
+            }
+        }
+    }
+
+    // the caller must have already incremented numberOfConnections
+    private Connection createConnection() throws SQLException {
+        try {
+            return DriverManager.getConnection(URL, this.config.toProperties());
+        } catch (SQLException e) {
+            this.numberOfConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // called by ConnectionWithLocks once it has reset the connection's state. If the state could not be reset, or if
+    // this is an extra connection created when the pool was full, we close it instead of keeping it around.
+    void returnConnection(Connection con, boolean reusable) {
+        int held = this.numberOfConnectionsHeldByThread.get();
+        if (held > 0) {
+            this.numberOfConnectionsHeldByThread.set(held - 1);
+        }
+        if (!this.closed && reusable && this.numberOfConnections.get() <= MAX_POOL_SIZE) {
+            this.idleConnections.offer(con);
+            if (this.closed) {
+                // close() may have drained the queue before we added to it
+                closeIdleConnections();
+            }
+            return;
+        }
+        this.numberOfConnections.decrementAndGet();
+        try {
+            con.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void closeIdleConnections() {
+        Connection con;
+        while ((con = this.idleConnections.poll()) != null) {
+            this.numberOfConnections.decrementAndGet();
+            try {
+                con.close();
+            } catch (Exception ignored) {
+            }
+        }
     }
 
     private static ConnectionPool getInstance(Start start) {
@@ -65,14 +188,25 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         if (getInstance(start) == null) {
             return;
         }
+        ConnectionPool connectionPool = getInstance(start);
+        connectionPool.closed = true;
+        connectionPool.closeIdleConnections();
         try {
-            getInstance(start).alwaysAlive.close();
+            connectionPool.alwaysAlive.close();
         } catch (Exception ignored) {
         }
     }
 
-    public void lock(String key) {
-        this.lock.lock(key);
+    public static int getPoolSize(Start start) {
+        return getInstance(start).numberOfConnections.get();
+    }
+
+    public static int getNumberOfIdleConnections(Start start) {
+        return getInstance(start).idleConnections.size();
+    }
+
+    public void lock(String key, Object owner) throws SQLException {
+        this.lock.lock(key, owner);
     }
 
     public void unlock(String key) {
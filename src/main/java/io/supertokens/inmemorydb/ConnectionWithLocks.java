@@ -28,11 +28,12 @@ public class ConnectionWithLocks implements Connection {
     private Connection con;
     private ConnectionPool connectionPool;
     private Set<String> lockedKeys = new HashSet<String>();
+    private boolean closed = false;
 
-    public synchronized void lock(String key) {
+    public synchronized void lock(String key) throws SQLException {
         if (!this.lockedKeys.contains(key)) {
+            connectionPool.lock(key, this);
             this.lockedKeys.add(key);
-            connectionPool.lock(key);
         }
     }
 
@@ -96,18 +97,31 @@ public class ConnectionWithLocks implements Connection {
         }
     }
 
+    // this does not close the underlying connection, but resets it and gives it back to the pool
     @Override
-    public void close() throws SQLException {
+    public synchronized void close() throws SQLException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        boolean reusable = true;
         try {
-            con.close();
+            if (!con.getAutoCommit()) {
+                // whatever was not committed till now should not leak into the next user of this connection
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
         } finally {
             this.unlockAllLocks();
+            connectionPool.returnConnection(con, reusable);
         }
     }
 
     @Override
-    public boolean isClosed() throws SQLException {
-        return con.isClosed();
+    public synchronized boolean isClosed() throws SQLException {
+        return this.closed || con.isClosed();
     }
 
     @Override
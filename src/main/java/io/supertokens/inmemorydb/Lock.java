@@ -16,35 +16,118 @@
 
 package io.supertokens.inmemorydb;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Every locked key has its own monitor, so unlocking a key only wakes up a thread that is waiting for that key.
+// Entries are reference counted (lock holder + waiters) and removed once nobody uses them.
 class Lock {
 
-    private Set<String> lockedKeys = new HashSet<>();
-    private final Object waitMutex = new Object();
+    // the threads that we depend on may start waiting after we do, so we keep checking for deadlocks while waiting
+    private static final long DEADLOCK_CHECK_INTERVAL_MS = 100;
 
-    void lock(String name) {
-        synchronized (this.waitMutex) {
-            while (true) {
-                if (!this.lockedKeys.contains(name)) {
-                    this.lockedKeys.add(name);
-                    return;
-                }
+    private final Map<String, KeyLock> locks = new ConcurrentHashMap<>();
+
+    // used for deadlock detection
+    private final Map<Thread, KeyLock> waitingFor = new ConcurrentHashMap<>();
+
+    void lock(String name, Object owner) throws SQLException {
+        lock(name, owner, 0);
+    }
 
+    // if timeoutMS is <= 0, this waits till the lock is acquired or a deadlock is found
+    void lock(String name, Object owner, long timeoutMS) throws SQLException {
+        KeyLock keyLock = this.locks.compute(name, (key, existing) -> {
+            KeyLock result = existing == null ? new KeyLock() : existing;
+            result.numberOfUsers++;
+            return result;
+        });
+        boolean acquired = false;
+        try {
+            acquire(keyLock, owner, timeoutMS);
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                release(name);
+            }
+        }
+    }
+
+    void unlock(String name) {
+        KeyLock keyLock = this.locks.get(name);
+        if (keyLock == null) {
+            return;
+        }
+        synchronized (keyLock) {
+            keyLock.owner = null;
+            keyLock.ownerThread = null;
+            keyLock.notify();
+        }
+        release(name);
+    }
+
+    private void acquire(KeyLock keyLock, Object owner, long timeoutMS) throws SQLException {
+        long deadline = timeoutMS > 0 ? System.currentTimeMillis() + timeoutMS : Long.MAX_VALUE;
+        Thread currentThread = Thread.currentThread();
+        synchronized (keyLock) {
+            if (keyLock.owner != null) {
+                this.waitingFor.put(currentThread, keyLock);
                 try {
-                    this.waitMutex.wait();
-                } catch (InterruptedException ignored) {
+                    while (keyLock.owner != null) {
+                        if (isDeadlocked(keyLock, currentThread)) {
+                            // Start.startTransaction retries on this, and reports it via ProcessState.DEADLOCK_FOUND
+                            throw new SQLTransactionRollbackException("Deadlock found when trying to get lock");
+                        }
+                        long timeLeft = deadline - System.currentTimeMillis();
+                        if (timeLeft <= 0) {
+                            throw new SQLTimeoutException("Timed out waiting for lock");
+                        }
+                        try {
+                            keyLock.wait(Math.min(timeLeft, DEADLOCK_CHECK_INTERVAL_MS));
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                } finally {
+                    this.waitingFor.remove(currentThread);
                 }
             }
+            keyLock.owner = owner;
+            keyLock.ownerThread = currentThread;
         }
     }
 
-    void unlock(String name) {
-        synchronized (this.waitMutex) {
-            this.lockedKeys.remove(name);
-            this.waitMutex.notifyAll();
+    // we follow the chain of "thread holding the lock -> lock that thread is waiting for" and see if it comes back
+    // to the current thread. This also catches a thread waiting on a lock held by another connection of its own.
+    private boolean isDeadlocked(KeyLock keyLock, Thread currentThread) {
+        Thread holder = keyLock.ownerThread;
+        int maxSteps = this.waitingFor.size() + 1;
+        for (int i = 0; holder != null && i < maxSteps; i++) {
+            if (holder == currentThread) {
+                return true;
+            }
+            KeyLock next = this.waitingFor.get(holder);
+            if (next == null) {
+                return false;
+            }
+            holder = next.ownerThread;
         }
+        return false;
+    }
+
+    private void release(String name) {
+        this.locks.computeIfPresent(name, (key, existing) -> --existing.numberOfUsers == 0 ? null : existing);
+    }
+
+    private static class KeyLock {
+        // only changed inside locks.compute / computeIfPresent
+        int numberOfUsers = 0;
+
+        // guarded by the KeyLock's monitor, but read without it during deadlock detection
+        volatile Object owner = null;
+        volatile Thread ownerThread = null;
     }
 
 }
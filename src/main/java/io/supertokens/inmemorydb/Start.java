@@ -22,6 +22,7 @@ import io.supertokens.ProcessState;
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.inmemorydb.config.SQLiteConfig;
 import io.supertokens.inmemorydb.queries.*;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.*;
 import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.authRecipe.LoginMethod;
@@ -84,6 +85,10 @@ import io.supertokens.pluginInterface.userroles.UserRolesStorage;
 import io.supertokens.pluginInterface.userroles.exception.DuplicateUserRoleMappingException;
 import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
 import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
+import io.supertokens.storageLayer.BatchedActiveUsersStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
+import io.supertokens.storageLayer.DailyActiveUsersStorage;
+import io.supertokens.storageLayer.NonAuthRecipeUsageStorage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.TestOnly;
 import org.sqlite.SQLiteException;
@@ -96,13 +101,15 @@ import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class Start
         implements SessionSQLStorage, EmailPasswordSQLStorage, EmailVerificationSQLStorage, ThirdPartySQLStorage,
         JWTRecipeSQLStorage, PasswordlessSQLStorage, UserMetadataSQLStorage, UserRolesSQLStorage, UserIdMappingStorage,
         UserIdMappingSQLStorage, MultitenancyStorage, MultitenancySQLStorage, TOTPSQLStorage, ActiveUsersStorage,
-        DashboardSQLStorage, AuthRecipeSQLStorage {
+        DashboardSQLStorage, AuthRecipeSQLStorage, ChunkedExpiryStorage, BatchedActiveUsersStorage,
+        DailyActiveUsersStorage, NonAuthRecipeUsageStorage {
 
     private static final Object appenderLock = new Object();
     private static final String APP_ID_KEY_NAME = "app_id";
@@ -115,6 +122,10 @@ public class Start
     private String processId;
     private Main main;
 
+    // looked up on first use, since these are shared by all the storage instances of this process
+    private volatile Metrics.Timer transactionTimer;
+    private volatile Metrics.Counter deadlockRetryCounter;
+
     public Start(Main main) {
         this.resourceDistributor = new ResourceDistributor();
         this.main = main;
@@ -180,7 +191,7 @@ public class Start
             return;
         }
         try {
-            ConnectionPool.initPool(this, shouldWait);
+            ConnectionPool.initPool(this, this.main, shouldWait);
             GeneralQueries.createTablesIfNotExists(this, this.main);
         } catch (SQLException | StorageQueryException e) {
             throw new DbInitException(e);
@@ -196,27 +207,53 @@ public class Start
     @Override
     public <T> T startTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
             throws StorageTransactionLogicException, StorageQueryException {
+        long startTime = System.nanoTime();
         int tries = 0;
-        while (true) {
-            tries++;
-            try {
-                return startTransactionHelper(logic);
-            } catch (SQLException | StorageQueryException | StorageTransactionLogicException e) {
-                if ((e instanceof SQLTransactionRollbackException
-                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock")))
-                        && tries < 3) {
-                    ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
-                    continue; // this because deadlocks are not necessarily a result of faulty logic. They can
-                    // happen
-                }
-                if (e instanceof StorageQueryException) {
-                    throw (StorageQueryException) e;
-                } else if (e instanceof StorageTransactionLogicException) {
-                    throw (StorageTransactionLogicException) e;
+        try {
+            while (true) {
+                tries++;
+                try {
+                    return startTransactionHelper(logic);
+                } catch (SQLException | StorageQueryException | StorageTransactionLogicException e) {
+                    if ((e instanceof SQLTransactionRollbackException
+                            || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock")))
+                            && tries < 3) {
+                        ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
+                        getDeadlockRetryCounter().inc();
+                        continue; // this because deadlocks are not necessarily a result of faulty logic. They can
+                        // happen
+                    }
+                    if (e instanceof StorageQueryException) {
+                        throw (StorageQueryException) e;
+                    } else if (e instanceof StorageTransactionLogicException) {
+                        throw (StorageTransactionLogicException) e;
+                    }
+                    throw new StorageQueryException(e);
                 }
-                throw new StorageQueryException(e);
             }
+        } finally {
+            getTransactionTimer().recordSince(startTime);
+        }
+    }
+
+    private Metrics.Timer getTransactionTimer() {
+        Metrics.Timer timer = this.transactionTimer;
+        if (timer == null) {
+            timer = Metrics.getInstance(this.main).timer("supertokens_storage_transaction_duration_seconds",
+                    "Time taken by storage transactions, including retries");
+            this.transactionTimer = timer;
+        }
+        return timer;
+    }
+
+    private Metrics.Counter getDeadlockRetryCounter() {
+        Metrics.Counter counter = this.deadlockRetryCounter;
+        if (counter == null) {
+            counter = Metrics.getInstance(this.main).counter("supertokens_storage_transaction_retries_total",
+                    "Number of storage transactions retried because of a deadlock", "reason", "deadlock");
+            this.deadlockRetryCounter = counter;
         }
+        return counter;
     }
 
     private <T> T startTransactionHelper(TransactionLogic<T> logic)
@@ -448,6 +485,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredSessions(long currentTimeMillis, int limit) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteExpiredSessions(this, currentTimeMillis, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public KeyValueInfo getKeyValue(TenantIdentifier tenantIdentifier, String key) throws StorageQueryException {
         try {
@@ -621,6 +667,16 @@ public class Start
         }
     }
 
+    @Override
+    public List<String> findNonAuthRecipesWhereForUserIdIsUsed(AppIdentifier appIdentifier, String userId)
+            throws StorageQueryException {
+        try {
+            return GeneralQueries.findNonAuthRecipesWhereForUserIdIsUsed(this, appIdentifier, userId);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @TestOnly
     @Override
     public void addInfoToNonAuthRecipesBasedOnUserId(TenantIdentifier tenantIdentifier, String className, String userId)
@@ -892,6 +948,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredEmailVerificationTokens(long currentTimeMillis, int limit) throws StorageQueryException {
+        try {
+            return EmailVerificationQueries.deleteExpiredEmailVerificationTokens(this, currentTimeMillis, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser_Transaction(
             TenantIdentifier tenantIdentifier,
@@ -1072,6 +1137,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredPasswordResetTokens(long currentTimeMillis, int limit) throws StorageQueryException {
+        try {
+            return EmailPasswordQueries.deleteExpiredPasswordResetTokens(this, currentTimeMillis, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public void updateUserEmail_Transaction(AppIdentifier appIdentifier, TransactionConnection con,
                                             String thirdPartyId, String thirdPartyUserId,
@@ -1206,6 +1280,25 @@ public class Start
         }
     }
 
+    @Override
+    public void updateLastActive(AppIdentifier appIdentifier, Map<String, Long> lastActiveTimes)
+            throws StorageQueryException {
+        try {
+            this.startTransaction(con -> {
+                try {
+                    ActiveUsersQueries.updateUsersLastActive_Transaction((Connection) con.getConnection(), this,
+                            appIdentifier, lastActiveTimes);
+                } catch (SQLException e) {
+                    throw new StorageTransactionLogicException(e);
+                }
+                this.commitTransaction(con);
+                return null;
+            });
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
     @Override
     public int countUsersActiveSince(AppIdentifier appIdentifier, long time) throws StorageQueryException {
         try {
@@ -1234,6 +1327,40 @@ public class Start
         }
     }
 
+    @Override
+    public int[] countUsersActiveSinceEachDay(AppIdentifier appIdentifier, long today, int numberOfDays)
+            throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersActiveSinceEachDay(this, appIdentifier, today, numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int[] countUsersEnabledTotpAndActiveSinceEachDay(AppIdentifier appIdentifier, long today,
+                                                            int numberOfDays)
+            throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersEnabledTotpAndActiveSinceEachDay(this, appIdentifier, today,
+                    numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int[] countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceEachDay(AppIdentifier appIdentifier,
+                                                                               long today, int numberOfDays)
+            throws StorageQueryException {
+        try {
+            return ActiveUsersQueries.countUsersActiveSinceAndHasMoreThanOneLoginMethodEachDay(this, appIdentifier,
+                    today, numberOfDays);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public void deleteUserActive_Transaction(TransactionConnection con, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
@@ -2583,6 +2710,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredDashboardSessions(long currentTimeMillis, int limit) throws StorageQueryException {
+        try {
+            return DashboardQueries.deleteExpiredSessions(this, currentTimeMillis, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     // TOTP recipe:
     @Override
     public void createDevice(AppIdentifier appIdentifier, TOTPDevice device)
@@ -2753,6 +2889,26 @@ public class Start
         }
     }
 
+    @Override
+    public int removeExpiredTotpCodes(TenantIdentifier tenantIdentifier, long expiredBefore, int limit)
+            throws StorageQueryException {
+        try {
+            return TOTPQueries.removeExpiredCodes(this, tenantIdentifier, expiredBefore, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public int deleteExpiredPasswordlessDevices(TenantIdentifier tenantIdentifier, long codesCreatedBefore, int limit)
+            throws StorageQueryException {
+        try {
+            return PasswordlessQueries.deleteExpiredDevices(this, tenantIdentifier, codesCreatedBefore, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public Set<String> getValidFieldsInConfig() {
         return SQLiteConfig.getValidFields();
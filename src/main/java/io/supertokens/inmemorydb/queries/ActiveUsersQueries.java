@@ -1,7 +1,11 @@
 package io.supertokens.inmemorydb.queries;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -61,6 +65,67 @@ public class ActiveUsersQueries {
         });
     }
 
+    private static final long ONE_DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // the day index of a last active time is the smallest i for which last_active_time >= today - i days
+    private static String getDaysAgoColumn(String lastActiveTimeColumn) {
+        return "(? - " + lastActiveTimeColumn + " + " + (ONE_DAY_MILLIS - 1) + ") / " + ONE_DAY_MILLIS + " AS days_ago";
+    }
+
+    // turns the number of users whose last active time is in each day into the number of users active since each day
+    private static int[] getRunningSum(ResultSet result, int numberOfDays) throws SQLException {
+        int[] counts = new int[numberOfDays];
+        while (result.next()) {
+            int daysAgo = (int) Math.max(0, result.getLong("days_ago"));
+            if (daysAgo < numberOfDays) {
+                counts[daysAgo] += result.getInt("total");
+            }
+        }
+        for (int i = 1; i < numberOfDays; i++) {
+            counts[i] += counts[i - 1];
+        }
+        return counts;
+    }
+
+    public static int[] countUsersActiveSinceEachDay(Start start, AppIdentifier appIdentifier, long today,
+                                                     int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT " + getDaysAgoColumn("last_active_time") + ", COUNT(*) as total FROM "
+                + Config.getConfig(start).getUserLastActiveTable()
+                + " WHERE app_id = ? AND last_active_time >= ? GROUP BY days_ago";
+
+        return execute(start, QUERY, pst -> {
+            pst.setLong(1, today);
+            pst.setString(2, appIdentifier.getAppId());
+            pst.setLong(3, today - (numberOfDays - 1) * ONE_DAY_MILLIS);
+        }, result -> getRunningSum(result, numberOfDays));
+    }
+
+    public static int[] countUsersActiveSinceAndHasMoreThanOneLoginMethodEachDay(Start start,
+                                                                               AppIdentifier appIdentifier,
+                                                                               long today, int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT " + getDaysAgoColumn("user_last_active.last_active_time") + ", count(1) as total FROM ("
+                + "  SELECT primary_or_recipe_user_id"
+                + "  FROM " + Config.getConfig(start).getUsersTable()
+                + "  WHERE primary_or_recipe_user_id IN ("
+                + "    SELECT user_id FROM " + Config.getConfig(start).getUserLastActiveTable()
+                + "    WHERE app_id = ? AND last_active_time >= ?"
+                + "  )"
+                + "  GROUP BY app_id, primary_or_recipe_user_id"
+                + "  HAVING count(user_id) > 1"
+                + ") uc INNER JOIN " + Config.getConfig(start).getUserLastActiveTable() + " AS user_last_active "
+                + "ON user_last_active.user_id = uc.primary_or_recipe_user_id "
+                + "WHERE user_last_active.app_id = ? GROUP BY days_ago";
+
+        return execute(start, QUERY, pst -> {
+            pst.setLong(1, today);
+            pst.setString(2, appIdentifier.getAppId());
+            pst.setLong(3, today - (numberOfDays - 1) * ONE_DAY_MILLIS);
+            pst.setString(4, appIdentifier.getAppId());
+        }, result -> getRunningSum(result, numberOfDays));
+    }
+
     public static int countUsersEnabledTotp(Start start, AppIdentifier appIdentifier)
             throws SQLException, StorageQueryException {
         String QUERY = "SELECT COUNT(*) as total FROM " + Config.getConfig(start).getTotpUsersTable()
@@ -95,6 +160,22 @@ public class ActiveUsersQueries {
         });
     }
 
+    public static int[] countUsersEnabledTotpAndActiveSinceEachDay(Start start, AppIdentifier appIdentifier,
+                                                                   long today, int numberOfDays)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT " + getDaysAgoColumn("user_last_active.last_active_time") + ", COUNT(*) as total FROM "
+                + Config.getConfig(start).getTotpUsersTable() + " AS totp_users "
+                + "INNER JOIN " + Config.getConfig(start).getUserLastActiveTable() + " AS user_last_active "
+                + "ON totp_users.user_id = user_last_active.user_id "
+                + "WHERE user_last_active.app_id = ? AND user_last_active.last_active_time >= ? GROUP BY days_ago";
+
+        return execute(start, QUERY, pst -> {
+            pst.setLong(1, today);
+            pst.setString(2, appIdentifier.getAppId());
+            pst.setLong(3, today - (numberOfDays - 1) * ONE_DAY_MILLIS);
+        }, result -> getRunningSum(result, numberOfDays));
+    }
+
     public static int updateUserLastActive(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
         String QUERY = "INSERT INTO " + Config.getConfig(start).getUserLastActiveTable()
@@ -111,6 +192,37 @@ public class ActiveUsersQueries {
         });
     }
 
+    // sqlite limits the number of parameters of a query, so we insert at most these many users per query
+    private static final int MAX_USERS_PER_QUERY = 250;
+
+    public static void updateUsersLastActive_Transaction(Connection con, Start start, AppIdentifier appIdentifier,
+                                                         Map<String, Long> lastActiveTimes)
+            throws SQLException, StorageQueryException {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(lastActiveTimes.entrySet());
+        for (int offset = 0; offset < entries.size(); offset += MAX_USERS_PER_QUERY) {
+            List<Map.Entry<String, Long>> batch = entries.subList(offset,
+                    Math.min(entries.size(), offset + MAX_USERS_PER_QUERY));
+
+            StringBuilder QUERY = new StringBuilder("INSERT INTO " + Config.getConfig(start).getUserLastActiveTable()
+                    + "(app_id, user_id, last_active_time) VALUES");
+            for (int i = 0; i < batch.size(); i++) {
+                QUERY.append(i == 0 ? " (?, ?, ?)" : ", (?, ?, ?)");
+            }
+            // the buffered times can be older than one that was written directly, so we never move it back
+            QUERY.append(" ON CONFLICT(app_id, user_id) DO UPDATE SET last_active_time = MAX(last_active_time, " +
+                    "excluded.last_active_time)");
+
+            update(con, QUERY.toString(), pst -> {
+                int index = 1;
+                for (Map.Entry<String, Long> entry : batch) {
+                    pst.setString(index++, appIdentifier.getAppId());
+                    pst.setString(index++, entry.getKey());
+                    pst.setLong(index++, entry.getValue());
+                }
+            });
+        }
+    }
+
     public static Long getLastActiveByUserId(Start start, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
         String QUERY = "SELECT last_active_time FROM " + Config.getConfig(start).getUserLastActiveTable()
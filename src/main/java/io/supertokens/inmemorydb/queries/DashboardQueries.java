@@ -202,6 +202,17 @@ public class DashboardQueries {
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis));
     }
 
+    public static int deleteExpiredSessions(Start start, long currentTimeMillis, int limit)
+            throws SQLException, StorageQueryException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getDashboardSessionsTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + Config.getConfig(start).getDashboardSessionsTable()
+                + " WHERE expiry < ? LIMIT ?)";
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis);
+            pst.setInt(2, limit);
+        });
+    }
+
     public static DashboardUser getDashboardUserByEmail(Start start, AppIdentifier appIdentifier, String email)
             throws SQLException, StorageQueryException {
         String QUERY = "SELECT * FROM "
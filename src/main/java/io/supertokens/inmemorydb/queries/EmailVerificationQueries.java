@@ -77,6 +77,18 @@ public class EmailVerificationQueries {
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
+    public static int deleteExpiredEmailVerificationTokens(Start start, long currentTimeMillis, int limit)
+            throws SQLException, StorageQueryException {
+        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE token_expiry < ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis);
+            pst.setInt(2, limit);
+        });
+    }
+
     public static void updateUsersIsEmailVerified_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                               String userId, String email,
                                                               boolean isEmailVerified)
@@ -28,9 +28,14 @@ import io.supertokens.pluginInterface.RowMapper;
 import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.authRecipe.LoginMethod;
 import io.supertokens.pluginInterface.dashboard.DashboardSearchTags;
+import io.supertokens.pluginInterface.emailverification.EmailVerificationStorage;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.pluginInterface.totp.TOTPStorage;
+import io.supertokens.pluginInterface.usermetadata.UserMetadataStorage;
+import io.supertokens.pluginInterface.userroles.UserRolesStorage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
@@ -568,6 +573,54 @@ public class GeneralQueries {
         }, ResultSet::next);
     }
 
+    public static List<String> findNonAuthRecipesWhereForUserIdIsUsed(Start start, AppIdentifier appIdentifier,
+                                                                      String userId)
+            throws SQLException, StorageQueryException {
+        // these are the same checks as the ones in Start.isUserIdBeingUsedInNonAuthRecipe, in one query
+        String QUERY = "SELECT EXISTS (SELECT 1 FROM " + getConfig(start).getSessionInfoTable()
+                + " WHERE app_id = ? AND user_id = ? AND expires_at >= ?) AS session, "
+                + "EXISTS (SELECT 1 FROM " + getConfig(start).getUserMetadataTable()
+                + " WHERE app_id = ? AND user_id = ?) AS user_metadata, "
+                + "EXISTS (SELECT 1 FROM " + getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND user_id = ?) AS user_roles, "
+                + "EXISTS (SELECT 1 FROM " + getConfig(start).getEmailVerificationTokensTable()
+                + " WHERE app_id = ? AND user_id = ? UNION ALL SELECT 1 FROM "
+                + getConfig(start).getEmailVerificationTable()
+                + " WHERE app_id = ? AND user_id = ?) AS email_verification, "
+                + "EXISTS (SELECT 1 FROM " + getConfig(start).getTotpUserDevicesTable()
+                + " WHERE app_id = ? AND user_id = ?) AS totp";
+
+        return execute(start, QUERY, pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            pst.setString(2, userId);
+            pst.setLong(3, System.currentTimeMillis());
+            for (int i = 0; i < 5; i++) {
+                pst.setString(4 + 2 * i, appIdentifier.getAppId());
+                pst.setString(5 + 2 * i, userId);
+            }
+        }, result -> {
+            List<String> recipes = new ArrayList<>();
+            if (result.next()) {
+                if (result.getBoolean("session")) {
+                    recipes.add(SessionStorage.class.getName());
+                }
+                if (result.getBoolean("user_metadata")) {
+                    recipes.add(UserMetadataStorage.class.getName());
+                }
+                if (result.getBoolean("user_roles")) {
+                    recipes.add(UserRolesStorage.class.getName());
+                }
+                if (result.getBoolean("email_verification")) {
+                    recipes.add(EmailVerificationStorage.class.getName());
+                }
+                if (result.getBoolean("totp")) {
+                    recipes.add(TOTPStorage.class.getName());
+                }
+            }
+            return recipes;
+        });
+    }
+
     public static boolean doesUserIdExist(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
         // We query both tables cause there is a case where a primary user ID exists, but its associated
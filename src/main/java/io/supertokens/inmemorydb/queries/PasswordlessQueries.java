@@ -662,6 +662,25 @@ public class PasswordlessQueries {
         });
     }
 
+    // the codes of a device are deleted along with it by the foreign key
+    public static int deleteExpiredDevices(Start start, TenantIdentifier tenantIdentifier, long codesCreatedBefore,
+                                           int limit)
+            throws StorageQueryException, SQLException {
+        String QUERY = "DELETE FROM " + getConfig(start).getPasswordlessDevicesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND device_id_hash IN (SELECT device_id_hash FROM "
+                + getConfig(start).getPasswordlessCodesTable()
+                + " WHERE app_id = ? AND tenant_id = ? GROUP BY device_id_hash HAVING MAX(created_at) < ? LIMIT ?)";
+
+        return update(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setString(3, tenantIdentifier.getAppId());
+            pst.setString(4, tenantIdentifier.getTenantId());
+            pst.setLong(5, codesCreatedBefore);
+            pst.setInt(6, limit);
+        });
+    }
+
     public static PasswordlessCode getCode(Start start, TenantIdentifier tenantIdentifier, String codeId)
             throws StorageQueryException, SQLException {
         String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
@@ -272,6 +272,21 @@ public class TOTPQueries {
         });
     }
 
+    public static int removeExpiredCodes(Start start, TenantIdentifier tenantIdentifier, long expiredBefore,
+                                         int limit)
+            throws StorageQueryException, SQLException {
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getTotpUsedCodesTable()
+                + " WHERE rowid IN (SELECT rowid FROM " + Config.getConfig(start).getTotpUsedCodesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND expiry_time_ms < ? LIMIT ?);";
+
+        return update(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setLong(3, expiredBefore);
+            pst.setInt(4, limit);
+        });
+    }
+
     private static class TOTPDeviceRowMapper implements RowMapper<TOTPDevice, ResultSet> {
         private static final TOTPDeviceRowMapper INSTANCE = new TOTPDeviceRowMapper();
 
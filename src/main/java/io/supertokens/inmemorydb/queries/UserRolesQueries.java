@@ -119,12 +119,13 @@ public class UserRolesQueries {
             return start.startTransaction(con -> {
                 // Row lock must be taken to delete the role, otherwise the table may be locked for delete
                 Connection sqlCon = (Connection) con.getConnection();
-                ((ConnectionWithLocks) sqlCon).lock(appIdentifier.getAppId() + "~" + role + Config.getConfig(start).getRolesTable());
 
                 String QUERY = "DELETE FROM " + getConfig(start).getRolesTable()
                         + " WHERE app_id = ? AND role = ? ;";
 
                 try {
+                    ((ConnectionWithLocks) sqlCon).lock(
+                            appIdentifier.getAppId() + "~" + role + Config.getConfig(start).getRolesTable());
                     return update(sqlCon, QUERY, pst -> {
                         pst.setString(1, appIdentifier.getAppId());
                         pst.setString(2, role);
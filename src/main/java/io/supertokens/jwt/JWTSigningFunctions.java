@@ -98,27 +98,27 @@ public class JWTSigningFunctions {
         long issued = System.currentTimeMillis();
         long expires = System.currentTimeMillis() + (jwtValidityInSeconds * 1000);
 
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
         JWTSigningKeyInfo keyToUse;
         if (useDynamicKey) {
-            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(
-                    SigningKeys.getInstance(appIdentifier, main).getLatestIssuedDynamicKey());
+            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(signingKeys.getLatestIssuedDynamicKey());
         } else {
-            keyToUse = SigningKeys.getInstance(appIdentifier, main)
-                    .getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
+            keyToUse = signingKeys.getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
         }
 
-        return createJWTToken(supportedAlgorithm, new HashMap<>(), payload, jwksDomain, expires, issued, keyToUse);
+        return createJWTToken(signingKeys, supportedAlgorithm, new HashMap<>(), payload, jwksDomain, expires, issued,
+                keyToUse);
     }
 
     @SuppressWarnings("unchecked")
-    public static String createJWTToken(JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
+    public static String createJWTToken(SigningKeys signingKeys, JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
                                         Map<String, Object> headerClaims, JsonObject payload, String jwksDomain,
                                         long jwtExpiryInMs, long jwtIssuedAtInMs, JWTSigningKeyInfo keyToUse)
             throws StorageQueryException, StorageTransactionLogicException, NoSuchAlgorithmException,
             InvalidKeySpecException, JWTCreationException, UnsupportedJWTSigningAlgorithmException,
             TenantOrAppNotFoundException {
         // Get an instance of auth0's Algorithm which is needed when signing using auth0's package
-        Algorithm signingAlgorithm = getAuth0Algorithm(supportedAlgorithm, keyToUse);
+        Algorithm signingAlgorithm = getAuth0Algorithm(signingKeys, supportedAlgorithm, keyToUse);
 
         // Create the claims for the JWT header
         headerClaims.put("alg", supportedAlgorithm.name().toUpperCase()); // All examples in the RFC have the algorithm
@@ -145,13 +145,14 @@ public class JWTSigningFunctions {
         return builder.sign(signingAlgorithm);
     }
 
-    private static Algorithm getAuth0Algorithm(JWTSigningKey.SupportedAlgorithms algorithm, JWTSigningKeyInfo keyToUse)
+    private static Algorithm getAuth0Algorithm(SigningKeys signingKeys, JWTSigningKey.SupportedAlgorithms algorithm,
+                                               JWTSigningKeyInfo keyToUse)
             throws NoSuchAlgorithmException, InvalidKeySpecException, UnsupportedJWTSigningAlgorithmException {
         // TODO: Abstract this away from the main package to avoid a direct dependency on auth0s package
         if (algorithm.equalsString("rs256")) {
-            PublicKey publicKey = Utils.getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).publicKey,
+            PublicKey publicKey = signingKeys.getPublicKey(((JWTAsymmetricSigningKeyInfo) keyToUse).publicKey,
                     algorithm);
-            PrivateKey privateKey = Utils.getPrivateKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).privateKey,
+            PrivateKey privateKey = signingKeys.getPrivateKey(((JWTAsymmetricSigningKeyInfo) keyToUse).privateKey,
                     algorithm);
 
             if (publicKey instanceof RSAPublicKey && privateKey instanceof RSAPrivateKey) {
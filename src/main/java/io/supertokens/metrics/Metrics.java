@@ -0,0 +1,240 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.metrics;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+// Process wide registry of counters, timers and gauges which is exposed in the Prometheus text format via the /metrics
+// API. Callers that update a metric often should keep the Counter or Timer that is returned to them instead of looking
+// it up every time. Labels are passed as name, value pairs and should only take a small, fixed set of values.
+public class Metrics extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.metrics.Metrics";
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance(Main main) {
+        try {
+            return (Metrics) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void init(Main main) {
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new Metrics());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        String labelsText = getLabelsText(labels);
+        Object series = getFamily(name, help, Type.COUNTER).series.computeIfAbsent(labelsText, k -> new Counter());
+        if (!(series instanceof Counter)) {
+            throw new IllegalArgumentException(
+                    "Metric " + name + labelsText + " is already registered with a value supplier");
+        }
+        return (Counter) series;
+    }
+
+    // for values that are already counted elsewhere. The value is read every time the metrics are scraped.
+    // Registering it again with the same name and labels replaces the older supplier, like for gauges.
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        String labelsText = getLabelsText(labels);
+        getFamily(name, help, Type.COUNTER).series.compute(labelsText, (k, existing) -> {
+            if (existing instanceof Counter) {
+                throw new IllegalArgumentException(
+                        "Metric " + name + labelsText + " is already registered as a counter that is incremented");
+            }
+            return value;
+        });
+    }
+
+    public Timer timer(String name, String help, String... labels) {
+        return (Timer) getFamily(name, help, Type.SUMMARY).series
+                .computeIfAbsent(getLabelsText(labels), k -> new Timer());
+    }
+
+    // the value is read every time the metrics are scraped. Registering a gauge again with the same name and labels
+    // replaces the older one, so that resources which are recreated (like the webserver in tests) report their
+    // latest instance.
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        getFamily(name, help, Type.GAUGE).series.put(getLabelsText(labels), value);
+    }
+
+    public String getPrometheusText() {
+        StringBuilder result = new StringBuilder();
+        for (Family family : new TreeMap<>(this.families).values()) {
+            result.append("# HELP ").append(family.name).append(" ").append(escape(family.help, false))
+                    .append("\n");
+            result.append("# TYPE ").append(family.name).append(" ").append(family.type.text).append("\n");
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series).entrySet()) {
+                String labels = series.getKey();
+                if (series.getValue() instanceof Counter) {
+                    appendSample(result, family.name, labels, ((Counter) series.getValue()).get());
+                } else if (family.type == Type.SUMMARY) {
+                    Timer timer = (Timer) series.getValue();
+                    appendSample(result, family.name + "_count", labels, timer.getCount());
+                    appendSample(result, family.name + "_sum", labels, timer.getTotalNanos() / 1_000_000_000.0);
+                } else {
+                    double value;
+                    try {
+                        if (series.getValue() instanceof LongSupplier) {
+                            value = ((LongSupplier) series.getValue()).getAsLong();
+                        } else {
+                            value = ((DoubleSupplier) series.getValue()).getAsDouble();
+                        }
+                    } catch (RuntimeException e) {
+                        // the resource behind this gauge is not available right now (for example, it is being
+                        // reloaded). We skip it instead of failing the whole scrape.
+                        continue;
+                    }
+                    appendSample(result, family.name, labels, value);
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private Family getFamily(String name, String help, Type type) {
+        Family family = this.families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(
+                    "Metric " + name + " is already registered as a " + family.type.text);
+        }
+        return family;
+    }
+
+    private static void appendSample(StringBuilder result, String name, String labels, double value) {
+        result.append(name).append(labels).append(" ");
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            result.append((long) value);
+        } else {
+            result.append(value);
+        }
+        result.append("\n");
+    }
+
+    private static String getLabelsText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be passed as name, value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append(labels[i]).append("=\"").append(escape(labels[i + 1], true)).append("\"");
+        }
+        return result.append("}").toString();
+    }
+
+    private static String escape(String text, boolean isLabelValue) {
+        if (text == null) {
+            return "";
+        }
+        text = text.replace("\\", "\\\\").replace("\n", "\\n");
+        if (isLabelValue) {
+            text = text.replace("\"", "\\\"");
+        }
+        return text;
+    }
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void inc() {
+            this.value.increment();
+        }
+
+        public void add(long amount) {
+            this.value.add(amount);
+        }
+
+        public long get() {
+            return this.value.sum();
+        }
+    }
+
+    public static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Timer() {
+        }
+
+        public void record(long durationNanos) {
+            this.count.increment();
+            this.totalNanos.add(durationNanos);
+        }
+
+        // records the time since startNanos, which should have been read using System.nanoTime()
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+    }
+
+    private enum Type {
+        COUNTER("counter"), SUMMARY("summary"), GAUGE("gauge");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package io.supertokens.multitenancy;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.authRecipe.AuthRecipe;
@@ -346,6 +347,8 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // but not from the main table.
         }
         boolean didExist = StorageLayer.getMultitenancyStorage(main).deleteAppInfoInBaseStorage(appIdentifier);
+        // the last active times of the users of this app that were not written yet must not be written anymore
+        ActiveUsersBuffer.getInstance(main).removeApp(appIdentifier);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
     }
@@ -383,6 +386,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
         }
         boolean didExist = StorageLayer.getMultitenancyStorage(main)
                 .deleteConnectionUriDomainInfoInBaseStorage(connectionUriDomain);
+        ActiveUsersBuffer.getInstance(main).removeApp(new AppIdentifier(connectionUriDomain, null));
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
     }
@@ -547,13 +551,8 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
         // we do not refresh the tenant list here cause this function is called
         // often from all the APIs and anyway, we have a cronjob that refreshes this list
         // regularly.
-        TenantConfig[] tenants = MultitenancyHelper.getInstance(main).getAllTenants();
-        for (TenantConfig t : tenants) {
-            if (t.tenantIdentifier.equals(tenantIdentifier)) {
-                return t;
-            }
-        }
-        return null;
+        // The returned config is not a copy, so callers must create a new TenantConfig instead of modifying it.
+        return MultitenancyHelper.getInstance(main).getTenantConfig(tenantIdentifier);
     }
 
     public static TenantConfig[] getAllTenantsForApp(AppIdentifier appIdentifier, Main main) {
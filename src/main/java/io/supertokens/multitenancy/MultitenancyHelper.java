@@ -25,6 +25,7 @@ import io.supertokens.cronjobs.Cronjobs;
 import io.supertokens.featureflag.FeatureFlag;
 import io.supertokens.featureflag.exceptions.FeatureNotEnabledException;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.multitenancy.exception.CannotModifyBaseConfigException;
 import io.supertokens.output.Logging;
@@ -51,6 +52,10 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
     private Main main;
     private TenantConfig[] tenantConfigs;
 
+    // index of tenantConfigs that is replaced (never modified) whenever tenantConfigs changes, so that looking up
+    // one tenant does not need the resource distributor lock or a copy of all the tenants.
+    private volatile Map<TenantIdentifier, TenantConfig> tenantConfigsMap = Collections.emptyMap();
+
     // when the core has `supertokens_saas_load_only_cud` set, the tenantConfigs array will be filtered
     // based on the config value. However, we need to keep all the list of CUDs from the db to be able
     // to check if the CUD is present in the DB or not, while processing the requests.
@@ -59,7 +64,7 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
     private MultitenancyHelper(Main main) throws StorageQueryException {
         this.main = main;
         TenantConfig[] allTenantsFromDb = getAllTenantsFromDb();
-        this.tenantConfigs = this.getFilteredTenantConfigs(allTenantsFromDb);
+        this.setTenantConfigs(this.getFilteredTenantConfigs(allTenantsFromDb));
         this.dangerous_allCUDsFromDb.clear();
 
         for (TenantConfig config : allTenantsFromDb) {
@@ -115,6 +120,7 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
 
     public List<TenantIdentifier> refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(
             boolean reloadAllResources) {
+        long startTime = System.nanoTime();
         try {
             return main.getResourceDistributor().withResourceDistributorLock(() -> {
                 try {
@@ -148,13 +154,16 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
                     for (TenantConfig tenant : tenantsFromDb) {
                         this.dangerous_allCUDsFromDb.add(tenant.tenantIdentifier.getConnectionUriDomain());
                     }
-                    this.tenantConfigs = filteredTenantsFromDb;
+                    this.setTenantConfigs(filteredTenantsFromDb);
                     if (tenantsThatChanged.size() == 0 && sameNumberOfTenants) {
                         return tenantsThatChanged;
                     }
 
                     ProcessState.getInstance(main)
                             .addState(ProcessState.PROCESS_STATE.TENANTS_CHANGED_DURING_REFRESH_FROM_DB, null);
+                    Metrics.getInstance(main).counter("supertokens_tenant_refresh_changed_tenants_total",
+                            "Number of tenants whose config was found to have changed when refreshing from the db")
+                            .add(tenantsThatChanged.size());
 
                     // this order is important. For example, storageLayer depends on config, and cronjobs depends on
                     // storageLayer
@@ -174,6 +183,10 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
             });
         } catch (ResourceDistributor.FuncException e) {
             throw new IllegalStateException(e);
+        } finally {
+            Metrics.getInstance(main).timer("supertokens_tenant_refresh_duration_seconds",
+                    "Time taken to refresh the tenants from the db, including reloading the resources of any " +
+                            "tenants that changed").recordSince(startTime);
         }
     }
 
@@ -256,6 +269,25 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
         }
     }
 
+    // the returned TenantConfig is shared with all other callers, so it must not be modified
+    public TenantConfig getTenantConfig(TenantIdentifier tenantIdentifier) {
+        if (tenantIdentifier.getClass() != TenantIdentifier.class) {
+            // so that subclasses like TenantIdentifierWithStorage are compared only on the tenant
+            tenantIdentifier = new TenantIdentifier(tenantIdentifier.getConnectionUriDomain(),
+                    tenantIdentifier.getAppId(), tenantIdentifier.getTenantId());
+        }
+        return this.tenantConfigsMap.get(tenantIdentifier);
+    }
+
+    private void setTenantConfigs(TenantConfig[] tenantConfigs) {
+        Map<TenantIdentifier, TenantConfig> tenantConfigsMap = new HashMap<>();
+        for (TenantConfig tenantConfig : tenantConfigs) {
+            tenantConfigsMap.put(tenantConfig.tenantIdentifier, tenantConfig);
+        }
+        this.tenantConfigs = tenantConfigs;
+        this.tenantConfigsMap = Collections.unmodifiableMap(tenantConfigsMap);
+    }
+
     private TenantConfig[] getFilteredTenantConfigs(TenantConfig[] inputTenantConfigs) {
         String loadOnlyCUD = Config.getBaseConfig(main).getSuperTokensLoadOnlyCUD();
 
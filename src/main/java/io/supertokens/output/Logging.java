@@ -16,14 +16,17 @@
 
 package io.supertokens.output;
 
+import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.FileAppender;
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
 import io.supertokens.pluginInterface.LOG_LEVEL;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
@@ -33,12 +36,19 @@ import io.supertokens.utils.Utils;
 import io.supertokens.webserver.Webserver;
 import org.slf4j.LoggerFactory;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
 public class Logging extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_ID = "io.supertokens.output.Logging";
     private final Logger infoLogger;
     private final Logger errorLogger;
 
+    // log_level can only be set in config.yaml, so it does not change while the core is running
+    private final Set<LOG_LEVEL> logLevels;
+
     public static final String ANSI_RESET = "\u001B[0m";
     public static final String ANSI_BLACK = "\u001B[30m";
     public static final String ANSI_RED = "\u001B[31m";
@@ -50,6 +60,8 @@ public class Logging extends ResourceDistributor.SingletonResource {
     public static final String ANSI_WHITE = "\u001B[37m";
 
     private Logging(Main main) {
+        this.logLevels = EnumSet.noneOf(LOG_LEVEL.class);
+        this.logLevels.addAll(Config.getBaseConfig(main).getLogLevels(main));
         this.infoLogger = Config.getBaseConfig(main).getInfoLogPath(main).equals("null")
                 ? createLoggerForConsole(main, "io.supertokens.Info", LOG_LEVEL.INFO)
                 : createLoggerForFile(main, Config.getBaseConfig(main).getInfoLogPath(main),
@@ -100,15 +112,42 @@ public class Logging extends ResourceDistributor.SingletonResource {
                 msg;
     }
 
+    private static boolean isLogLevelEnabled(Main main, Logging logging, LOG_LEVEL logLevel) {
+        if (logging != null) {
+            return logging.logLevels.contains(logLevel);
+        }
+        return Config.getBaseConfig(main).getLogLevels(main).contains(logLevel);
+    }
+
+    // the loggers print the caller of the function that calls them, so each public function below must call the
+    // logger itself, and not via another function in this class.
+
     public static void debug(Main main, TenantIdentifier tenantIdentifier, String msg) {
-        if (!Config.getBaseConfig(main).getLogLevels(main).contains(LOG_LEVEL.DEBUG)) {
+        Logging logging = getInstance(main);
+        if (!isLogLevelEnabled(main, logging, LOG_LEVEL.DEBUG)) {
             return;
         }
         try {
             msg = msg.trim();
             msg = prependTenantIdentifierToMessage(tenantIdentifier, msg);
-            if (getInstance(main) != null) {
-                getInstance(main).infoLogger.debug(msg);
+            if (logging != null) {
+                logging.infoLogger.debug(msg);
+            }
+        } catch (NullPointerException e) {
+            // sometimes logger.debug throws a null pointer exception...
+        }
+    }
+
+    // msg is only built if debug logs are enabled
+    public static void debug(Main main, TenantIdentifier tenantIdentifier, Supplier<String> msg) {
+        Logging logging = getInstance(main);
+        if (!isLogLevelEnabled(main, logging, LOG_LEVEL.DEBUG)) {
+            return;
+        }
+        try {
+            String message = prependTenantIdentifierToMessage(tenantIdentifier, msg.get().trim());
+            if (logging != null) {
+                logging.infoLogger.debug(message);
             }
         } catch (NullPointerException e) {
             // sometimes logger.debug throws a null pointer exception...
@@ -116,35 +155,57 @@ public class Logging extends ResourceDistributor.SingletonResource {
     }
 
     public static void info(Main main, TenantIdentifier tenantIdentifier, String msg, boolean toConsoleAsWell) {
-        if (!Config.getBaseConfig(main).getLogLevels(main).contains(LOG_LEVEL.INFO)) {
+        Logging logging = getInstance(main);
+        if (!isLogLevelEnabled(main, logging, LOG_LEVEL.INFO)) {
             return;
         }
         try {
-            msg = msg.trim();
-            if (toConsoleAsWell) {
-                if (tenantIdentifier.equals(TenantIdentifier.BASE_TENANT)) {
-                    systemOut(msg);
-                } else {
-                    systemOut(prependTenantIdentifierToMessage(tenantIdentifier, msg));
-                }
+            msg = prepareInfoMessage(tenantIdentifier, msg, toConsoleAsWell);
+            if (logging != null) {
+                logging.infoLogger.info(msg);
             }
-            msg = prependTenantIdentifierToMessage(tenantIdentifier, msg);
-            if (getInstance(main) != null) {
-                getInstance(main).infoLogger.info(msg);
+        } catch (NullPointerException ignored) {
+        }
+    }
+
+    // msg is only built if info logs are enabled
+    public static void info(Main main, TenantIdentifier tenantIdentifier, Supplier<String> msg,
+                            boolean toConsoleAsWell) {
+        Logging logging = getInstance(main);
+        if (!isLogLevelEnabled(main, logging, LOG_LEVEL.INFO)) {
+            return;
+        }
+        try {
+            String message = prepareInfoMessage(tenantIdentifier, msg.get(), toConsoleAsWell);
+            if (logging != null) {
+                logging.infoLogger.info(message);
             }
         } catch (NullPointerException ignored) {
         }
     }
 
+    private static String prepareInfoMessage(TenantIdentifier tenantIdentifier, String msg, boolean toConsoleAsWell) {
+        msg = msg.trim();
+        if (toConsoleAsWell) {
+            if (tenantIdentifier.equals(TenantIdentifier.BASE_TENANT)) {
+                systemOut(msg);
+            } else {
+                systemOut(prependTenantIdentifierToMessage(tenantIdentifier, msg));
+            }
+        }
+        return prependTenantIdentifierToMessage(tenantIdentifier, msg);
+    }
+
     public static void warn(Main main, TenantIdentifier tenantIdentifier, String msg) {
-        if (!Config.getBaseConfig(main).getLogLevels(main).contains(LOG_LEVEL.WARN)) {
+        Logging logging = getInstance(main);
+        if (!isLogLevelEnabled(main, logging, LOG_LEVEL.WARN)) {
             return;
         }
         try {
             msg = msg.trim();
             msg = prependTenantIdentifierToMessage(tenantIdentifier, msg);
-            if (getInstance(main) != null) {
-                getInstance(main).errorLogger.warn(msg);
+            if (logging != null) {
+                logging.errorLogger.warn(msg);
             }
         } catch (NullPointerException ignored) {
         }
@@ -244,7 +305,7 @@ public class Logging extends ResourceDistributor.SingletonResource {
         fileAppender.start();
 
         Logger logger = (Logger) LoggerFactory.getLogger(name);
-        logger.addAppender(fileAppender);
+        logger.addAppender(wrapInAsyncAppenderIfNeeded(main, lc, fileAppender));
         logger.setAdditive(false); /* set to true if root should log too */
 
         return logger;
@@ -262,9 +323,32 @@ public class Logging extends ResourceDistributor.SingletonResource {
         logConsoleAppender.start();
 
         Logger logger = (Logger) LoggerFactory.getLogger(name);
-        logger.addAppender(logConsoleAppender);
+        logger.addAppender(wrapInAsyncAppenderIfNeeded(main, lc, logConsoleAppender));
         logger.setAdditive(false); /* set to true if root should log too */
 
         return logger;
     }
+
+    // if async_logging_queue_size is set, log events are put in a bounded queue and written by a background thread
+    // instead of the thread that logs them.
+    private Appender<ILoggingEvent> wrapInAsyncAppenderIfNeeded(Main main, LoggerContext lc,
+                                                                Appender<ILoggingEvent> appender) {
+        CoreConfig config = Config.getBaseConfig(main);
+        if (config.getAsyncLoggingQueueSize() <= 0) {
+            return appender;
+        }
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(lc);
+        asyncAppender.setName(appender.getClass().getSimpleName() + "-async");
+        asyncAppender.setQueueSize(config.getAsyncLoggingQueueSize());
+        // by default, logback starts dropping info and debug logs once the queue is 80% full. We only drop logs
+        // if the user has asked for that, and then we drop them regardless of their level.
+        asyncAppender.setDiscardingThreshold(0);
+        asyncAppender.setNeverBlock(config.getAsyncLoggingNeverBlock());
+        // CustomLayout prints the caller, which can only be found on the logging thread
+        asyncAppender.setIncludeCallerData(true);
+        asyncAppender.addAppender(appender);
+        asyncAppender.start();
+        return asyncAppender;
+    }
 }
@@ -216,7 +216,7 @@ public class Session {
                 accessToken.sessionHandle);
         JsonObject newJWTUserPayload = userDataInJWT == null ? sessionInfo.userDataInJWT
                 : userDataInJWT;
-        updateSession(tenantIdentifierWithStorage, accessToken.sessionHandle, null, newJWTUserPayload,
+        updateSession(main, tenantIdentifierWithStorage, accessToken.sessionHandle, null, newJWTUserPayload,
                 accessToken.version);
 
         // if the above succeeds but the below fails, it's OK since the client will get server error and will try
@@ -264,7 +264,7 @@ public class Session {
                 accessToken.sessionHandle);
         JsonObject newJWTUserPayload = userDataInJWT == null ? sessionInfo.userDataInJWT
                 : userDataInJWT;
-        updateSessionBeforeCDI2_21(
+        updateSessionBeforeCDI2_21(main,
                 tenantIdentifierWithStorage,
                 accessToken.sessionHandle, null, newJWTUserPayload);
 
@@ -328,17 +328,30 @@ public class Session {
             throw new TryRefreshTokenException("anti-csrf check failed");
         }
 
-        io.supertokens.pluginInterface.session.SessionInfo sessionInfoForBlacklisting = null;
+        boolean JWTPayloadNeedsUpdating = false;
         if (checkDatabase) {
-            sessionInfoForBlacklisting = tenantIdentifierWithStorage.getSessionStorage()
-                    .getSession(tenantIdentifierWithStorage, accessToken.sessionHandle);
-            if (sessionInfoForBlacklisting == null) {
+            SessionBlacklistingCache blacklistingCache = SessionBlacklistingCache.getInstance(main);
+            if (blacklistingCache.isRevoked(accessToken.tenantIdentifier, accessToken.sessionHandle)) {
                 throw new UnauthorisedException("Either the session has ended or has been blacklisted");
             }
-        }
 
-        boolean JWTPayloadNeedsUpdating = sessionInfoForBlacklisting != null
-                && !accessToken.userData.equals(sessionInfoForBlacklisting.userDataInJWT);
+            Integer userDataInJWTHash = blacklistingCache.getUserDataInJWTHash(accessToken.tenantIdentifier,
+                    accessToken.sessionHandle);
+            if (userDataInJWTHash != null) {
+                // if the hash does not match, we read the session from the db below anyway
+                JWTPayloadNeedsUpdating = accessToken.userData.hashCode() != userDataInJWTHash;
+            } else {
+                io.supertokens.pluginInterface.session.SessionInfo sessionInfoForBlacklisting =
+                        tenantIdentifierWithStorage.getSessionStorage()
+                                .getSession(tenantIdentifierWithStorage, accessToken.sessionHandle);
+                if (sessionInfoForBlacklisting == null) {
+                    throw new UnauthorisedException("Either the session has ended or has been blacklisted");
+                }
+                blacklistingCache.setAlive(accessToken.tenantIdentifier, accessToken.sessionHandle,
+                        sessionInfoForBlacklisting.userDataInJWT, sessionInfoForBlacklisting.expiry);
+                JWTPayloadNeedsUpdating = !accessToken.userData.equals(sessionInfoForBlacklisting.userDataInJWT);
+            }
+        }
         if (accessToken.parentRefreshTokenHash1 == null && !JWTPayloadNeedsUpdating) {
             // this means that the refresh token associated with this access token is
             // already the parent - and JWT payload doesn't need to be updated.
@@ -758,6 +771,7 @@ public class Session {
 
             String[] sessionHandlesRevokedForTenant = revokeSessionUsingSessionHandles(tenantIdentifierWithStorage,
                     sessionHandlesForTenant);
+            SessionBlacklistingCache.getInstance(main).revoke(tenantIdentifier, sessionHandlesForTenant);
             revokedSessionHandles.addAll(Arrays.asList(sessionHandlesRevokedForTenant));
         }
 
@@ -977,11 +991,11 @@ public class Session {
                                      AccessToken.VERSION version)
             throws StorageQueryException, UnauthorisedException, AccessTokenPayloadError {
         Storage storage = StorageLayer.getStorage(main);
-        updateSession(new TenantIdentifierWithStorage(null, null, null, storage),
+        updateSession(main, new TenantIdentifierWithStorage(null, null, null, storage),
                 sessionHandle, sessionData, jwtData, version);
     }
 
-    public static void updateSession(TenantIdentifierWithStorage tenantIdentifierWithStorage,
+    public static void updateSession(Main main, TenantIdentifierWithStorage tenantIdentifierWithStorage,
                                      String sessionHandle, @Nullable JsonObject sessionData,
                                      @Nullable JsonObject jwtData, AccessToken.VERSION version)
             throws StorageQueryException, UnauthorisedException, AccessTokenPayloadError {
@@ -999,13 +1013,16 @@ public class Session {
 
         int numberOfRowsAffected = tenantIdentifierWithStorage.getSessionStorage()
                 .updateSession(tenantIdentifierWithStorage, sessionHandle, sessionData, jwtData);
+        if (jwtData != null) {
+            SessionBlacklistingCache.getInstance(main).invalidate(tenantIdentifierWithStorage, sessionHandle);
+        }
         if (numberOfRowsAffected != 1) {
             throw new UnauthorisedException("Session does not exist.");
         }
     }
 
     @Deprecated
-    public static void updateSessionBeforeCDI2_21(TenantIdentifierWithStorage tenantIdentifierWithStorage,
+    public static void updateSessionBeforeCDI2_21(Main main, TenantIdentifierWithStorage tenantIdentifierWithStorage,
                                                   String sessionHandle, @Nullable JsonObject sessionData,
                                                   @Nullable JsonObject jwtData)
             throws StorageQueryException, UnauthorisedException {
@@ -1020,6 +1037,9 @@ public class Session {
         int numberOfRowsAffected = tenantIdentifierWithStorage.getSessionStorage()
                 .updateSession(tenantIdentifierWithStorage, sessionHandle, sessionData,
                         jwtData);
+        if (jwtData != null) {
+            SessionBlacklistingCache.getInstance(main).invalidate(tenantIdentifierWithStorage, sessionHandle);
+        }
         if (numberOfRowsAffected != 1) {
             throw new UnauthorisedException("Session does not exist.");
         }
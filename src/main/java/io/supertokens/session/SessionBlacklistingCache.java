@@ -0,0 +1,190 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// This is used by getSession with checkDatabase = true to avoid querying the db on every call. It remembers sessions
+// that were recently found in the db (along with a hash of their JWT payload) and sessions that were revoked via
+// this core. Revocations done via this core take effect immediately, whereas revocations done elsewhere (another core
+// instance, deleting a user or tenant, or directly in the db) are noticed within the configured staleness window.
+public class SessionBlacklistingCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.session.SessionBlacklistingCache";
+
+    // once we go over these limits, we drop the entries in the map. Both maps only exist to save db queries, so
+    // dropping entries just means that the next getSession for those sessions goes to the db.
+    static final int MAX_ALIVE_SESSIONS = 100000;
+    static final int MAX_REVOKED_SESSIONS = 10000;
+
+    private final long stalenessMS;
+
+    // value is the hash of userDataInJWT and the time till which we can trust that the session exists
+    private final Map<SessionKey, AliveSession> aliveSessions = new ConcurrentHashMap<>();
+
+    private final Set<SessionKey> revokedSessions = ConcurrentHashMap.newKeySet();
+
+    private SessionBlacklistingCache(Main main) {
+        this.stalenessMS = Config.getBaseConfig(main).getAccessTokenBlacklistingCacheStaleness();
+    }
+
+    public static SessionBlacklistingCache getInstance(Main main) {
+        try {
+            return (SessionBlacklistingCache) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void init(Main main) {
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
+                        new SessionBlacklistingCache(main));
+    }
+
+    public boolean isEnabled() {
+        return stalenessMS > 0;
+    }
+
+    public boolean isRevoked(TenantIdentifier tenantIdentifier, String sessionHandle) {
+        if (!isEnabled()) {
+            return false;
+        }
+        return revokedSessions.contains(new SessionKey(tenantIdentifier, sessionHandle));
+    }
+
+    // returns null if we do not know (for long enough) that the session exists
+    public Integer getUserDataInJWTHash(TenantIdentifier tenantIdentifier, String sessionHandle) {
+        if (!isEnabled()) {
+            return null;
+        }
+        AliveSession aliveSession = aliveSessions.get(new SessionKey(tenantIdentifier, sessionHandle));
+        if (aliveSession == null) {
+            return null;
+        }
+        if (aliveSession.trustedTill < System.currentTimeMillis()) {
+            return null;
+        }
+        return aliveSession.userDataInJWTHash;
+    }
+
+    public void setAlive(TenantIdentifier tenantIdentifier, String sessionHandle, JsonObject userDataInJWT,
+                         long sessionExpiry) {
+        if (!isEnabled()) {
+            return;
+        }
+        SessionKey key = new SessionKey(tenantIdentifier, sessionHandle);
+        if (aliveSessions.size() >= MAX_ALIVE_SESSIONS) {
+            aliveSessions.clear();
+        }
+        aliveSessions.put(key, new AliveSession(userDataInJWT.hashCode(),
+                Math.min(System.currentTimeMillis() + stalenessMS, sessionExpiry)));
+
+        // the session might have been revoked after we read it from the db, but before we added it above. In that
+        // case, revoke() has either already added it to revokedSessions, or will remove it from aliveSessions after
+        // this.
+        if (revokedSessions.contains(key)) {
+            aliveSessions.remove(key);
+        }
+    }
+
+    // called when the session's JWT payload changes, so that the next getSession reads it from the db
+    public void invalidate(TenantIdentifier tenantIdentifier, String sessionHandle) {
+        if (!isEnabled()) {
+            return;
+        }
+        aliveSessions.remove(new SessionKey(tenantIdentifier, sessionHandle));
+    }
+
+    public void revoke(TenantIdentifier tenantIdentifier, String[] sessionHandles) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (String sessionHandle : sessionHandles) {
+            SessionKey key = new SessionKey(tenantIdentifier, sessionHandle);
+            revokedSessions.add(key);
+            aliveSessions.remove(key);
+            // we check the size after adding, so that concurrent calls, or a call with more handles than the limit,
+            // cannot leave more than MAX_REVOKED_SESSIONS entries in the set
+            if (revokedSessions.size() > MAX_REVOKED_SESSIONS) {
+                revokedSessions.clear();
+            }
+        }
+    }
+
+    @TestOnly
+    public int getNumberOfAliveSessions() {
+        return aliveSessions.size();
+    }
+
+    @TestOnly
+    public int getNumberOfRevokedSessions() {
+        return revokedSessions.size();
+    }
+
+    private static class AliveSession {
+        final int userDataInJWTHash;
+        final long trustedTill;
+
+        AliveSession(int userDataInJWTHash, long trustedTill) {
+            this.userDataInJWTHash = userDataInJWTHash;
+            this.trustedTill = trustedTill;
+        }
+    }
+
+    private static class SessionKey {
+        // we keep the strings instead of the TenantIdentifier, since callers may pass in a TenantIdentifierWithStorage
+        final String connectionUriDomain;
+        final String appId;
+        final String tenantId;
+        final String sessionHandle;
+
+        SessionKey(TenantIdentifier tenantIdentifier, String sessionHandle) {
+            this.connectionUriDomain = tenantIdentifier.getConnectionUriDomain();
+            this.appId = tenantIdentifier.getAppId();
+            this.tenantId = tenantIdentifier.getTenantId();
+            this.sessionHandle = sessionHandle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SessionKey)) return false;
+            SessionKey other = (SessionKey) o;
+            return sessionHandle.equals(other.sessionHandle) && Objects.equals(tenantId, other.tenantId) &&
+                    Objects.equals(appId, other.appId) &&
+                    Objects.equals(connectionUriDomain, other.connectionUriDomain);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(connectionUriDomain, appId, tenantId, sessionHandle);
+        }
+    }
+}
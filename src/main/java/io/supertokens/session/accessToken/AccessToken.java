@@ -63,7 +63,8 @@ public class AccessToken {
                                                           boolean doAntiCsrfCheck)
             throws StorageQueryException, StorageTransactionLogicException, TryRefreshTokenException,
             TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
-        List<JWTSigningKeyInfo> keyInfoList = SigningKeys.getInstance(appIdentifier, main).getAllKeys();
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
+        List<JWTSigningKeyInfo> keyInfoList = signingKeys.getAllKeys();
         Exception error = null;
         JWT.JWTInfo jwtInfo = null;
         JWT.JWTPreParseInfo preParseJWTInfo = null;
@@ -77,18 +78,19 @@ public class AccessToken {
         if (preParseJWTInfo.version != VERSION.V1 && preParseJWTInfo.version != VERSION.V2) {
             String kid = preParseJWTInfo.kid;
 
-            JWTSigningKeyInfo keyInfo = SigningKeys.getInstance(appIdentifier, main).getSigningKeyById(kid);
+            JWTSigningKeyInfo keyInfo = signingKeys.getSigningKeyById(kid);
 
             if (keyInfo == null) {
                 error = new TryRefreshTokenException("Key not found");
             } else {
                 try {
                     jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo,
-                            ((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey);
+                            signingKeys.getPublicKey(((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey,
+                                    JWTSigningKey.SupportedAlgorithms.RS256));
                 } catch (NoSuchAlgorithmException e) {
                     // This basically should never happen, but it means, that can't verify any tokens, no need to retry
                     throw new TryRefreshTokenException(e);
-                } catch (JWTException e) {
+                } catch (JWTException | InvalidKeySpecException e) {
                     // This basically should never happen, but it means, that the token structure is wrong, can't verify
                     throw new TryRefreshTokenException(e);
                 } catch (InvalidKeyException e) {
@@ -100,13 +102,14 @@ public class AccessToken {
             for (JWTSigningKeyInfo keyInfo : keyInfoList) {
                 try {
                     jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo,
-                            ((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey);
+                            signingKeys.getPublicKey(((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey,
+                                    JWTSigningKey.SupportedAlgorithms.RS256));
                     error = null;
                     break;
                 } catch (NoSuchAlgorithmException e) {
                     // This basically should never happen, but it means, that can't verify any tokens, no need to retry
                     throw new TryRefreshTokenException(e);
-                } catch (KeyException | JWTException e) {
+                } catch (KeyException | JWTException | InvalidKeySpecException e) {
                     /*
                      * There are a couple of reasons the verification could fail:
                      * 1) The access token is "corrupted" - this is a rare scenario since it probably means
@@ -141,7 +144,7 @@ public class AccessToken {
                 ProcessState.getInstance(main).addState(PROCESS_STATE.RETRYING_ACCESS_TOKEN_JWT_VERIFICATION, error);
 
                 // remove key from memory and retry
-                SigningKeys.getInstance(appIdentifier, main).updateKeyCacheIfNotChanged(keyInfoList);
+                signingKeys.updateKeyCacheIfNotChanged(keyInfoList);
                 return AccessToken.getInfoFromAccessToken(appIdentifier, main, token, false, doAntiCsrfCheck);
             }
             throw new TryRefreshTokenException(error);
@@ -242,24 +245,24 @@ public class AccessToken {
                 expires,
                 parentRefreshTokenHash1, userData, antiCsrfToken, now, version, tenantIdentifier);
 
+        SigningKeys signingKeys = SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main);
         JWTSigningKeyInfo keyToUse;
         if (useStaticKey) {
-            keyToUse = SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main)
-                    .getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
+            keyToUse = signingKeys.getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
         } else {
-            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(
-                    SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main).getLatestIssuedDynamicKey());
+            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(signingKeys.getLatestIssuedDynamicKey());
         }
 
         String token;
         if (version != VERSION.V1 && version != VERSION.V2) {
             HashMap<String, Object> headers = new HashMap<>();
             headers.put("version", getVersionStringFromAccessTokenVersion(version));
-            token = JWTSigningFunctions.createJWTToken(JWTSigningKey.SupportedAlgorithms.RS256, headers,
+            token = JWTSigningFunctions.createJWTToken(signingKeys, JWTSigningKey.SupportedAlgorithms.RS256, headers,
                     accessToken.toJSON(), null, expires, now, keyToUse);
         } else {
             signingKey = new Utils.PubPriKey(keyToUse.keyString);
-            token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(), signingKey.privateKey, version);
+            token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(),
+                    signingKeys.getPrivateKey(signingKey.privateKey, JWTSigningKey.SupportedAlgorithms.RS256), version);
         }
 
         return new TokenInfo(token, accessToken.expiryTime, accessToken.timeCreated);
@@ -292,8 +295,8 @@ public class AccessToken {
             NoSuchAlgorithmException, InvalidKeySpecException, SignatureException,
             TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException, AccessTokenPayloadError {
 
-        Utils.PubPriKey signingKey = new Utils.PubPriKey(
-                SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main).getLatestIssuedDynamicKey().value);
+        SigningKeys signingKeys = SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main);
+        Utils.PubPriKey signingKey = new Utils.PubPriKey(signingKeys.getLatestIssuedDynamicKey().value);
         long now = System.currentTimeMillis();
         AccessTokenInfo accessToken;
 
@@ -302,8 +305,8 @@ public class AccessToken {
                 parentRefreshTokenHash1,
                 userData, antiCsrfToken, now, VERSION.V1, tenantIdentifier);
 
-        String token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(), signingKey.privateKey,
-                VERSION.V1);
+        String token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(),
+                signingKeys.getPrivateKey(signingKey.privateKey, JWTSigningKey.SupportedAlgorithms.RS256), VERSION.V1);
         return new TokenInfo(token, accessToken.expiryTime, accessToken.timeCreated);
 
     }
@@ -21,12 +21,15 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.utils.Utils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 
@@ -54,6 +57,13 @@ public class JWT {
     public static String createAndSignLegacyAccessToken(JsonElement jsonObj, String privateSigningKey,
                                                         AccessToken.VERSION version)
             throws InvalidKeyException, NoSuchAlgorithmException, InvalidKeySpecException, SignatureException {
+        return createAndSignLegacyAccessToken(jsonObj,
+                Utils.getPrivateKeyFromString(privateSigningKey, JWTSigningKey.SupportedAlgorithms.RS256), version);
+    }
+
+    public static String createAndSignLegacyAccessToken(JsonElement jsonObj, PrivateKey privateSigningKey,
+                                                        AccessToken.VERSION version)
+            throws InvalidKeyException, NoSuchAlgorithmException, SignatureException {
         initHeader();
         String payload;
         String header;
@@ -122,13 +132,24 @@ public class JWT {
 
     public static JWTInfo verifyJWTAndGetPayload(JWTPreParseInfo jwt, String publicSigningKey)
             throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
+        PublicKey publicKey;
+        try {
+            publicKey = Utils.getPublicKeyFromString(publicSigningKey, JWTSigningKey.SupportedAlgorithms.RS256);
+        } catch (InvalidKeySpecException e) {
+            throw new JWTException("JWT verification failed");
+        }
+        return verifyJWTAndGetPayload(jwt, publicKey);
+    }
+
+    public static JWTInfo verifyJWTAndGetPayload(JWTPreParseInfo jwt, PublicKey publicSigningKey)
+            throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
 
         try {
             if (!Utils.verifyWithPublicKey(jwt.header + "." + jwt.payload, jwt.signature, publicSigningKey,
                     jwt.version != AccessToken.VERSION.V1 && jwt.version != AccessToken.VERSION.V2)) {
                 throw new JWTException("JWT verification failed");
             }
-        } catch (InvalidKeySpecException | SignatureException e) {
+        } catch (SignatureException e) {
             throw new JWTException("JWT verification failed");
         }
         return new JWTInfo(new JsonParser().parse(Utils.convertFromBase64(jwt.payload)).getAsJsonObject(), jwt.version);
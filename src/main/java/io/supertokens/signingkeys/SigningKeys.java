@@ -23,6 +23,7 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
@@ -35,13 +36,15 @@ import org.jetbrains.annotations.TestOnly;
 
 import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import static io.supertokens.utils.Utils.getPrivateKeyFromString;
 import static io.supertokens.utils.Utils.getPublicKeyFromString;
 
 public class SigningKeys extends ResourceDistributor.SingletonResource {
@@ -49,9 +52,20 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     private final Main main;
     private final AppIdentifier appIdentifier;
 
-    private List<KeyInfo> dynamicKeys;
-    private List<JWTSigningKeyInfo> staticKeys;
+    // This is replaced as a whole whenever the keys change, so readers always see a consistent set of keys and can
+    // look up a key by its id without taking a lock. It is null until the keys are first loaded.
+    private volatile KeyCache keyCache;
 
+    // Parsed versions of the keys in the key cache, keyed by their string form. Decoding and parsing a key is much more
+    // expensive than signing or verifying with it, so we only want to do that once per key. These are cleared
+    // whenever the key lists are reloaded, so that rotated out keys do not stay in memory.
+    private final Map<String, PublicKey> parsedPublicKeys = new ConcurrentHashMap<>();
+    private final Map<String, PrivateKey> parsedPrivateKeys = new ConcurrentHashMap<>();
+
+    // these are shared by the signing keys of all apps
+    private final Metrics.Counter parsedKeyHits;
+    private final Metrics.Counter parsedKeyMisses;
+    private final Metrics.Counter keyCacheReloads;
 
     public static SigningKeys getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
@@ -98,63 +112,125 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     private SigningKeys(AppIdentifier appIdentifier, Main main) {
         this.main = main;
         this.appIdentifier = appIdentifier;
+
+        Metrics metrics = Metrics.getInstance(main);
+        String parsedKeysHelp = "Number of times a signing key was needed in its parsed form, by whether it was cached";
+        this.parsedKeyHits = metrics.counter("supertokens_signing_keys_parsed_key_lookups_total", parsedKeysHelp,
+                "result", "hit");
+        this.parsedKeyMisses = metrics.counter("supertokens_signing_keys_parsed_key_lookups_total", parsedKeysHelp,
+                "result", "miss");
+        this.keyCacheReloads = metrics.counter("supertokens_signing_keys_reloads_total",
+                "Number of times the signing keys of an app were loaded from the db");
     }
 
     public JWTSigningKeyInfo getSigningKeyById(String kid)
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
-        return this.getAllKeys().stream()
-                .filter(jwtSigningKeyInfo -> Objects.equals(jwtSigningKeyInfo.keyId, kid)).findAny()
-                .orElse(null);
+        return getUpToDateKeyCache().keysById.get(kid);
     }
 
     public List<JWTSigningKeyInfo> getAllKeys()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
+        return getUpToDateKeyCache().allKeys;
+    }
 
-        return Stream.concat(
-                getDynamicKeys().stream().map(Utils::getJWTSigningKeyInfoFromKeyInfo),
-                getStaticKeys().stream()
-        ).collect(Collectors.toList());
+    public PublicKey getPublicKey(String publicKey, JWTSigningKey.SupportedAlgorithms algorithm)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        PublicKey parsedKey = this.parsedPublicKeys.get(publicKey);
+        if (parsedKey == null) {
+            this.parsedKeyMisses.inc();
+            parsedKey = getPublicKeyFromString(publicKey, algorithm);
+            this.parsedPublicKeys.put(publicKey, parsedKey);
+        } else {
+            this.parsedKeyHits.inc();
+        }
+        return parsedKey;
+    }
+
+    public PrivateKey getPrivateKey(String privateKey, JWTSigningKey.SupportedAlgorithms algorithm)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        PrivateKey parsedKey = this.parsedPrivateKeys.get(privateKey);
+        if (parsedKey == null) {
+            this.parsedKeyMisses.inc();
+            parsedKey = getPrivateKeyFromString(privateKey, algorithm);
+            this.parsedPrivateKeys.put(privateKey, parsedKey);
+        } else {
+            this.parsedKeyHits.inc();
+        }
+        return parsedKey;
     }
 
     public List<KeyInfo> getDynamicKeys()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
-        CoreConfig config = Config.getConfig(this.appIdentifier.getAsPublicTenantIdentifier(), main);
-
-        if (this.dynamicKeys == null) {
-            this.dynamicKeys = AccessTokenSigningKey.getInstance(this.appIdentifier, main)
-                    .getOrCreateAndGetSigningKeys();
-        }
+        return getUpToDateKeyCache().dynamicKeys;
+    }
 
-        // This filters the list down to keys that can be used to verify tokens
-        List<KeyInfo> res = this.dynamicKeys.stream().filter(k -> k.expiryTime >= System.currentTimeMillis())
-                .collect(Collectors.toList());
+    public List<JWTSigningKeyInfo> getStaticKeys()
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UnsupportedJWTSigningAlgorithmException {
+        return getKeyCache().staticKeys;
+    }
 
-        // if we don't have any available keys
-        if (res.size() == 0 ||
-                // or if we should generate a key we can use after dynamicSigningKeyOverlapMS
-                System.currentTimeMillis() +
-                        AccessTokenSigningKey.getInstance(appIdentifier, main).getDynamicSigningKeyOverlapMS() >
-                        res.get(0).createdAtTime + config.getAccessTokenDynamicSigningKeyUpdateInterval()
-        ) {
-            updateKeyCacheIfNotChanged(
-                    res.stream().map(Utils::getJWTSigningKeyInfoFromKeyInfo).collect(Collectors.toList()));
-            return getDynamicKeys();
+    private KeyCache getKeyCache()
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UnsupportedJWTSigningAlgorithmException {
+        KeyCache keyCache = this.keyCache;
+        if (keyCache == null) {
+            keyCache = loadKeyCache();
         }
+        return keyCache;
+    }
 
-        return res;
+    private synchronized KeyCache loadKeyCache()
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UnsupportedJWTSigningAlgorithmException {
+        if (this.keyCache == null) {
+            this.keyCacheReloads.inc();
+            this.keyCache = createKeyCache(
+                    AccessTokenSigningKey.getInstance(this.appIdentifier, main).getOrCreateAndGetSigningKeys(),
+                    JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys());
+        }
+        return this.keyCache;
     }
 
-    public List<JWTSigningKeyInfo> getStaticKeys()
+    // Returns a key cache that only contains unexpired dynamic keys, creating a new dynamic key if the latest one is
+    // due to be rotated. Until the next key expires or the next rotation is due, this is just a volatile read.
+    private KeyCache getUpToDateKeyCache()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
-        if (this.staticKeys == null) {
-            this.staticKeys = JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys();
+        KeyCache keyCache = getKeyCache();
+        if (System.currentTimeMillis() <= keyCache.validUntil) {
+            return keyCache;
         }
 
-        return this.staticKeys;
+        KeyCache filteredKeyCache = createKeyCache(keyCache.allDynamicKeys, keyCache.staticKeys);
+        // if we don't have any available keys or if we should generate a key we can use after
+        // dynamicSigningKeyOverlapMS
+        if (filteredKeyCache.dynamicKeys.size() == 0 || System.currentTimeMillis() > filteredKeyCache.rotateAfter) {
+            updateKeyCacheIfNotChanged(filteredKeyCache.dynamicKeys.stream().map(Utils::getJWTSigningKeyInfoFromKeyInfo)
+                    .collect(Collectors.toList()));
+            return getUpToDateKeyCache();
+        }
+
+        replaceKeyCache(keyCache, filteredKeyCache);
+        return filteredKeyCache;
+    }
+
+    private synchronized void replaceKeyCache(KeyCache oldKeyCache, KeyCache newKeyCache) {
+        // if the keys were reloaded in the meantime, the new key cache was built from outdated keys
+        if (this.keyCache == oldKeyCache) {
+            this.keyCache = newKeyCache;
+        }
+    }
+
+    private KeyCache createKeyCache(List<KeyInfo> dynamicKeys, List<JWTSigningKeyInfo> staticKeys)
+            throws TenantOrAppNotFoundException {
+        CoreConfig config = Config.getConfig(this.appIdentifier.getAsPublicTenantIdentifier(), main);
+        return new KeyCache(dynamicKeys, staticKeys, System.currentTimeMillis(),
+                config.getAccessTokenDynamicSigningKeyUpdateInterval() -
+                        AccessTokenSigningKey.getInstance(appIdentifier, main).getDynamicSigningKeyOverlapMS());
     }
 
     public JWTSigningKeyInfo getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms algorithm)
@@ -214,9 +290,13 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
         // writeLock - which is not possible:
         // https://docs.oracle.com/javase/7/docs/api/java/util/concurrent/locks/ReentrantReadWriteLock.html
 
-        if (this.dynamicKeys == null ||
+        KeyCache keyCache = this.keyCache;
+        List<KeyInfo> dynamicKeys = keyCache == null ? null : keyCache.allDynamicKeys;
+        List<JWTSigningKeyInfo> staticKeys = keyCache == null ? null : keyCache.staticKeys;
+
+        if (dynamicKeys == null ||
                 // First we disregard expired keys - it doesn't matter if they were known or not
-                this.dynamicKeys.stream().filter(k -> k.expiryTime >= System.currentTimeMillis())
+                dynamicKeys.stream().filter(k -> k.expiryTime >= System.currentTimeMillis())
                         // then check if all keys currently in the cache exists in the parameter
                         .allMatch(storedKey -> oldKeyInfo.stream()
                                 .anyMatch(oldKey -> Objects.equals(oldKey.keyId, storedKey.id)))) {
@@ -224,20 +304,31 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
             // key if necessary
             ProcessState.getInstance(this.main)
                     .addState(ProcessState.PROCESS_STATE.UPDATING_ACCESS_TOKEN_SIGNING_KEYS, null);
-            this.dynamicKeys = AccessTokenSigningKey.getInstance(appIdentifier, main).getOrCreateAndGetSigningKeys();
+            dynamicKeys = AccessTokenSigningKey.getInstance(appIdentifier, main).getOrCreateAndGetSigningKeys();
         }
 
-        if (this.staticKeys == null ||
+        if (staticKeys == null ||
                 // we want to refresh if all keys we are storing were known before
-                this.staticKeys.stream().allMatch(storedKey -> oldKeyInfo.stream()
+                staticKeys.stream().allMatch(storedKey -> oldKeyInfo.stream()
                         .anyMatch(oldKey -> Objects.equals(oldKey.keyId, storedKey.keyId)))) {
             // key has not changed since we previously tried to use it... So we update it from the db
             ProcessState.getInstance(this.main)
                     .addState(ProcessState.PROCESS_STATE.UPDATING_ACCESS_TOKEN_SIGNING_KEYS, null);
-            this.staticKeys = JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys();
+            staticKeys = JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys();
+        }
+
+        if (keyCache == null || dynamicKeys != keyCache.allDynamicKeys || staticKeys != keyCache.staticKeys) {
+            this.keyCacheReloads.inc();
+            this.keyCache = createKeyCache(dynamicKeys, staticKeys);
+            clearParsedKeys();
         }
     }
 
+    private void clearParsedKeys() {
+        this.parsedPublicKeys.clear();
+        this.parsedPrivateKeys.clear();
+    }
+
     /**
      * Used to return public keys that a JWT verifier will use. Note returns an empty array if there are no keys in
      * storage.
@@ -262,7 +353,7 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
                         .valueOf(currentKeyInfo.algorithm);
                 // TODO: In the future with more asymmetric algorithms [ES256 for example] we will need a provider
                 // system for the public key + JWK - Nemi
-                PublicKey publicKey = getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) currentKeyInfo).publicKey,
+                PublicKey publicKey = getPublicKey(((JWTAsymmetricSigningKeyInfo) currentKeyInfo).publicKey,
                         algorithm);
 
                 if (publicKey instanceof RSAPublicKey) {
@@ -290,6 +381,57 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
         return jwks;
     }
 
+    private static class KeyCache {
+        // all dynamic keys as they were loaded, including the ones that expired since
+        final List<KeyInfo> allDynamicKeys;
+        // dynamic keys that have not expired at the time this was created, latest first
+        final List<KeyInfo> dynamicKeys;
+        final List<JWTSigningKeyInfo> staticKeys;
+        final List<JWTSigningKeyInfo> allKeys;
+        final Map<String, JWTSigningKeyInfo> keysById;
+        // after this time a new dynamic key should be created
+        final long rotateAfter;
+        // after this time one of the dynamic keys has expired or rotateAfter has passed, so this has to be recreated
+        final long validUntil;
+
+        KeyCache(List<KeyInfo> allDynamicKeys, List<JWTSigningKeyInfo> staticKeys, long now,
+                 long rotationIntervalMinusOverlap) {
+            this.allDynamicKeys = allDynamicKeys;
+            this.staticKeys = staticKeys;
+
+            List<KeyInfo> dynamicKeys = new ArrayList<>();
+            long validUntil = Long.MAX_VALUE;
+            for (KeyInfo key : allDynamicKeys) {
+                if (key.expiryTime >= now) {
+                    dynamicKeys.add(key);
+                    validUntil = Math.min(validUntil, key.expiryTime);
+                }
+            }
+            this.dynamicKeys = Collections.unmodifiableList(dynamicKeys);
+
+            List<JWTSigningKeyInfo> allKeys = new ArrayList<>(dynamicKeys.size() + staticKeys.size());
+            for (KeyInfo key : dynamicKeys) {
+                allKeys.add(Utils.getJWTSigningKeyInfoFromKeyInfo(key));
+            }
+            allKeys.addAll(staticKeys);
+            this.allKeys = Collections.unmodifiableList(allKeys);
+
+            Map<String, JWTSigningKeyInfo> keysById = new HashMap<>();
+            for (JWTSigningKeyInfo key : allKeys) {
+                // the first key with a given id wins, same as a linear search over allKeys would
+                keysById.putIfAbsent(key.keyId, key);
+            }
+            this.keysById = Collections.unmodifiableMap(keysById);
+
+            if (dynamicKeys.size() == 0) {
+                this.rotateAfter = Long.MIN_VALUE;
+            } else {
+                this.rotateAfter = dynamicKeys.get(0).createdAtTime + rotationIntervalMinusOverlap;
+            }
+            this.validUntil = Math.min(validUntil, this.rotateAfter);
+        }
+    }
+
     public static class KeyInfo {
         public String id;
         public String value;
@@ -0,0 +1,33 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+
+import java.util.Map;
+
+// Implemented by storages that can update the last active time of many users of an app at once. This is used when
+// flushing the buffered last active updates (see ActiveUsersBuffer). The map is from user ID to the time at which the
+// user was last active. A time that is older than the one in the db must not overwrite it. The last active time of
+// users is not buffered for storages that do not implement this, and is written on every update instead.
+public interface BatchedActiveUsersStorage {
+
+    void updateLastActive(AppIdentifier appIdentifier, Map<String, Long> lastActiveTimes)
+            throws StorageQueryException;
+}
@@ -0,0 +1,44 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+
+// Implemented by storages that can delete expired rows in bounded batches, so that the cronjobs that clean up expired
+// rows do not run one huge DELETE query (see ExpirySweeper). Each function deletes at most limit rows, using the same
+// expiry condition as the function of the plugin interface that deletes all of them, and returns the number of rows
+// that it deleted. Storages that do not implement this are cleaned up with a single query, like before.
+public interface ChunkedExpiryStorage {
+
+    int deleteExpiredSessions(long currentTimeMillis, int limit) throws StorageQueryException;
+
+    int deleteExpiredPasswordResetTokens(long currentTimeMillis, int limit) throws StorageQueryException;
+
+    int deleteExpiredEmailVerificationTokens(long currentTimeMillis, int limit) throws StorageQueryException;
+
+    int deleteExpiredDashboardSessions(long currentTimeMillis, int limit) throws StorageQueryException;
+
+    int removeExpiredTotpCodes(TenantIdentifier tenantIdentifier, long expiredBefore, int limit)
+            throws StorageQueryException;
+
+    // deletes the passwordless devices of the tenant whose codes were all created before codesCreatedBefore, along
+    // with their codes
+    int deleteExpiredPasswordlessDevices(TenantIdentifier tenantIdentifier, long codesCreatedBefore, int limit)
+            throws StorageQueryException;
+}
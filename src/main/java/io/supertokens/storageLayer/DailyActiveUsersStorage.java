@@ -0,0 +1,39 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+
+// Implemented by storages that can count the active users of an app for many days in one query, instead of one count
+// query per day. Element i of the result is the same as the count that the ActiveUsersStorage function with the same
+// name (without "EachDay") returns for the time today - i days, where today is the start of the current day in
+// millis. Since a user only has one last active time, this is a running sum of the number of users whose last
+// active time falls in each day, which the storage can get by grouping the rows by day.
+public interface DailyActiveUsersStorage {
+
+    int[] countUsersActiveSinceEachDay(AppIdentifier appIdentifier, long today, int numberOfDays)
+            throws StorageQueryException;
+
+    int[] countUsersEnabledTotpAndActiveSinceEachDay(AppIdentifier appIdentifier, long today, int numberOfDays)
+            throws StorageQueryException;
+
+    int[] countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceEachDay(AppIdentifier appIdentifier, long today,
+                                                                        int numberOfDays)
+            throws StorageQueryException;
+}
@@ -0,0 +1,33 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+
+import java.util.List;
+
+// Implemented by storages that can find all the non auth recipes that use a user ID with one query, instead of one
+// isUserIdBeingUsedInNonAuthRecipe call per recipe. The result has the class names of the storages of those recipes
+// (the same ones that isUserIdBeingUsedInNonAuthRecipe takes), in the order session, user metadata, user roles, email
+// verification and TOTP.
+public interface NonAuthRecipeUsageStorage {
+
+    List<String> findNonAuthRecipesWhereForUserIdIsUsed(AppIdentifier appIdentifier, String userId)
+            throws StorageQueryException;
+}
@@ -43,10 +43,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class StorageLayer extends ResourceDistributor.SingletonResource {
 
     public static final String RESOURCE_KEY = "io.supertokens.storageLayer.StorageLayer";
+    private static final String APP_STORAGES_RESOURCE_KEY = "io.supertokens.storageLayer.StorageLayer.AppStorages";
     private final Storage storage;
     private static URLClassLoader ucl = null;
 
@@ -278,6 +280,9 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
                 Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
                         main.getResourceDistributor()
                                 .getAllResourcesWithResourceKey(RESOURCE_KEY);
+
+                main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null),
+                        APP_STORAGES_RESOURCE_KEY, new AppStorages(resources));
                 for (ResourceDistributor.SingletonResource resource : resources.values()) {
                     try {
                         ((StorageLayer) resource).storage.initStorage(false);
@@ -386,6 +391,21 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
     }
 
     public static Storage[] getStoragesForApp(Main main, AppIdentifier appIdentifier) {
+        try {
+            AppStorages appStorages = (AppStorages) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), APP_STORAGES_RESOURCE_KEY);
+            Storage[] storages = appStorages.storagesForApp.get(
+                    new AppIdentifier(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId()));
+            return storages == null ? new Storage[0] : storages.clone();
+        } catch (TenantOrAppNotFoundException e) {
+            // the tenant storages have not been loaded yet
+        }
+        return getStoragesForAppFromAllStorages(main, appIdentifier);
+    }
+
+    // goes through all the storage resources, so getStoragesForApp only uses this until the tenant storages are
+    // loaded. It is public so that tests can check the storages that getStoragesForApp returns against it.
+    public static Storage[] getStoragesForAppFromAllStorages(Main main, AppIdentifier appIdentifier) {
         Map<String, Storage> userPoolToStorage = new HashMap<>();
 
         Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
@@ -435,73 +455,106 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
     public static AppIdentifierWithStorageAndUserIdMapping getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
             Main main, AppIdentifier appIdentifier, Storage priorityStorage, String userId,
             UserIdType userIdType) throws StorageQueryException, TenantOrAppNotFoundException, UnknownUserIdException {
+        return getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(main, appIdentifier,
+                priorityStorage, getStoragesForApp(main, appIdentifier), userId, userIdType);
+    }
 
-        Storage[] storages = getStoragesForApp(main, appIdentifier);
-
+    // storages are the storages of the app. This is public so that tests can look for users in storages of their own.
+    public static AppIdentifierWithStorageAndUserIdMapping getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+            Main main, AppIdentifier appIdentifier, Storage priorityStorage, Storage[] storages, String userId,
+            UserIdType userIdType) throws StorageQueryException, TenantOrAppNotFoundException, UnknownUserIdException {
         if (storages.length == 0) {
             throw new TenantOrAppNotFoundException(appIdentifier);
         }
 
         // We look for userId in the priorityStorage first just in case multiple storages have the mapping, we
         // return the mapping from the storage of the tenant from which the request came from.
-        {
-            UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
-                    appIdentifier.withStorage(priorityStorage),
-                    userId, userIdType);
+        AppIdentifierWithStorageAndUserIdMapping result = findUserInStorage(appIdentifier, priorityStorage, userId,
+                userIdType);
+        if (result != null) {
+            return result;
+        }
 
-            if (mapping != null) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(priorityStorage);
-                return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, mapping);
+        List<Storage> otherStorages = new ArrayList<>();
+        for (Storage storage : storages) {
+            if (storage != priorityStorage) { // Already checked previously
+                otherStorages.add(storage);
             }
+        }
 
-            if (userIdType != UserIdType.EXTERNAL
-                    && ((AuthRecipeStorage) priorityStorage).doesUserIdExist(appIdentifier, userId)) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(priorityStorage);
-                return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, null);
+        UserLookupPool userLookupPool = UserLookupPool.getInstance(main);
+        if (otherStorages.size() > 1 && userLookupPool.isEnabled()) {
+            // the storages of an app are not in any particular order, so if more than one of them has the user, it
+            // does not matter which one we return
+            List<Callable<AppIdentifierWithStorageAndUserIdMapping>> lookups = new ArrayList<>();
+            for (Storage storage : otherStorages) {
+                lookups.add(() -> findUserInStorage(appIdentifier, storage, userId, userIdType));
             }
-            if (userIdType != UserIdType.SUPERTOKENS) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(priorityStorage);
-                try {
-                    io.supertokens.useridmapping.UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
-                            appIdentifierWithStorage, userId, true);
-                } catch (ServletException e) {
-                    // this means that the userId is being used for a non auth recipe.
-                    return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, null);
+            result = userLookupPool.findFirst(lookups);
+        } else {
+            for (Storage storage : otherStorages) {
+                result = findUserInStorage(appIdentifier, storage, userId, userIdType);
+                if (result != null) {
+                    break;
                 }
             }
         }
+        if (result != null) {
+            return result;
+        }
 
-        for (Storage storage : storages) {
-            if (storage == priorityStorage) {
-                continue; // Already checked previously
-            }
+        throw new UnknownUserIdException();
+    }
 
-            UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
-                    appIdentifier.withStorage(storage),
-                    userId, userIdType);
+    // returns null if the userId is not used in this storage
+    private static AppIdentifierWithStorageAndUserIdMapping findUserInStorage(AppIdentifier appIdentifier,
+                                                                              Storage storage, String userId,
+                                                                              UserIdType userIdType)
+            throws StorageQueryException {
+        AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(storage);
+        UserIdMapping mapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
+                appIdentifierWithStorage, userId, userIdType);
 
-            if (mapping != null) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(storage);
-                return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, mapping);
-            }
+        if (mapping != null) {
+            return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, mapping);
+        }
 
-            if (userIdType != UserIdType.EXTERNAL
-                    && ((AuthRecipeStorage) storage).doesUserIdExist(appIdentifier, userId)) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(storage);
+        if (userIdType != UserIdType.EXTERNAL
+                && ((AuthRecipeStorage) storage).doesUserIdExist(appIdentifier, userId)) {
+            return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, null);
+        }
+        if (userIdType != UserIdType.SUPERTOKENS) {
+            try {
+                io.supertokens.useridmapping.UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
+                        appIdentifierWithStorage, userId, true);
+            } catch (ServletException e) {
+                // this means that the userId is being used for a non auth recipe.
                 return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, null);
             }
-            if (userIdType != UserIdType.SUPERTOKENS) {
-                AppIdentifierWithStorage appIdentifierWithStorage = appIdentifier.withStorage(storage);
-                try {
-                    io.supertokens.useridmapping.UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
-                            appIdentifierWithStorage, userId, true);
-                } catch (ServletException e) {
-                    // this means that the userId is being used for a non auth recipe.
-                    return new AppIdentifierWithStorageAndUserIdMapping(appIdentifierWithStorage, null);
-                }
-            }
         }
+        return null;
+    }
 
-        throw new UnknownUserIdException();
+    // The storages of each app, one per user pool, like getStoragesForApp returned by going through all the storage
+    // resources. This is called on almost every request, so we build it once each time the tenant storages are
+    // loaded, and never modify it after that.
+    private static class AppStorages extends ResourceDistributor.SingletonResource {
+        private final Map<AppIdentifier, Storage[]> storagesForApp;
+
+        AppStorages(Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> storageLayers) {
+            Map<AppIdentifier, Map<String, Storage>> userPoolToStorageForApp = new HashMap<>();
+            for (ResourceDistributor.KeyClass key : storageLayers.keySet()) {
+                Storage storage = ((StorageLayer) storageLayers.get(key)).storage;
+                userPoolToStorageForApp.computeIfAbsent(key.getTenantIdentifier().toAppIdentifier(),
+                        k -> new HashMap<>()).put(storage.getUserPoolId(), storage);
+            }
+
+            Map<AppIdentifier, Storage[]> storagesForApp = new HashMap<>();
+            for (AppIdentifier appIdentifier : userPoolToStorageForApp.keySet()) {
+                storagesForApp.put(appIdentifier,
+                        userPoolToStorageForApp.get(appIdentifier).values().toArray(new Storage[0]));
+            }
+            this.storagesForApp = Collections.unmodifiableMap(storagesForApp);
+        }
     }
 }
@@ -0,0 +1,260 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Looks for a user in the storages of an app at the same time, for apps whose tenants are spread over more than one
+// user pool. The number of threads is bounded by user_lookup_pool_size so that the requests cannot open more
+// connections than that to the databases at once. If all the threads are busy, the request thread does the lookup
+// itself, which is the same as checking the storages one after the other.
+//
+// A lookup that does not finish within user_lookup_storage_timeout keeps its thread till its query returns, since we
+// never interrupt a query half way through. So that a database that hangs cannot take all the threads, we stop using
+// the pool while half of them (at least one) are held by such lookups, and check the storages one after the other.
+public class UserLookupPool extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storageLayer.UserLookupPool";
+
+    // null if user_lookup_pool_size is 0
+    private final ThreadPoolExecutor executor;
+    private final long storageTimeoutMS;
+    private final Metrics.Counter timeouts;
+
+    // number of lookups that went over the timeout and are still running
+    private final AtomicInteger abandonedLookups = new AtomicInteger(0);
+    private final int maxAbandonedLookups;
+
+    private UserLookupPool(Main main) {
+        CoreConfig config = Config.getBaseConfig(main);
+        this.storageTimeoutMS = config.getUserLookupStorageTimeout();
+        this.maxAbandonedLookups = Math.max(1, config.getUserLookupPoolSize() / 2);
+        if (config.getUserLookupPoolSize() == 0) {
+            this.executor = null;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("user-lookup-" + main.getProcessId() + "-" + threadCount.incrementAndGet());
+                return thread;
+            };
+            // unlike CallerRunsPolicy, this also runs the lookup on the request thread once the pool is shut down,
+            // instead of dropping it, so that findFirst never waits for a lookup that will not run
+            RejectedExecutionHandler runOnRequestThread = (runnable, pool) -> runnable.run();
+            this.executor = new ThreadPoolExecutor(config.getUserLookupPoolSize(), config.getUserLookupPoolSize(), 60,
+                    TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory, runOnRequestThread);
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        Metrics metrics = Metrics.getInstance(main);
+        this.timeouts = metrics.counter("supertokens_user_lookup_timeouts_total",
+                "Number of times a storage did not respond in time when looking for a user in all the storages of an " +
+                        "app");
+        if (this.executor != null) {
+            metrics.gauge("supertokens_user_lookup_workers_busy",
+                    "Number of threads that are looking for a user in a storage", this.executor::getActiveCount);
+            metrics.gauge("supertokens_user_lookup_abandoned_lookups",
+                    "Number of lookups that did not finish in time and still hold a thread",
+                    this.abandonedLookups::get);
+        }
+    }
+
+    public static UserLookupPool getInstance(Main main) {
+        try {
+            return (UserLookupPool) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void init(Main main) {
+        main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY, new UserLookupPool(main));
+    }
+
+    public static void shutdownAndAwaitTermination(Main main) {
+        UserLookupPool instance;
+        try {
+            instance = getInstance(main);
+        } catch (IllegalStateException e) {
+            // the core stopped before the pool was created
+            return;
+        }
+        if (instance.executor == null) {
+            return;
+        }
+        instance.executor.shutdown();
+        try {
+            instance.executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            // ignore any error as app is shutting down.
+        }
+    }
+
+    // false once the core is shutting down, or while too many threads are held by lookups that did not finish in
+    // time, so that the storages are checked one after the other instead
+    public boolean isEnabled() {
+        return this.executor != null && !this.executor.isShutdown() &&
+                this.abandonedLookups.get() < this.maxAbandonedLookups;
+    }
+
+    // Runs all the lookups at the same time and returns the first non null result, or null if they all returned null.
+    // We do not wait for the lookups that are still running once we have a result. We also do not interrupt them, so
+    // that a query is never stopped half way through on its db connection. If no lookup found anything, but one of
+    // them failed or did not finish within user_lookup_storage_timeout, we throw its error, since the user could be in
+    // that storage.
+    public <T> T findFirst(List<Callable<T>> lookups) throws StorageQueryException {
+        // a lookup that the pool has no thread for runs on this thread while it is being submitted, so the time that
+        // it takes counts towards the timeout too
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.storageTimeoutMS);
+        ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(this.executor);
+        List<Lookup<T>> submitted = new ArrayList<>();
+        List<Future<T>> futures = new ArrayList<>();
+        Exception[] failure = new Exception[1];
+        try {
+            int received = 0;
+            for (Callable<T> callable : lookups) {
+                if (deadline - System.nanoTime() <= 0) {
+                    break;
+                }
+                Lookup<T> lookup = new Lookup<>(callable);
+                submitted.add(lookup);
+                futures.add(completionService.submit(lookup));
+
+                // check the lookups that have already finished, including the ones that ran on this thread
+                Future<T> future;
+                while ((future = completionService.poll()) != null) {
+                    received++;
+                    T result = getResult(future, failure);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+
+            while (received < futures.size()) {
+                Future<T> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    break;
+                }
+                received++;
+                T result = getResult(future, failure);
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            if (received < lookups.size()) {
+                for (Lookup<T> lookup : submitted) {
+                    lookup.abandon();
+                }
+                this.timeouts.inc();
+                throw new StorageQueryException(new IllegalStateException(
+                        "Timed out while looking for a user in the storages of an app"));
+            }
+            if (failure[0] instanceof StorageQueryException) {
+                throw (StorageQueryException) failure[0];
+            }
+            if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            }
+            if (failure[0] != null) {
+                throw new StorageQueryException(failure[0]);
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageQueryException(e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    // returns the result of a finished lookup, or null if it did not find the user or failed, in which case its error
+    // is put in failure
+    private static <T> T getResult(Future<T> future, Exception[] failure) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // we keep waiting for the other storages, since the user could be in one of them
+            failure[0] = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            return null;
+        }
+    }
+
+    @TestOnly
+    public int getNumberOfAbandonedLookups() {
+        return this.abandonedLookups.get();
+    }
+
+    private class Lookup<T> implements Callable<T> {
+        private static final int RUNNING = 0;
+        private static final int FINISHED = 1;
+        private static final int ABANDONED = 2;
+
+        private final Callable<T> callable;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+        Lookup(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            try {
+                return this.callable.call();
+            } finally {
+                if (!this.state.compareAndSet(RUNNING, FINISHED)) {
+                    abandonedLookups.decrementAndGet();
+                }
+            }
+        }
+
+        // called once findFirst has stopped waiting for this lookup
+        void abandon() {
+            if (this.state.compareAndSet(RUNNING, ABANDONED)) {
+                abandonedLookups.incrementAndGet();
+            }
+        }
+    }
+}
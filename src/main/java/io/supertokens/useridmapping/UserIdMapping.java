@@ -39,6 +39,7 @@ import io.supertokens.pluginInterface.useridmapping.exception.UserIdMappingAlrea
 import io.supertokens.pluginInterface.useridmapping.sqlStorage.UserIdMappingSQLStorage;
 import io.supertokens.pluginInterface.usermetadata.UserMetadataStorage;
 import io.supertokens.pluginInterface.userroles.UserRolesStorage;
+import io.supertokens.storageLayer.NonAuthRecipeUsageStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
@@ -347,6 +348,18 @@ public class UserIdMapping {
             AppIdentifierWithStorage appIdentifierWithStorage, String userId, boolean assertIfUsed)
             throws StorageQueryException, ServletException {
         Storage storage = appIdentifierWithStorage.getStorage();
+
+        if (storage instanceof NonAuthRecipeUsageStorage) {
+            // one query for all the recipes, instead of one per recipe
+            List<String> result = ((NonAuthRecipeUsageStorage) storage).findNonAuthRecipesWhereForUserIdIsUsed(
+                    appIdentifierWithStorage, userId);
+            if (assertIfUsed && !result.isEmpty()) {
+                throw new ServletException(new WebserverAPI.BadRequestException(
+                        "UserId is already in use in " + getNonAuthRecipeName(result.get(0)) + " recipe"));
+            }
+            return result;
+        }
+
         List<String> result = new ArrayList<>();
 
         {
@@ -413,6 +426,21 @@ public class UserIdMapping {
         return result;
     }
 
+    private static String getNonAuthRecipeName(String className) {
+        if (className.equals(SessionStorage.class.getName())) {
+            return "Session";
+        } else if (className.equals(UserMetadataStorage.class.getName())) {
+            return "UserMetadata";
+        } else if (className.equals(UserRolesStorage.class.getName())) {
+            return "UserRoles";
+        } else if (className.equals(EmailVerificationStorage.class.getName())) {
+            return "EmailVerification";
+        } else if (className.equals(TOTPStorage.class.getName())) {
+            return "TOTP";
+        }
+        throw new IllegalStateException("should never come here");
+    }
+
     public static void populateExternalUserIdForUsers(AppIdentifierWithStorage appIdentifierWithStorage, AuthRecipeUserInfo[] users)
             throws StorageQueryException {
         Set<String> userIds = new HashSet<>();
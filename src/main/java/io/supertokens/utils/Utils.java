@@ -58,6 +58,8 @@ import java.util.UUID;
 
 public class Utils {
 
+    private static final ThreadLocal<Signature> SHA256_WITH_RSA_SIGNATURE = new ThreadLocal<>();
+
     /**
      * Normalizes a phone number by trimming and formatting it according to the
      * E.164 standard.
@@ -286,13 +288,14 @@ public class Utils {
 
     public static String signWithPrivateKey(String content, String privateKey, boolean urlEncode)
             throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
-        Base64.Decoder decoder = Base64.getDecoder();
-        PKCS8EncodedKeySpec ks = new PKCS8EncodedKeySpec(decoder.decode(privateKey));
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        PrivateKey pvt = kf.generatePrivate(ks);
+        return signWithPrivateKey(content, getPrivateKeyFromString(privateKey, JWTSigningKey.SupportedAlgorithms.RS256),
+                urlEncode);
+    }
 
-        sign.initSign(pvt);
+    public static String signWithPrivateKey(String content, PrivateKey privateKey, boolean urlEncode)
+            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Signature sign = getSHA256WithRSASignature();
+        sign.initSign(privateKey);
         sign.update(stringToBytes(content));
         Base64.Encoder encoder = urlEncode ? Base64.getUrlEncoder() : Base64.getEncoder();
         return encoder.encodeToString(sign.sign());
@@ -300,18 +303,31 @@ public class Utils {
 
     public static boolean verifyWithPublicKey(String content, String signature, String publicKey, boolean urlEncoded)
             throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
-        Base64.Decoder keyDecoder = Base64.getDecoder();
-        X509EncodedKeySpec ks = new X509EncodedKeySpec(keyDecoder.decode(publicKey));
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        PublicKey pub = kf.generatePublic(ks);
+        return verifyWithPublicKey(content, signature,
+                getPublicKeyFromString(publicKey, JWTSigningKey.SupportedAlgorithms.RS256), urlEncoded);
+    }
 
+    public static boolean verifyWithPublicKey(String content, String signature, PublicKey publicKey,
+                                              boolean urlEncoded)
+            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Signature sign = getSHA256WithRSASignature();
         Base64.Decoder decoder = urlEncoded ? Base64.getUrlDecoder() : Base64.getDecoder();
-        sign.initVerify(pub);
+        sign.initVerify(publicKey);
         sign.update(stringToBytes(content));
         return sign.verify(decoder.decode(signature));
     }
 
+    // Signature instances are not thread safe, but looking one up goes through the security providers each time, so
+    // we keep one per thread. initSign / initVerify reset any state left behind by a previous (failed) use.
+    private static Signature getSHA256WithRSASignature() throws NoSuchAlgorithmException {
+        Signature signature = SHA256_WITH_RSA_SIGNATURE.get();
+        if (signature == null) {
+            signature = Signature.getInstance("SHA256withRSA");
+            SHA256_WITH_RSA_SIGNATURE.set(signature);
+        }
+        return signature;
+    }
+
     public static class PubPriKey {
         public String publicKey;
         public String privateKey;
@@ -29,20 +29,22 @@ public class PathRouter extends WebserverAPI {
 
     List<WebserverAPI> apis;
 
+    // rebuilt every time an API is added so that routing a request never needs to compile or run a regex.
+    private transient volatile RouteTable routeTable = new RouteTable(new ArrayList<>());
+
     public PathRouter(Main main) {
         super(main, "");
         this.apis = new ArrayList();
     }
 
-    public void addAPI(WebserverAPI newApi) {
-        this.apis.add(newApi);
+    public synchronized void addAPI(WebserverAPI newApi) {
         for (WebserverAPI api : this.apis) {
-            for (WebserverAPI api2 : this.apis) {
-                if (api != api2 && api.getPath().equals(api2.getPath())) {
-                    throw new IllegalStateException("APIs given to the router cannot have the same path");
-                }
+            if (api.getPath().equals(newApi.getPath())) {
+                throw new IllegalStateException("APIs given to the router cannot have the same path");
             }
         }
+        this.apis.add(newApi);
+        this.routeTable = new RouteTable(this.apis);
     }
 
     @Override
@@ -63,40 +65,154 @@ public class PathRouter extends WebserverAPI {
     private WebserverAPI getAPIThatMatchesPath(HttpServletRequest req) {
         // getServletPath returns the path without the configured base path.
         String requestPath = req.getServletPath().toLowerCase();
+        RouteTable routeTable = this.routeTable;
 
         // first we check for exact match
-        for (WebserverAPI api : this.apis) {
-            String apiPath = api.getPath().toLowerCase();
-            if (!apiPath.startsWith("/")) {
-                apiPath = "/" + apiPath;
-            }
-            if (requestPath.equals(apiPath) || requestPath.equals(apiPath + "/")) {
-                return api;
-            }
+        int match = routeTable.find(requestPath, 0);
+
+        // then we check if tenantId or appId is embedded in the URL. The path can be prefixed with
+        // "/appid-<appId>", "/<tenantId>" or both, so the API path can only start at one of these offsets.
+        // If more than one of them matches, we pick the API that was added first.
+        if (match == -1) {
+            int appIdEnd = getEndOfAppIdSegment(requestPath, 0);
+            match = getEarlierMatch(match, routeTable.find(requestPath, appIdEnd));
+            match = getEarlierMatch(match,
+                    routeTable.find(requestPath, getEndOfTenantIdSegment(requestPath, 0, true)));
+            match = getEarlierMatch(match,
+                    routeTable.find(requestPath, getEndOfTenantIdSegment(requestPath, appIdEnd, true)));
         }
 
-        // then we check if tenantId or appId is embedded in the URL.
-        for (WebserverAPI api : this.apis) {
-            String apiPath = api.getPath().toLowerCase();
-            if (!apiPath.startsWith("/")) {
-                apiPath = "/" + apiPath;
-            }
+        if (match != -1) {
+            return routeTable.apis[match];
+        }
+        if (routeTable.rootApi != null) {
+            return routeTable.rootApi;
+        }
+        throw new RuntimeException("Should never come here");
+    }
+
+    private static int getEarlierMatch(int match1, int match2) {
+        if (match1 == -1) {
+            return match2;
+        }
+        if (match2 == -1) {
+            return match1;
+        }
+        return Math.min(match1, match2);
+    }
 
-            String tenantIdStopWords = String.join("|", Utils.INVALID_WORDS_FOR_TENANTID);
-            if (requestPath.matches("^(/appid-[a-z0-9-]*)?(/(?!" + tenantIdStopWords + ")[a-z0-9-]+)?" + apiPath + "/?$")) {
-                return api;
+    // returns the index just after "/appid-[a-z0-9-]*" if the path has that segment at the given index, else -1
+    static int getEndOfAppIdSegment(String path, int from) {
+        if (from < 0 || !path.startsWith("/appid-", from)) {
+            return -1;
+        }
+        return getEndOfSegment(path, from + "/appid-".length());
+    }
+
+    // returns the index just after "/[a-z0-9-]+" if the path has that segment at the given index, else -1. If
+    // checkInvalidWords is true, the segment must also not start with one of Utils.INVALID_WORDS_FOR_TENANTID
+    static int getEndOfTenantIdSegment(String path, int from, boolean checkInvalidWords) {
+        if (from < 0 || from + 1 >= path.length() || path.charAt(from) != '/') {
+            return -1;
+        }
+        if (checkInvalidWords) {
+            for (String word : Utils.INVALID_WORDS_FOR_TENANTID) {
+                if (path.startsWith(word, from + 1)) {
+                    return -1;
+                }
             }
         }
-        for (WebserverAPI api : this.apis) {
-            if (api.getPath().equals("/")) {
-                return api;
+        int end = getEndOfSegment(path, from + 1);
+        return end == from + 1 ? -1 : end;
+    }
+
+    private static int getEndOfSegment(String path, int from) {
+        int i = from;
+        for (; i < path.length() && path.charAt(i) != '/'; i++) {
+            char c = path.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-')) {
+                return -1;
             }
         }
-        throw new RuntimeException("Should never come here");
+        return i;
     }
 
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         getAPIThatMatchesPath(req).service(req, resp);
     }
+
+    /**
+     * Open addressing hash table from the lower cased path of an API to its index in the order in which the APIs
+     * were added. Lookups hash a region of the request path in place, so no substring is created per request.
+     */
+    private static class RouteTable {
+        final WebserverAPI[] apis;
+        final WebserverAPI rootApi;
+        private final String[] slotPaths;
+        private final int[] slotIndexes;
+        private final int mask;
+
+        RouteTable(List<WebserverAPI> apis) {
+            this.apis = apis.toArray(new WebserverAPI[0]);
+
+            int capacity = 16;
+            while (capacity < this.apis.length * 2) {
+                capacity <<= 1;
+            }
+            this.slotPaths = new String[capacity];
+            this.slotIndexes = new int[capacity];
+            this.mask = capacity - 1;
+
+            WebserverAPI rootApi = null;
+            for (int i = 0; i < this.apis.length; i++) {
+                if (rootApi == null && this.apis[i].getPath().equals("/")) {
+                    rootApi = this.apis[i];
+                }
+                String apiPath = this.apis[i].getPath().toLowerCase();
+                if (!apiPath.startsWith("/")) {
+                    apiPath = "/" + apiPath;
+                }
+                int slot = apiPath.hashCode() & mask;
+                while (this.slotPaths[slot] != null && !this.slotPaths[slot].equals(apiPath)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (this.slotPaths[slot] == null) {
+                    // if two APIs only differ in case, the one added first wins
+                    this.slotPaths[slot] = apiPath;
+                    this.slotIndexes[slot] = i;
+                }
+            }
+            this.rootApi = rootApi;
+        }
+
+        // finds the API whose path is equal to path.substring(from) with an optional trailing "/"
+        int find(String path, int from) {
+            if (from < 0 || from >= path.length()) {
+                return -1;
+            }
+            int match = find(path, from, path.length());
+            if (path.length() - from > 1 && path.charAt(path.length() - 1) == '/') {
+                match = getEarlierMatch(match, find(path, from, path.length() - 1));
+            }
+            return match;
+        }
+
+        private int find(String path, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int length = to - from;
+            int slot = hash & mask;
+            while (slotPaths[slot] != null) {
+                String candidate = slotPaths[slot];
+                if (candidate.length() == length && path.regionMatches(from, candidate, 0, length)) {
+                    return slotIndexes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
 }
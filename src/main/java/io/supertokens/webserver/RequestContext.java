@@ -0,0 +1,79 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifierWithStorage;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifierWithStorage;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.SemVer;
+
+/**
+ * Holds what WebserverAPI resolves about a single request: the tenant it is for, that tenant's storage and config,
+ * and the CDI version. It is stored as a request attribute, so each of these is computed at most once per request
+ * no matter how many helpers or API handlers ask for it.
+ */
+class RequestContext {
+    // the path of the API that created this context, since the tenant is parsed relative to it.
+    final String apiPath;
+
+    final TenantIdentifier tenantIdentifier;
+
+    private TenantIdentifierWithStorage tenantIdentifierWithStorage = null;
+
+    private AppIdentifierWithStorage appIdentifierWithStorage = null;
+
+    private CoreConfig config = null;
+
+    SemVer version = null;
+
+    RequestContext(String apiPath, TenantIdentifier tenantIdentifier) {
+        this.apiPath = apiPath;
+        this.tenantIdentifier = tenantIdentifier;
+    }
+
+    TenantIdentifierWithStorage getTenantIdentifierWithStorage(Main main) throws TenantOrAppNotFoundException {
+        if (this.tenantIdentifierWithStorage == null) {
+            Storage storage = StorageLayer.getStorage(this.tenantIdentifier, main);
+            this.tenantIdentifierWithStorage = this.tenantIdentifier.withStorage(storage);
+        }
+        return this.tenantIdentifierWithStorage;
+    }
+
+    AppIdentifierWithStorage getAppIdentifierWithStorage(Main main) throws TenantOrAppNotFoundException {
+        if (this.appIdentifierWithStorage == null) {
+            Storage storage = getTenantIdentifierWithStorage(main).getStorage();
+            Storage[] storages = StorageLayer.getStoragesForApp(main, this.tenantIdentifier.toAppIdentifier());
+            this.appIdentifierWithStorage = new AppIdentifierWithStorage(
+                    this.tenantIdentifier.getConnectionUriDomain(), this.tenantIdentifier.getAppId(), storage,
+                    storages);
+        }
+        return this.appIdentifierWithStorage;
+    }
+
+    CoreConfig getConfig(Main main) throws TenantOrAppNotFoundException {
+        if (this.config == null) {
+            this.config = Config.getConfig(this.tenantIdentifier, main);
+        }
+        return this.config;
+    }
+}
@@ -24,72 +24,137 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import org.jetbrains.annotations.TestOnly;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// There is one of these for every app that gets requests, so we try to keep it small. Most apps are idle for most
+// minutes of the day, so the per minute history only stores the minutes which had requests.
 public class RequestStats extends ResourceDistributor.SingletonResource {
     public static final String RESOURCE_KEY = "io.supertokens.webserver.RequestStats";
 
-    private final int MAX_MINUTES = 24 * 60;
-
-    private long currentMinute; // current minute since epoch
-    private final int[] currentMinuteRequestCounts; // array of 60 items representing number of requests at each second in the current minute
-
-    // The 2 arrays below contains stats for a day for every minute
-    // the array is stored in such a way that array[currentMinute % MAX_MINUTES] contains the stats for a day ago
-    // until array[(currentMinute - 1) % MAX_MINUTES] which contains the stats for the last minute, circling around
-    // from end of array to the beginning
-    // for e.g. if currentMinute % MAX_MINUTES = 250,
-    // then array[250] contains stats for now - 1440 minutes
-    // array[251] contains stats for now - 1439 minutes
-    // ...
-    // array[1439] contains stats for now - 1191 minutes
-    // array[0] contains stats for now - 1190 minutes
-    // array[1] contains stats for now - 1189 minutes
-    // ...
-    // array[249] contains stats for now - 1 minute
-    private final double[] averageRequestsPerSecond;
-    private final int[] peakRequestsPerSecond;
+    private static final int MAX_MINUTES = 24 * 60;
+
+    // each entry in history is the minute (since epoch), the number of requests in that minute and the peak requests
+    // per second in that minute
+    private static final int HISTORY_ENTRY_SIZE = 3;
+    private static final int INITIAL_HISTORY_ENTRIES = 8;
+
+    // upper bounds (in ms) of the latency histogram buckets. The last bucket is for anything slower than these.
+    static final long[] LATENCY_BUCKET_BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    // the minute in which this was created. There is no data for minutes before this.
+    private final long firstMinute;
+
+    private volatile long currentMinute; // current minute since epoch
+
+    // for each of the 60 seconds of the current minute, index 2 * i has the second (since epoch) that the counter is
+    // for and index 2 * i + 1 has the number of requests in that second. Requests only increment the counter for
+    // their second, without taking a lock.
+    private final AtomicLongArray currentMinuteRequestCounts = new AtomicLongArray(120);
+
+    // ring buffer of the minutes of the last day that had requests, oldest first. It grows as needed, up to
+    // MAX_MINUTES entries. Minutes from the first minute onwards that are not in here had no requests.
+    private int[] history = new int[INITIAL_HISTORY_ENTRIES * HISTORY_ENTRY_SIZE];
+    private int historyStart = 0; // index of the oldest entry
+    private int historySize = 0; // number of entries
+
+    // API path -> stats for that API since the core started
+    private final Map<String, ApiStats> apiStats = new ConcurrentHashMap<>(4);
 
     private RequestStats() {
-        currentMinute = System.currentTimeMillis() / 60000;
-        currentMinuteRequestCounts = new int[60];
-
-        averageRequestsPerSecond = new double[MAX_MINUTES];
-        peakRequestsPerSecond = new int[MAX_MINUTES];
-        for (int i = 0; i < MAX_MINUTES; i++) {
-            averageRequestsPerSecond[i] = -1;
-            peakRequestsPerSecond[i] = -1;
+        this(System.currentTimeMillis());
+    }
+
+    private RequestStats(long nowMillis) {
+        firstMinute = nowMillis / 60000;
+        currentMinute = firstMinute;
+        for (int i = 0; i < 60; i++) {
+            currentMinuteRequestCounts.set(2 * i, -1);
         }
     }
 
+    @TestOnly
+    public static RequestStats createForTesting(long nowMillis) {
+        return new RequestStats(nowMillis);
+    }
+
     private void checkAndUpdateMinute(long currentSecond) {
         if (currentSecond / 60 == currentMinute) {
             return; // stats update not required
         }
+        synchronized (this) {
+            if (currentSecond / 60 == currentMinute) {
+                return; // another thread updated the stats while we were waiting
+            }
 
-        int sum = 0;
-        int max = 0;
-        for (int i = 0; i < 60; i++) {
-            sum += currentMinuteRequestCounts[i];
-            max = Math.max(max, currentMinuteRequestCounts[i]);
-        }
+            long sum = 0;
+            long max = 0;
+            for (int i = 0; i < 60; i++) {
+                // seconds without any request still have the counter from an older minute
+                if (currentMinuteRequestCounts.get(2 * i) == currentMinute * 60 + i) {
+                    long count = currentMinuteRequestCounts.get(2 * i + 1);
+                    sum += count;
+                    max = Math.max(max, count);
+                }
+            }
+
+            // minutes without requests do not need to be stored
+            if (sum > 0) {
+                addToHistory(currentMinute, sum, max);
+            }
 
-        averageRequestsPerSecond[(int) (currentMinute % MAX_MINUTES)] = sum / 60.0;
-        peakRequestsPerSecond[(int) (currentMinute % MAX_MINUTES)] = max;
+            currentMinute = currentSecond / 60;
+        }
+    }
 
-        // fill zeros for passed minutes
-        for (long i = currentMinute + 1; i < currentSecond / 60; i++) {
-            averageRequestsPerSecond[(int) (i % MAX_MINUTES)] = 0;
-            peakRequestsPerSecond[(int) (i % MAX_MINUTES)] = 0;
+    private void addToHistory(long minute, long requestCount, long peakRequestsPerSecond) {
+        // we remove entries that are more than a day old
+        while (historySize > 0 && history[historyStart * HISTORY_ENTRY_SIZE] <= minute - MAX_MINUTES) {
+            historyStart = (historyStart + 1) % (history.length / HISTORY_ENTRY_SIZE);
+            historySize--;
         }
 
-        currentMinute = currentSecond / 60;
-        for (int i = 0; i < 60; i++) {
-            currentMinuteRequestCounts[i] = 0;
+        int capacity = history.length / HISTORY_ENTRY_SIZE;
+        if (historySize == capacity) {
+            int[] newHistory = new int[Math.min(capacity * 2, MAX_MINUTES) * HISTORY_ENTRY_SIZE];
+            for (int i = 0; i < historySize; i++) {
+                System.arraycopy(history, ((historyStart + i) % capacity) * HISTORY_ENTRY_SIZE, newHistory,
+                        i * HISTORY_ENTRY_SIZE, HISTORY_ENTRY_SIZE);
+            }
+            history = newHistory;
+            historyStart = 0;
+            capacity = history.length / HISTORY_ENTRY_SIZE;
         }
+
+        int index = ((historyStart + historySize) % capacity) * HISTORY_ENTRY_SIZE;
+        history[index] = (int) minute;
+        history[index + 1] = (int) Math.min(requestCount, Integer.MAX_VALUE);
+        history[index + 2] = (int) Math.min(peakRequestsPerSecond, Integer.MAX_VALUE);
+        historySize++;
     }
 
     private void updateCounts(long currentSecond) {
-        currentMinuteRequestCounts[(int) (currentSecond % 60)]++;
+        int index = 2 * (int) (currentSecond % 60);
+        if (currentMinuteRequestCounts.get(index) != currentSecond) {
+            synchronized (currentMinuteRequestCounts) {
+                if (currentMinuteRequestCounts.get(index) != currentSecond) {
+                    currentMinuteRequestCounts.set(index + 1, 0);
+                    currentMinuteRequestCounts.set(index, currentSecond);
+                }
+            }
+        }
+        currentMinuteRequestCounts.incrementAndGet(index + 1);
+    }
+
+    // number of minutes that the history can hold before it has to grow
+    @TestOnly
+    public synchronized int getHistoryCapacity() {
+        return history.length / HISTORY_ENTRY_SIZE;
     }
 
     public static RequestStats getInstance(Main main, AppIdentifier appIdentifier) throws TenantOrAppNotFoundException {
@@ -110,34 +175,124 @@ public class RequestStats extends ResourceDistributor.SingletonResource {
         }
     }
 
-    public void updateRequestStats() {
-        this.updateRequestStats(true);
+    public void updateRequestStats(String apiPath, int statusCode, long latencyMS) {
+        updateRequestStats(System.currentTimeMillis(), apiPath, statusCode, latencyMS);
     }
 
-    synchronized private void updateRequestStats(boolean updateCounts) {
-        long now = System.currentTimeMillis() / 1000;
+    @TestOnly
+    public void updateRequestStats(long nowMillis, String apiPath, int statusCode, long latencyMS) {
+        long now = nowMillis / 1000;
         this.checkAndUpdateMinute(now);
-        if (updateCounts) { this.updateCounts(now); }
+        this.updateCounts(now);
+        this.apiStats.computeIfAbsent(apiPath, k -> new ApiStats()).update(statusCode, latencyMS);
     }
 
     public JsonObject getStats() {
-        this.updateRequestStats(false);
+        return getStats(System.currentTimeMillis());
+    }
 
+    @TestOnly
+    public JsonObject getStats(long nowMillis) {
         JsonArray avgRps = new JsonArray();
         JsonArray peakRps = new JsonArray();
 
-        long atMinute = System.currentTimeMillis() / 60000;
+        long atMinute = nowMillis / 60000;
+
+        synchronized (this) {
+            this.checkAndUpdateMinute(nowMillis / 1000);
 
-        int offset = (int) (atMinute % MAX_MINUTES);
-        for (int i = 0; i < MAX_MINUTES; i++) {
-            avgRps.add(new JsonPrimitive(this.averageRequestsPerSecond[(i + offset) % MAX_MINUTES]));
-            peakRps.add(new JsonPrimitive(this.peakRequestsPerSecond[(i + offset) % MAX_MINUTES]));
+            int capacity = history.length / HISTORY_ENTRY_SIZE;
+            int entry = 0;
+            // the i-th item is for the minute that was (MAX_MINUTES - i) minutes ago
+            for (long minute = atMinute - MAX_MINUTES; minute < atMinute; minute++) {
+                while (entry < historySize &&
+                        history[((historyStart + entry) % capacity) * HISTORY_ENTRY_SIZE] < minute) {
+                    entry++;
+                }
+                int index = ((historyStart + entry) % capacity) * HISTORY_ENTRY_SIZE;
+                if (minute < firstMinute) {
+                    avgRps.add(new JsonPrimitive(-1.0));
+                    peakRps.add(new JsonPrimitive(-1));
+                } else if (entry < historySize && history[index] == minute) {
+                    avgRps.add(new JsonPrimitive(history[index + 1] / 60.0));
+                    peakRps.add(new JsonPrimitive(history[index + 2]));
+                } else {
+                    avgRps.add(new JsonPrimitive(0.0));
+                    peakRps.add(new JsonPrimitive(0));
+                }
+            }
         }
 
         JsonObject result = new JsonObject();
         result.addProperty("atMinute", atMinute);
         result.add("averageRequestsPerSecond", avgRps);
         result.add("peakRequestsPerSecond", peakRps);
+
+        // sorted so that the output is stable
+        JsonObject apis = new JsonObject();
+        for (Map.Entry<String, ApiStats> entry : new TreeMap<>(this.apiStats).entrySet()) {
+            apis.add(entry.getKey(), entry.getValue().toJson());
+        }
+        result.add("apis", apis);
         return result;
     }
+
+    private static class ApiStats {
+        // one slot per latency bucket, followed by the max latency
+        private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MS.length + 2);
+        private final Map<Integer, AtomicLong> statusCodeCounts = new ConcurrentHashMap<>(4);
+
+        void update(int statusCode, long latencyMS) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKET_BOUNDS_MS.length && latencyMS > LATENCY_BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            this.latency.incrementAndGet(bucket);
+            this.latency.accumulateAndGet(LATENCY_BUCKET_BOUNDS_MS.length + 1, latencyMS, Math::max);
+            this.statusCodeCounts.computeIfAbsent(statusCode, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        JsonObject toJson() {
+            long[] counts = new long[LATENCY_BUCKET_BOUNDS_MS.length + 1];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.latency.get(i);
+                total += counts[i];
+            }
+            long max = this.latency.get(LATENCY_BUCKET_BOUNDS_MS.length + 1);
+
+            JsonObject latency = new JsonObject();
+            latency.addProperty("p50", getPercentile(counts, total, max, 0.50));
+            latency.addProperty("p95", getPercentile(counts, total, max, 0.95));
+            latency.addProperty("p99", getPercentile(counts, total, max, 0.99));
+            latency.addProperty("max", max);
+
+            JsonObject statusCodes = new JsonObject();
+            for (Map.Entry<Integer, AtomicLong> entry : new TreeMap<>(this.statusCodeCounts).entrySet()) {
+                statusCodes.addProperty(String.valueOf(entry.getKey()), entry.getValue().get());
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("count", total);
+            result.add("latencyInMs", latency);
+            result.add("statusCodes", statusCodes);
+            return result;
+        }
+
+        // returns the upper bound of the bucket in which the percentile falls, capped at the max seen latency
+        private static long getPercentile(long[] counts, long total, long max, double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKET_BOUNDS_MS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(LATENCY_BUCKET_BOUNDS_MS[i], max);
+                }
+            }
+            return max;
+        }
+    }
 }
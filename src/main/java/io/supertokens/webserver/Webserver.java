@@ -22,6 +22,7 @@ import io.supertokens.ResourceDistributor;
 import io.supertokens.cliOptions.CLIOptions;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifierWithStorage;
@@ -57,6 +58,7 @@ import org.apache.catalina.connector.Connector;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
 
 import java.io.File;
 import java.util.UUID;
@@ -156,9 +158,30 @@ public class Webserver extends ResourceDistributor.SingletonResource {
 
         tomcatReference = new TomcatReference(tomcat, context);
 
+        addThreadPoolMetrics(connector);
+
         setupRoutes();
     }
 
+    private void addThreadPoolMetrics(Connector connector) {
+        Metrics metrics = Metrics.getInstance(main);
+        metrics.gauge("supertokens_webserver_threads_busy", "Number of webserver threads that are handling a request",
+                () -> getExecutor(connector).getActiveCount());
+        metrics.gauge("supertokens_webserver_threads", "Number of threads in the webserver thread pool",
+                () -> getExecutor(connector).getPoolSize());
+        metrics.gauge("supertokens_webserver_threads_max", "Maximum number of threads in the webserver thread pool",
+                () -> getExecutor(connector).getMaximumPoolSize());
+        metrics.gauge("supertokens_webserver_queue_size",
+                "Number of accepted connections that are waiting for a webserver thread",
+                () -> getExecutor(connector).getQueue().size());
+    }
+
+    private static ThreadPoolExecutor getExecutor(Connector connector) {
+        // this is created by tomcat when the connector starts, and is gone once it stops. The gauges skip their
+        // value in that case.
+        return (ThreadPoolExecutor) connector.getProtocolHandler().getExecutor();
+    }
+
     private void setupRoutes() {
         addAPI(new NotFoundOrHelloAPI(main));
         addAPI(new HelloAPI(main));
@@ -258,6 +281,7 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new ConsumeResetPasswordAPI(main));
 
         addAPI(new RequestStatsAPI(main));
+        addAPI(new MetricsAPI(main));
 
         StandardContext context = tomcatReference.getContext();
         Tomcat tomcat = tomcatReference.getTomcat();
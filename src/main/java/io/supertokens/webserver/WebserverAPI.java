@@ -22,8 +22,10 @@ import io.supertokens.Main;
 import io.supertokens.TenantIdentifierWithStorageAndUserIdMapping;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
+import io.supertokens.emailpassword.exceptions.PasswordHashingOverloadedException;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.exceptions.FeatureNotEnabledException;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.output.Logging;
@@ -49,7 +51,9 @@ import org.jetbrains.annotations.TestOnly;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.PatternSyntaxException;
 
 public abstract class WebserverAPI extends HttpServlet {
@@ -59,6 +63,12 @@ public abstract class WebserverAPI extends HttpServlet {
     public static final Set<SemVer> supportedVersions = new HashSet<>();
     private String rid;
 
+    private static final String REQUEST_CONTEXT_ATTRIBUTE = "io.supertokens.webserver.RequestContext";
+
+    // these are looked up on the first request, so that we do not build the labels for every request
+    private transient volatile Metrics.Timer requestDurationTimer;
+    private final transient Map<Integer, Metrics.Counter> responseCounters = new ConcurrentHashMap<>();
+
     static {
         supportedVersions.add(SemVer.v2_7);
         supportedVersions.add(SemVer.v2_8);
@@ -87,7 +97,8 @@ public abstract class WebserverAPI extends HttpServlet {
             throws ServletException, TenantOrAppNotFoundException {
         SemVer maxCDIVersion = getLatestCDIVersion();
         String maxCDIVersionStr = Config.getConfig(
-                getAppIdentifierWithStorage(req).getAsPublicTenantIdentifier(), main).getMaxCDIVersion();
+                getRequestContext(req).getAppIdentifierWithStorage(main).getAsPublicTenantIdentifier(), main)
+                .getMaxCDIVersion();
         if (maxCDIVersionStr != null) {
             maxCDIVersion = new SemVer(maxCDIVersionStr);
         }
@@ -171,9 +182,7 @@ public abstract class WebserverAPI extends HttpServlet {
         String apiKey = req.getHeader("api-key");
 
         // first we try the normal API key
-        String[] keys = Config.getConfig(
-                new TenantIdentifier(getConnectionUriDomain(req), getAppId(req), getTenantId(req)),
-                this.main).getAPIKeys();
+        String[] keys = getRequestContext(req).getConfig(this.main).getAPIKeys();
         if (keys != null) {
             if (apiKey == null) {
                 throw new ServletException(new APIKeyUnauthorisedException());
@@ -228,62 +237,54 @@ public abstract class WebserverAPI extends HttpServlet {
         return true;
     }
 
-    private String getTenantId(HttpServletRequest req) {
-        String path = req.getServletPath().toLowerCase();
-        String apiPath = getPath().toLowerCase();
-        if (!apiPath.startsWith("/")) {
-            apiPath = "/" + apiPath;
-        }
+    private static String getTenantId(String path, String apiPath) {
         if (apiPath.equals("/")) {
-            if (path.equals("") || path.equals("/")) {
-                return null;
-            }
-        } else {
-            if (path.matches("^/appid-[a-z0-9-]*/[a-z0-9-]+" + apiPath + "/?$")) {
-                String tenantId = path.split("/")[2].toLowerCase();
-                if (tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
-                    return null;
-                }
-                return tenantId;
-            } else if (path.matches("^/appid-[a-z0-9-]*" + apiPath + "/?$")) {
-                return null;
-            } else if (path.matches("^/[a-z0-9-]+" + apiPath + "/?$")) {
-                String tenantId = path.split("/")[1].toLowerCase();
-                if (tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
-                    return null;
-                }
-                return tenantId;
-            } else {
-                return null;
+            return null;
+        }
+        String tenantId = null;
+        int appIdEnd = PathRouter.getEndOfAppIdSegment(path, 0);
+        int tenantIdEnd = PathRouter.getEndOfTenantIdSegment(path, appIdEnd, false);
+        if (isAPIPathAt(path, tenantIdEnd, apiPath)) {
+            // path is /appid-<appId>/<tenantId>/<apiPath>
+            tenantId = path.substring(appIdEnd + 1, tenantIdEnd);
+        } else if (!isAPIPathAt(path, appIdEnd, apiPath)) {
+            tenantIdEnd = PathRouter.getEndOfTenantIdSegment(path, 0, false);
+            if (isAPIPathAt(path, tenantIdEnd, apiPath)) {
+                // path is /<tenantId>/<apiPath>
+                tenantId = path.substring(1, tenantIdEnd);
             }
         }
-        return null;
+        if (tenantId == null || tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
+            return null;
+        }
+        return tenantId;
     }
 
-    private String getAppId(HttpServletRequest req) {
-        String path = req.getServletPath().toLowerCase();
-        String apiPath = getPath().toLowerCase();
-        if (!apiPath.startsWith("/")) {
-            apiPath = "/" + apiPath;
-        }
+    private static String getAppId(String path, String apiPath) {
         if (apiPath.equals("/")) {
-            if (path.equals("") || path.equals("/")) {
-                return null;
-            }
-        } else {
-            if (path.matches("^/appid-[a-z0-9-]*(/[a-z0-9-]+)?" + apiPath + "/?$")) {
-                String appId = path.split("/")[1].toLowerCase();
-                if (appId.equals("appid-public")) {
-                    return null;
-                }
-                return appId.substring(6);
-            } else {
+            return null;
+        }
+        int appIdEnd = PathRouter.getEndOfAppIdSegment(path, 0);
+        if (isAPIPathAt(path, appIdEnd, apiPath) ||
+                isAPIPathAt(path, PathRouter.getEndOfTenantIdSegment(path, appIdEnd, false), apiPath)) {
+            String appId = path.substring("/appid-".length(), appIdEnd);
+            if (appId.equals(TenantIdentifier.DEFAULT_APP_ID)) {
                 return null;
             }
+            return appId;
         }
         return null;
     }
 
+    // checks if path, starting at the given index, is the apiPath with an optional trailing "/"
+    private static boolean isAPIPathAt(String path, int from, String apiPath) {
+        if (from < 0 || !path.startsWith(apiPath, from)) {
+            return false;
+        }
+        int remaining = path.length() - from - apiPath.length();
+        return remaining == 0 || (remaining == 1 && path.charAt(path.length() - 1) == '/');
+    }
+
     private String getConnectionUriDomain(HttpServletRequest req) throws ServletException {
         String connectionUriDomain = req.getServerName();
         connectionUriDomain = Utils.normalizeAndValidateConnectionUriDomain(connectionUriDomain, false);
@@ -302,52 +303,56 @@ public abstract class WebserverAPI extends HttpServlet {
         return null;
     }
 
+    private RequestContext getRequestContext(HttpServletRequest req) throws ServletException {
+        String apiPath = getPath().toLowerCase();
+        if (!apiPath.startsWith("/")) {
+            apiPath = "/" + apiPath;
+        }
+
+        Object existingContext = req.getAttribute(REQUEST_CONTEXT_ATTRIBUTE);
+        if (existingContext instanceof RequestContext && ((RequestContext) existingContext).apiPath.equals(apiPath)) {
+            return (RequestContext) existingContext;
+        }
+
+        String path = req.getServletPath().toLowerCase();
+        RequestContext context = new RequestContext(apiPath,
+                new TenantIdentifier(this.getConnectionUriDomain(req), getAppId(path, apiPath),
+                        getTenantId(path, apiPath)));
+        req.setAttribute(REQUEST_CONTEXT_ATTRIBUTE, context);
+        return context;
+    }
+
     @TestOnly
     protected TenantIdentifier getTenantIdentifierFromRequest(HttpServletRequest req) throws ServletException {
-        return new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req), this.getTenantId(req));
+        return getRequestContext(req).tenantIdentifier;
     }
 
     protected TenantIdentifierWithStorage getTenantIdentifierWithStorageFromRequest(HttpServletRequest req)
             throws TenantOrAppNotFoundException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
-        Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
-        return tenantIdentifier.withStorage(storage);
+        return getRequestContext(req).getTenantIdentifierWithStorage(main);
     }
 
     protected AppIdentifierWithStorage getAppIdentifierWithStorage(HttpServletRequest req)
             throws TenantOrAppNotFoundException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
-
-        Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
-        Storage[] storages = StorageLayer.getStoragesForApp(main, tenantIdentifier.toAppIdentifier());
-
-        return new AppIdentifierWithStorage(tenantIdentifier.getConnectionUriDomain(), tenantIdentifier.getAppId(),
-                storage, storages);
+        return getRequestContext(req).getAppIdentifierWithStorage(main);
     }
 
     protected AppIdentifierWithStorage getAppIdentifierWithStorageFromRequestAndEnforcePublicTenant(
             HttpServletRequest req)
             throws TenantOrAppNotFoundException, BadPermissionException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
+        RequestContext context = getRequestContext(req);
 
-        if (!tenantIdentifier.getTenantId().equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
+        if (!context.tenantIdentifier.getTenantId().equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
             throw new BadPermissionException("Only public tenantId can query across tenants");
         }
 
-        Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
-        Storage[] storages = StorageLayer.getStoragesForApp(main, tenantIdentifier.toAppIdentifier());
-        return new AppIdentifierWithStorage(tenantIdentifier.getConnectionUriDomain(), tenantIdentifier.getAppId(),
-                storage, storages);
+        return context.getAppIdentifierWithStorage(main);
     }
 
     protected TenantIdentifierWithStorageAndUserIdMapping getTenantIdentifierWithStorageAndUserIdMappingFromRequest(
             HttpServletRequest req, String userId, UserIdType userIdType)
             throws StorageQueryException, TenantOrAppNotFoundException, UnknownUserIdException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
+        TenantIdentifier tenantIdentifier = getRequestContext(req).tenantIdentifier;
         return StorageLayer.getTenantIdentifierWithStorageAndUserIdMappingForUser(main, tenantIdentifier, userId,
                 userIdType);
     }
@@ -364,7 +369,7 @@ public abstract class WebserverAPI extends HttpServlet {
 
     protected boolean checkIPAccess(HttpServletRequest req, HttpServletResponse resp)
             throws TenantOrAppNotFoundException, ServletException, IOException {
-        CoreConfig config = Config.getConfig(getTenantIdentifierWithStorageFromRequest(req), main);
+        CoreConfig config = getRequestContext(req).getConfig(main);
         String allow = config.getIpAllowRegex();
         String deny = config.getIpDenyRegex();
         if (allow == null && deny == null) {
@@ -403,7 +408,7 @@ public abstract class WebserverAPI extends HttpServlet {
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
 
-
+        long startTime = System.nanoTime();
         TenantIdentifier tenantIdentifier = null;
         try {
             try {
@@ -412,8 +417,7 @@ public abstract class WebserverAPI extends HttpServlet {
                 // we do this so that the logs that are printed out have the right "Tenant(.." info in them,
                 // otherwise it will assume the base tenant (with "" CUD), which may not be the one querying
                 // this API right now.
-                tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                        this.getTenantId(req));
+                tenantIdentifier = getRequestContext(req).tenantIdentifier;
                 throw e;
             }
 
@@ -438,11 +442,11 @@ public abstract class WebserverAPI extends HttpServlet {
             if (this.versionNeeded(req)) {
                 assertThatVersionIsCompatible(version);
                 Logging.info(main, tenantIdentifier,
-                        "API called: " + req.getRequestURI() + ". Method: " + req.getMethod() + ". Version: " + version,
-                        false);
+                        () -> "API called: " + req.getRequestURI() + ". Method: " + req.getMethod() + ". Version: " +
+                                version, false);
             } else {
                 Logging.info(main, tenantIdentifier,
-                        "API called: " + req.getRequestURI() + ". Method: " + req.getMethod(), false);
+                        () -> "API called: " + req.getRequestURI() + ". Method: " + req.getMethod(), false);
             }
             super.service(req, resp);
 
@@ -461,6 +465,8 @@ public abstract class WebserverAPI extends HttpServlet {
                 sendTextResponse(402, e.getMessage(), resp);
             } else if (e instanceof BadPermissionException) {
                 sendTextResponse(403, e.getMessage(), resp);
+            } else if (e instanceof PasswordHashingOverloadedException) {
+                sendTextResponse(503, e.getMessage(), resp);
             } else if (e instanceof ServletException) {
                 ServletException se = (ServletException) e;
                 Throwable rootCause = se.getRootCause();
@@ -476,6 +482,8 @@ public abstract class WebserverAPI extends HttpServlet {
                             resp);
                 } else if (rootCause instanceof BadPermissionException) {
                     sendTextResponse(403, rootCause.getMessage(), resp);
+                } else if (rootCause instanceof PasswordHashingOverloadedException) {
+                    sendTextResponse(503, rootCause.getMessage(), resp);
                 } else {
                     sendTextResponse(500, "Internal Error", resp);
                 }
@@ -483,23 +491,51 @@ public abstract class WebserverAPI extends HttpServlet {
                 sendTextResponse(500, "Internal Error", resp);
             }
         }
-        Logging.info(main, tenantIdentifier, "API ended: " + req.getRequestURI() + ". Method: " + req.getMethod(),
+        Logging.info(main, tenantIdentifier, () -> "API ended: " + req.getRequestURI() + ". Method: " + req.getMethod(),
                 false);
 
+        long durationNanos = System.nanoTime() - startTime;
+        updateMetrics(resp.getStatus(), durationNanos);
+
         if (tenantIdentifier != null) {
             try {
-                RequestStats.getInstance(main, tenantIdentifier.toAppIdentifier()).updateRequestStats();
+                RequestStats.getInstance(main, tenantIdentifier.toAppIdentifier())
+                        .updateRequestStats(getPath(), resp.getStatus(), durationNanos / 1000000);
             } catch (TenantOrAppNotFoundException e) {
                 // Ignore the error as we would have already sent the response for tenantNotFound
             }
         }
     }
 
+    private void updateMetrics(int statusCode, long durationNanos) {
+        Metrics.Timer timer = this.requestDurationTimer;
+        if (timer == null) {
+            timer = Metrics.getInstance(main).timer("supertokens_http_request_duration_seconds",
+                    "Time taken to handle requests, per API path", "path", getPath());
+            this.requestDurationTimer = timer;
+        }
+        timer.record(durationNanos);
+
+        this.responseCounters.computeIfAbsent(statusCode,
+                code -> Metrics.getInstance(main).counter("supertokens_http_responses_total",
+                        "Number of responses sent, per API path and status code", "path", getPath(), "status",
+                        code + "")).inc();
+    }
+
     protected String getRIDFromRequest(HttpServletRequest req) {
         return req.getHeader("rId");
     }
 
     protected SemVer getVersionFromRequest(HttpServletRequest req) throws ServletException {
+        RequestContext context = getRequestContext(req);
+        if (context.version != null) {
+            return context.version;
+        }
+        context.version = getVersionFromRequestHeader(req);
+        return context.version;
+    }
+
+    private SemVer getVersionFromRequestHeader(HttpServletRequest req) throws ServletException {
         try {
             SemVer maxCDIVersion = getLatestCDIVersionForRequest(req);
             String version = req.getHeader("cdi-version");
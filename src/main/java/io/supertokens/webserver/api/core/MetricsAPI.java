@@ -0,0 +1,67 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.webserver.api.core;
+
+import io.supertokens.Main;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.multitenancy.exception.BadPermissionException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.webserver.WebserverAPI;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+// exposes the metrics of this core in the Prometheus text format. These are for the whole process, so this can only
+// be queried from the base tenant.
+public class MetricsAPI extends WebserverAPI {
+    private static final long serialVersionUID = 1L;
+
+    public MetricsAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    protected boolean versionNeeded(HttpServletRequest req) {
+        return false;
+    }
+
+    @Override
+    public String getPath() {
+        return "/metrics";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        try {
+            TenantIdentifier tenantIdentifier = getTenantIdentifierWithStorageFromRequest(req);
+            if (!tenantIdentifier.equals(new TenantIdentifier(null, null, null))) {
+                throw new ServletException(new BadPermissionException(
+                        "you can call this only from the base connection uri domain, public app and tenant"));
+            }
+        } catch (TenantOrAppNotFoundException e) {
+            throw new ServletException(e);
+        }
+
+        resp.setStatus(200);
+        resp.setHeader("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+        resp.getWriter().print(Metrics.getInstance(main).getPrometheusText());
+    }
+}
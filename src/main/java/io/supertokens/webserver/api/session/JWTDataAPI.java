@@ -76,10 +76,10 @@ public class JWTDataAPI extends WebserverAPI {
         try {
             if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v2_21)) {
                 AccessToken.VERSION version = AccessToken.getAccessTokenVersionForCDI(getVersionFromRequest(req));
-                Session.updateSession(tenantIdentifierWithStorage, sessionHandle, null,
+                Session.updateSession(main, tenantIdentifierWithStorage, sessionHandle, null,
                         userDataInJWT, version);
             } else {
-                Session.updateSessionBeforeCDI2_21(tenantIdentifierWithStorage, sessionHandle,
+                Session.updateSessionBeforeCDI2_21(main, tenantIdentifierWithStorage, sessionHandle,
                         null, userDataInJWT);
             }
 
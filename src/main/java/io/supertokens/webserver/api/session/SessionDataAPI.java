@@ -110,10 +110,10 @@ public class SessionDataAPI extends WebserverAPI {
             // which is always null here
             if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v2_21)) {
                 AccessToken.VERSION version = AccessToken.getAccessTokenVersionForCDI(getVersionFromRequest(req));
-                Session.updateSession(tenantIdentifierWithStorage, sessionHandle,
+                Session.updateSession(main, tenantIdentifierWithStorage, sessionHandle,
                         userDataInDatabase, null, version);
             } else {
-                Session.updateSessionBeforeCDI2_21(tenantIdentifierWithStorage, sessionHandle,
+                Session.updateSessionBeforeCDI2_21(main, tenantIdentifierWithStorage, sessionHandle,
                         userDataInDatabase, null);
             }
 
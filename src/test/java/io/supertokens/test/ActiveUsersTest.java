@@ -2,12 +2,28 @@ package io.supertokens.test;
 
 import com.google.gson.JsonObject;
 import io.supertokens.ActiveUsers;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.flushActiveUsers.FlushActiveUsers;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifierWithStorage;
+import io.supertokens.storageLayer.BatchedActiveUsersStorage;
+import io.supertokens.storageLayer.DailyActiveUsersStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
 import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.totp.Totp;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
@@ -15,7 +31,9 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import java.util.HashMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 
@@ -212,4 +230,262 @@ public class ActiveUsersTest {
         assert res.get("count").getAsInt() == 2;
     }
 
+    @Test
+    public void updatesAreBufferedAndWrittenOncePerUser() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        long now = System.currentTimeMillis();
+        ActiveUsersStorage storage = (ActiveUsersStorage) StorageLayer.getStorage(main);
+
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user2");
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user1");
+
+        // nothing is written till the buffer is flushed
+        assertEquals(2, ActiveUsersBuffer.getInstance(main).getSize());
+        assertEquals(0, storage.countUsersActiveSince(new AppIdentifier(null, null), now));
+
+        // counting the active users flushes the buffer first
+        assertEquals(2, ActiveUsers.countUsersActiveSince(main, now));
+        assertEquals(0, ActiveUsersBuffer.getInstance(main).getSize());
+        assertEquals(2, storage.countUsersActiveSince(new AppIdentifier(null, null), now));
+        assertEquals(2, Metrics.getInstance(main).counter("supertokens_active_users_flushed_total", "").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void cronjobWritesTheBufferedUpdates() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(FlushActiveUsers.RESOURCE_KEY, 1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        long now = System.currentTimeMillis();
+        ActiveUsersStorage storage = (ActiveUsersStorage) StorageLayer.getStorage(main);
+
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user2");
+
+        Thread.sleep(2500);
+
+        assertEquals(0, ActiveUsersBuffer.getInstance(main).getSize());
+        assertEquals(2, storage.countUsersActiveSince(new AppIdentifier(null, null), now));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void updatesAreWrittenRightAwayWhenTheBufferIsFull() throws Exception {
+        Utils.setValueInConfig("active_users_buffer_max_size", "1");
+
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        long now = System.currentTimeMillis();
+        ActiveUsersStorage storage = (ActiveUsersStorage) StorageLayer.getStorage(main);
+
+        ActiveUsers.updateLastActive(main, "user1");
+        ActiveUsers.updateLastActive(main, "user2");
+        ActiveUsers.updateLastActive(main, "user1");
+
+        // user1 is in the buffer, and user2 was written since the buffer was full
+        assertEquals(1, ActiveUsersBuffer.getInstance(main).getSize());
+        assertEquals(1, storage.countUsersActiveSince(new AppIdentifier(null, null), now));
+        assertEquals(2, ActiveUsers.countUsersActiveSince(main, now));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void deletedUsersAndAppsAreRemovedFromTheBuffer() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        long now = System.currentTimeMillis();
+        ActiveUsersBuffer buffer = ActiveUsersBuffer.getInstance(main);
+
+        AuthRecipeUserInfo user = EmailPassword.signUp(main, "test@example.com", "password");
+        ActiveUsers.updateLastActive(main, user.getSupertokensUserId());
+        ActiveUsers.updateLastActive(main, "user2");
+        ActiveUsers.updateLastActive(main, "user3");
+        assertEquals(3, buffer.getSize());
+
+        AuthRecipe.deleteUser(main, user.getSupertokensUserId());
+        assertEquals(2, buffer.getSize());
+
+        ActiveUsers.removeActiveUser(new AppIdentifierWithStorage(null, null, StorageLayer.getStorage(main)), main,
+                "user2");
+        assertEquals(1, buffer.getSize());
+
+        // the deleted users are not written back by the flush
+        assertEquals(1, ActiveUsers.countUsersActiveSince(main, now));
+
+        buffer.add(new AppIdentifier(null, "a1"), "user1");
+        buffer.add(new AppIdentifier(null, "a1"), "user2");
+        assertEquals(2, buffer.getSize());
+        buffer.removeApp(new AppIdentifier(null, "a1"));
+        assertEquals(0, buffer.getSize());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void dailyCountsAreTheSameAsCountingEachDay() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        Storage storage = StorageLayer.getStorage(main);
+        if (!(storage instanceof DailyActiveUsersStorage)) {
+            return;
+        }
+
+        long oneDay = 24 * 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        long today = now - (now % oneDay);
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        // users at the edges of days, and some that are older than all the days
+        Map<String, Long> lastActiveTimes = new HashMap<>();
+        lastActiveTimes.put("user1", now);
+        lastActiveTimes.put("user2", today);
+        lastActiveTimes.put("user3", today - 1);
+        lastActiveTimes.put("user4", today - oneDay);
+        lastActiveTimes.put("user5", today - 10 * oneDay - 1);
+        lastActiveTimes.put("user6", today - 29 * oneDay);
+        lastActiveTimes.put("user7", today - 29 * oneDay - 1);
+        lastActiveTimes.put("user8", today - 45 * oneDay);
+        ((BatchedActiveUsersStorage) storage).updateLastActive(appIdentifier, lastActiveTimes);
+
+        int[] counts = ((DailyActiveUsersStorage) storage).countUsersActiveSinceEachDay(appIdentifier, today, 30);
+        assertEquals(30, counts.length);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(((ActiveUsersStorage) storage).countUsersActiveSince(appIdentifier, today - i * oneDay),
+                    counts[i]);
+        }
+        assertEquals(2, counts[0]);
+        assertEquals(6, counts[29]);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void dailyTotpAndLinkedAccountCountsAreTheSameAsCountingEachDay() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{
+                        EE_FEATURES.ACCOUNT_LINKING, EE_FEATURES.TOTP});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Main main = process.getProcess();
+        Storage storage = StorageLayer.getStorage(main);
+        if (!(storage instanceof DailyActiveUsersStorage)) {
+            return;
+        }
+
+        long oneDay = 24 * 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        long today = now - (now % oneDay);
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        String[] userIds = new String[6];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = EmailPassword.signUp(main, "user" + i + "@example.com", "password").getSupertokensUserId();
+        }
+
+        // users 0, 2 and 4 have TOTP
+        Totp.registerDevice(main, userIds[0], "device", 1, 30);
+        Totp.registerDevice(main, userIds[2], "device", 1, 30);
+        Totp.registerDevice(main, userIds[4], "device", 1, 30);
+
+        // users 0 and 2 are primary users with another login method each
+        AuthRecipe.createPrimaryUser(main, userIds[0]);
+        AuthRecipe.linkAccounts(main, userIds[1], userIds[0]);
+        AuthRecipe.createPrimaryUser(main, userIds[2]);
+        AuthRecipe.linkAccounts(main, userIds[3], userIds[2]);
+
+        Map<String, Long> lastActiveTimes = new HashMap<>();
+        lastActiveTimes.put(userIds[0], now);
+        lastActiveTimes.put(userIds[1], today - 5 * oneDay);
+        lastActiveTimes.put(userIds[2], today - 3 * oneDay - 1);
+        lastActiveTimes.put(userIds[3], today - oneDay);
+        lastActiveTimes.put(userIds[4], today - 20 * oneDay);
+        lastActiveTimes.put(userIds[5], today - 1);
+        ((BatchedActiveUsersStorage) storage).updateLastActive(appIdentifier, lastActiveTimes);
+
+        int[] totpCounts = ((DailyActiveUsersStorage) storage)
+                .countUsersEnabledTotpAndActiveSinceEachDay(appIdentifier, today, 30);
+        int[] linkedAccountCounts = ((DailyActiveUsersStorage) storage)
+                .countUsersThatHaveMoreThanOneLoginMethodAndActiveSinceEachDay(appIdentifier, today, 30);
+        assertEquals(30, totpCounts.length);
+        assertEquals(30, linkedAccountCounts.length);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(((ActiveUsersStorage) storage)
+                            .countUsersEnabledTotpAndActiveSince(appIdentifier, today - i * oneDay),
+                    totpCounts[i]);
+            assertEquals(((ActiveUsersStorage) storage)
+                            .countUsersThatHaveMoreThanOneLoginMethodAndActiveSince(appIdentifier,
+                                    today - i * oneDay),
+                    linkedAccountCounts[i]);
+        }
+        assertEquals(1, totpCounts[0]);
+        assertEquals(3, totpCounts[29]);
+        // only the last active time of the primary user counts
+        assertEquals(1, linkedAccountCounts[0]);
+        assertEquals(1, linkedAccountCounts[3]);
+        assertEquals(2, linkedAccountCounts[4]);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
 }
@@ -26,6 +26,7 @@ import io.supertokens.cronjobs.syncCoreConfigWithDb.SyncCoreConfigWithDb;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
@@ -351,6 +352,61 @@ public class CronjobTest {
         }
     }
 
+    static class SlowPerUserPoolCronjob extends CronTask {
+        private static final String RESOURCE_ID = "io.supertokens.test.CronjobTest.SlowPerUserPoolCronjob";
+
+        private final long taskTimeMS;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+
+        private SlowPerUserPoolCronjob(Main main, List<List<TenantIdentifier>> tenantsInfo, long taskTimeMS) {
+            super("SlowPerUserPoolCronjob", main, tenantsInfo, false);
+            this.taskTimeMS = taskTimeMS;
+        }
+
+        // every user pool is the base tenant, since tests with the in memory db only have one storage
+        public static SlowPerUserPoolCronjob getInstance(Main main, int numberOfUserPools, long taskTimeMS) {
+            try {
+                return (SlowPerUserPoolCronjob) main.getResourceDistributor()
+                        .getResource(new TenantIdentifier(null, null, null), RESOURCE_ID);
+            } catch (TenantOrAppNotFoundException e) {
+                List<List<TenantIdentifier>> userPools = new ArrayList<>();
+                for (int i = 0; i < numberOfUserPools; i++) {
+                    userPools.add(List.of(new TenantIdentifier(null, null, null)));
+                }
+                return (SlowPerUserPoolCronjob) main.getResourceDistributor()
+                        .setResource(new TenantIdentifier(null, null, null), RESOURCE_ID,
+                                new SlowPerUserPoolCronjob(main, userPools, taskTimeMS));
+            }
+        }
+
+        @Override
+        public int getIntervalTimeSeconds() {
+            return 1;
+        }
+
+        @Override
+        public int getInitialWaitTimeSeconds() {
+            return 0;
+        }
+
+        @Override
+        protected void doTaskPerStorage(Storage storage) throws Exception {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(taskTimeMS);
+                done.incrementAndGet();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw e;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
     @Rule
     public TestRule watchman = Utils.getOnFailure();
 
@@ -842,6 +898,52 @@ public class CronjobTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testThatPerUserPoolWorkIsLimitedByMaxConcurrencyPerJob() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("cronjob_max_concurrency_per_job", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SlowPerUserPoolCronjob cronjob = SlowPerUserPoolCronjob.getInstance(process.getProcess(), 6, 100);
+        Cronjobs.addCronjob(process.getProcess(), cronjob);
+
+        Thread.sleep(800);
+        assertEquals(6, cronjob.done.get());
+        assertEquals(2, cronjob.maxRunning.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatRunsThatGoOverTheIntervalAreStoppedAndCounted() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("cronjob_max_concurrency_per_job", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // each run can only finish 2 of the 4 user pools within its interval of 1 second
+        SlowPerUserPoolCronjob cronjob = SlowPerUserPoolCronjob.getInstance(process.getProcess(), 4, 400);
+        Cronjobs.addCronjob(process.getProcess(), cronjob);
+
+        Thread.sleep(1500);
+        assertTrue(cronjob.done.get() >= 2 && cronjob.done.get() < 4);
+        assertEquals(1, Metrics.getInstance(process.getProcess())
+                .counter("supertokens_cronjob_overruns_total", "", "job", "SlowPerUserPoolCronjob").get());
+        assertEquals(1, cronjob.maxRunning.get());
+        // the user pool that was being worked on is not interrupted, so stopping the run is not an error
+        assertEquals(0, cronjob.interrupted.get());
+        assertEquals(0, Metrics.getInstance(process.getProcess())
+                .counter("supertokens_cronjob_errors_total", "", "job", "SlowPerUserPoolCronjob").get());
+        assertNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.CRON_TASK_ERROR_LOGGING, 100));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void testThatNoCronJobIntervalIsMoreThanADay() throws Exception {
         String[] args = {"../"};
@@ -995,6 +1097,7 @@ public class CronjobTest {
         intervals.put("io.supertokens.cronjobs.deleteExpiredDashboardSessions.DeleteExpiredDashboardSessions", 43200);
         intervals.put("io.supertokens.cronjobs.telemetry.Telemetry", 86400);
         intervals.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys", 86400);
+        intervals.put("io.supertokens.cronjobs.flushActiveUsers.FlushActiveUsers", 60);
 
         Map<String, Integer> delays = new HashMap<>();
         delays.put("io.supertokens.ee.cronjobs.EELicenseCheck", 86400);
@@ -1007,9 +1110,10 @@ public class CronjobTest {
         delays.put("io.supertokens.cronjobs.deleteExpiredDashboardSessions.DeleteExpiredDashboardSessions", 0);
         delays.put("io.supertokens.cronjobs.telemetry.Telemetry", 0);
         delays.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys", 0);
+        delays.put("io.supertokens.cronjobs.flushActiveUsers.FlushActiveUsers", 60);
 
         List<CronTask> allTasks = Cronjobs.getInstance(process.getProcess()).getTasks();
-        assertEquals(10, allTasks.size());
+        assertEquals(11, allTasks.size());
 
         for (CronTask task : allTasks) {
             assertEquals(intervals.get(task.getClass().getName()).intValue(), task.getIntervalTimeSeconds());
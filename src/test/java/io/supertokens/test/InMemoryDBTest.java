@@ -23,6 +23,10 @@ import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.ConnectionWithLocks;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.passwordless.Passwordless;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.session.SessionStorage;
@@ -37,6 +41,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -145,6 +151,106 @@ public class InMemoryDBTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testConnectionsAreReusedAfterConcurrentUpdates() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String userId = "userId";
+
+        ExecutorService es = Executors.newFixedThreadPool(100);
+
+        for (int i = 0; i < 500; i++) {
+            final int ind = i;
+            es.execute(() -> {
+                JsonObject metadataUpdate = new JsonObject();
+                metadataUpdate.addProperty(String.valueOf(ind), ind);
+                try {
+                    UserMetadata.updateUserMetadata(process.getProcess(), userId, metadataUpdate);
+                } catch (Exception e) {
+                    // We ignore all exceptions here, if something failed it will show up in the asserts
+                }
+            });
+        }
+
+        es.shutdown();
+        es.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertEquals(500, UserMetadata.getUserMetadata(process.getProcess(), userId).entrySet().size());
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        int poolSize = ConnectionPool.getPoolSize(start);
+        assertTrue(poolSize > 0);
+        assertTrue(poolSize <= 20);
+        // every connection has been given back to the pool
+        assertEquals(poolSize, ConnectionPool.getNumberOfIdleConnections(start));
+
+        String metrics = Metrics.getInstance(process.getProcess()).getPrometheusText();
+        assertTrue(metrics.contains("\nsupertokens_inmemorydb_connections " + poolSize + "\n"));
+        assertTrue(metrics.contains("\nsupertokens_inmemorydb_idle_connections " + poolSize + "\n"));
+        assertTrue(metrics.contains("\nsupertokens_inmemorydb_connection_wait_seconds_count "));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testLockingKeysInOppositeOrderFindsDeadlock() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        ConnectionWithLocks con1 = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        ConnectionWithLocks con2 = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        con1.lock("key1");
+        con2.lock("key2");
+
+        AtomicBoolean deadlockFound = new AtomicBoolean(false);
+        Thread t = new Thread(() -> {
+            try {
+                con2.lock("key1");
+            } catch (SQLTransactionRollbackException e) {
+                deadlockFound.set(true);
+            } catch (SQLException ignored) {
+            } finally {
+                try {
+                    con2.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        });
+        t.start();
+
+        try {
+            con1.lock("key2");
+        } catch (SQLTransactionRollbackException e) {
+            deadlockFound.set(true);
+        } finally {
+            con1.close();
+        }
+        t.join();
+
+        assertTrue(deadlockFound.get());
+
+        // both keys are free again
+        ConnectionWithLocks con3 = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        con3.lock("key1");
+        con3.lock("key2");
+        con3.close();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void createAndForgetSession() throws Exception {
         {
@@ -42,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -129,6 +130,46 @@ public class LoggingTest {
 
     }
 
+    @Test
+    public void asyncLogging() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("async_logging_queue_size", "100");
+        Utils.setValueInConfig("log_level", "INFO");
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        AtomicBoolean debugMessageBuilt = new AtomicBoolean(false);
+        Logging.debug(process.getProcess(), TenantIdentifier.BASE_TENANT, () -> {
+            debugMessageBuilt.set(true);
+            return "Debug from test";
+        });
+        assertFalse(debugMessageBuilt.get());
+
+        Logging.info(process.getProcess(), TenantIdentifier.BASE_TENANT, () -> "Async info from test", false);
+
+        File infoLog = new File(Config.getConfig(process.getProcess()).getInfoLogPath(process.getProcess()));
+
+        // stopping the core flushes the queue
+        process.kill();
+        EventAndException event1 = process.checkOrWaitForEvent(PROCESS_STATE.STOPPED);
+        assertNotNull(event1);
+
+        boolean infoFlag = false;
+        try (Scanner scanner = new Scanner(infoLog, StandardCharsets.UTF_8)) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (line.contains(process.getProcess().getProcessId()) && line.contains("Async info from test")) {
+                    // the caller is found even though the log is written from another thread
+                    assertTrue(line.contains("LoggingTest.asyncLogging"));
+                    infoFlag = true;
+                    break;
+                }
+            }
+        }
+        assertTrue(infoFlag);
+    }
+
     @Test
     public void customLogging() throws Exception {
         try {
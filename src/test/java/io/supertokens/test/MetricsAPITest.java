@@ -0,0 +1,182 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class MetricsAPITest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testMetricsAreUpdatedAndReturnedInPrometheusFormat() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+
+        String res = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/hello", null, 1000, 1000,
+                null, Utils.getCdiVersionStringLatestForTests(), "");
+        assertEquals("Hello", res);
+
+        Metrics.Counter helloResponses = Metrics.getInstance(process.getProcess())
+                .counter("supertokens_http_responses_total", "", "path", "/hello", "status", "200");
+        assertEquals(1, helloResponses.get());
+        Metrics.Timer helloDuration = Metrics.getInstance(process.getProcess())
+                .timer("supertokens_http_request_duration_seconds", "", "path", "/hello");
+        assertEquals(1, helloDuration.getCount());
+        assertTrue(helloDuration.getTotalNanos() > 0);
+
+        // the response is returned without new lines
+        String metrics = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/metrics", null, 1000, 1000, null, null, "");
+        assertTrue(metrics.contains("# TYPE supertokens_http_responses_total counter"));
+        assertTrue(metrics.contains("supertokens_http_responses_total{path=\"/hello\",status=\"200\"} 1"));
+        assertTrue(metrics.contains("supertokens_http_request_duration_seconds_count{path=\"/hello\"} 1"));
+        assertTrue(metrics.contains("# TYPE supertokens_webserver_threads_busy gauge"));
+        assertTrue(metrics.contains("supertokens_webserver_threads_max " +
+                io.supertokens.config.Config.getConfig(process.getProcess()).getMaxThreadPoolSize()));
+        assertTrue(metrics.contains("supertokens_password_hashing_duration_seconds_count{algorithm=\"bcrypt\"} 1"));
+        assertTrue(metrics.contains("supertokens_password_hashing_queue_size{algorithm=\"argon2\"} 0"));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() == STORAGE_TYPE.SQL) {
+            assertTrue(metrics.contains("supertokens_storage_transaction_duration_seconds_count"));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testCountersWithAndWithoutSupplierCannotBeMixed() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+
+        metrics.counter("test_supplied_total", "", () -> 5, "name", "a");
+        try {
+            metrics.counter("test_supplied_total", "", "name", "a");
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        // the other labels of the same metric can still be either kind
+        metrics.counter("test_supplied_total", "", "name", "b").inc();
+
+        metrics.counter("test_incremented_total", "", "name", "a").inc();
+        try {
+            metrics.counter("test_incremented_total", "", () -> 5, "name", "a");
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        assertEquals(1, metrics.counter("test_incremented_total", "", "name", "a").get());
+
+        // registering a supplier again replaces the older one
+        metrics.counter("test_supplied_total", "", () -> 7, "name", "a");
+
+        String text = metrics.getPrometheusText();
+        assertTrue(text.contains("test_supplied_total{name=\"a\"} 7\n"));
+        assertTrue(text.contains("test_supplied_total{name=\"b\"} 1\n"));
+        assertTrue(text.contains("test_incremented_total{name=\"a\"} 1\n"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testMetricsAPIRequiresAPIKeyAndBaseTenant() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        Utils.setValueInConfig("api_keys", "abctijenbogweg=-2438243u98");
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/metrics", null, 1000, 1000, null, null, "");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(401, e.statusCode);
+        }
+
+        String metrics = HttpRequestForTesting.sendJsonRequest(process.getProcess(), "",
+                "http://localhost:3567/metrics", null, 1000, 1000, null, null, "GET", "abctijenbogweg=-2438243u98",
+                null);
+        assertTrue(metrics.contains("# TYPE supertokens_http_responses_total counter"));
+
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                new TenantIdentifier(null, "a1", null),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                new JsonObject()
+        ), false);
+
+        try {
+            HttpRequestForTesting.sendJsonRequest(process.getProcess(), "",
+                    "http://localhost:3567/appid-a1/metrics", null, 1000, 1000, null, null, "GET",
+                    "abctijenbogweg=-2438243u98", null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(403, e.statusCode);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -37,10 +37,13 @@ import io.supertokens.test.TestingProcessManager.TestingProcess;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
 import io.supertokens.test.httpRequest.HttpResponseException;
 import io.supertokens.thirdparty.InvalidProviderConfigException;
+import io.supertokens.webserver.PathRouter;
 import io.supertokens.webserver.RecipeRouter;
 import io.supertokens.webserver.Webserver;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.AfterClass;
@@ -53,6 +56,7 @@ import org.mockito.Mockito;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -2901,4 +2905,224 @@ public class PathRouterTest extends Mockito {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void tenantIdentifierIsResolvedOncePerRequest() throws Exception {
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Multitenancy.addNewOrUpdateAppOrTenant(
+                process.getProcess(),
+                new TenantConfig(
+                        new TenantIdentifier(null, null, "t1"),
+                        new EmailPasswordConfig(false),
+                        new ThirdPartyConfig(false, null),
+                        new PasswordlessConfig(false),
+                        new JsonObject()
+                ),
+                false);
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean checkAPIKey(HttpServletRequest req) {
+                return false;
+            }
+
+            @Override
+            public String getPath() {
+                return "/test";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException, ServletException {
+                try {
+                    TenantIdentifierWithStorage tenantIdentifierWithStorage =
+                            this.getTenantIdentifierWithStorageFromRequest(req);
+                    boolean isSame = tenantIdentifierWithStorage == this.getTenantIdentifierWithStorageFromRequest(req)
+                            && this.getAppIdentifierWithStorage(req) == this.getAppIdentifierWithStorage(req)
+                            && this.getVersionFromRequest(req) == this.getVersionFromRequest(req);
+                    super.sendTextResponse(200, tenantIdentifierWithStorage.getTenantId() + "," + isSame, resp);
+                } catch (TenantOrAppNotFoundException e) {
+                    throw new ServletException(e);
+                }
+            }
+        });
+
+        {
+            String response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/t1/test", new HashMap<>(), 1000, 1000, null,
+                    Utils.getCdiVersionStringLatestForTests(), "");
+            assertEquals("t1,true", response);
+        }
+
+        {
+            String response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/appid-public/test/", new HashMap<>(), 1000, 1000, null,
+                    Utils.getCdiVersionStringLatestForTests(), "");
+            assertEquals("public,true", response);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void manyAPIsWithCollidingHashesAreRoutedToTheirOwnPath() throws Exception {
+        List<String> handledBy = new ArrayList<>();
+        PathRouter router = new PathRouter(null);
+        router.addAPI(new RecordingAPI("/", handledBy));
+        // these have the same hashCode, so they always start probing from the same slot
+        router.addAPI(new RecordingAPI("/c0", handledBy));
+        router.addAPI(new RecordingAPI("/an", handledBy));
+        // the table grows many times while these are added
+        for (int i = 0; i < 1000; i++) {
+            router.addAPI(new RecordingAPI("/recipe/api" + i, handledBy));
+        }
+
+        assertEquals("/c0", route(router, "/c0", handledBy));
+        assertEquals("/an", route(router, "/an", handledBy));
+        assertEquals("/an", route(router, "/t1/an/", handledBy));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("/recipe/api" + i, route(router, "/recipe/api" + i, handledBy));
+            assertEquals("/recipe/api" + i, route(router, "/t1/recipe/api" + i + "/", handledBy));
+        }
+        assertEquals("/", route(router, "/recipe/api1000", handledBy));
+        assertEquals("/", route(router, "/recipe/api", handledBy));
+    }
+
+    @Test
+    public void tenantIdThatIsAnInvalidWordIsNotRemovedFromThePath() throws Exception {
+        List<String> handledBy = new ArrayList<>();
+        PathRouter router = new PathRouter(null);
+        router.addAPI(new RecordingAPI("/", handledBy));
+        router.addAPI(new RecordingAPI("/user", handledBy));
+        router.addAPI(new RecordingAPI("/recipe/user", handledBy));
+
+        assertEquals("/user", route(router, "/t1/user", handledBy));
+        assertEquals("/recipe/user", route(router, "/recipe/user", handledBy));
+        assertEquals("/recipe/user", route(router, "/t1/recipe/user", handledBy));
+        for (String word : io.supertokens.webserver.Utils.INVALID_WORDS_FOR_TENANTID) {
+            assertEquals("/", route(router, "/" + word + "/user", handledBy));
+            assertEquals("/", route(router, "/appid-a1/" + word + "/user", handledBy));
+        }
+        // a tenantId can only have lower case letters, numbers and "-"
+        assertEquals("/", route(router, "/t_1/user", handledBy));
+        assertEquals("/", route(router, "//user", handledBy));
+    }
+
+    @Test
+    public void pathsAreMatchedIgnoringCase() throws Exception {
+        List<String> handledBy = new ArrayList<>();
+        PathRouter router = new PathRouter(null);
+        router.addAPI(new RecordingAPI("/", handledBy));
+        router.addAPI(new RecordingAPI("/recipe/user", handledBy));
+        router.addAPI(new RecordingAPI("/Recipe/SignIn", handledBy));
+
+        assertEquals("/recipe/user", route(router, "/Recipe/USER", handledBy));
+        assertEquals("/recipe/user", route(router, "/T1/Recipe/User/", handledBy));
+        assertEquals("/recipe/user", route(router, "/AppId-A1/T1/recipe/user", handledBy));
+        assertEquals("/Recipe/SignIn", route(router, "/recipe/signin", handledBy));
+        assertEquals("/Recipe/SignIn", route(router, "/t1/RECIPE/SIGNIN", handledBy));
+    }
+
+    @Test
+    public void appIdAndTenantIdArePickedFromThePath() throws Exception {
+        List<String> handledBy = new ArrayList<>();
+        PathRouter router = new PathRouter(null);
+        router.addAPI(new RecordingAPI("/", handledBy));
+        router.addAPI(new RecordingAPI("/user", handledBy));
+        router.addAPI(new RecordingAPI("/recipe/user", handledBy));
+
+        assertEquals("/user", route(router, "/appid-x/user", handledBy));
+        assertEquals("/user", route(router, "/appid-x/t1/user", handledBy));
+        assertEquals("/user", route(router, "/appid-x/t1/user/", handledBy));
+        assertEquals("/recipe/user", route(router, "/appid-x/recipe/user", handledBy));
+        assertEquals("/recipe/user", route(router, "/appid-x/t1/recipe/user", handledBy));
+
+        // the appId must come before the tenantId, and there can only be one of each
+        assertEquals("/", route(router, "/t1/appid-x/user", handledBy));
+        assertEquals("/", route(router, "/appid-x/t1/t2/user", handledBy));
+        assertEquals("/", route(router, "/appid-x/appid-y/t1/user", handledBy));
+        assertEquals("/", route(router, "/appid-x", handledBy));
+        assertEquals("/", route(router, "/appid-x/t1", handledBy));
+    }
+
+    @Test
+    public void apiThatWasAddedFirstWinsIfMoreThanOneMatches() throws Exception {
+        {
+            List<String> handledBy = new ArrayList<>();
+            PathRouter router = new PathRouter(null);
+            router.addAPI(new RecordingAPI("/", handledBy));
+            router.addAPI(new RecordingAPI("/x", handledBy));
+            router.addAPI(new RecordingAPI("/t1/x", handledBy));
+
+            // "/t1/x" is the path without the appId, and "/x" is the path without the appId and tenantId
+            assertEquals("/x", route(router, "/appid-a1/t1/x", handledBy));
+            // an exact match is always picked first
+            assertEquals("/t1/x", route(router, "/t1/x", handledBy));
+        }
+
+        {
+            List<String> handledBy = new ArrayList<>();
+            PathRouter router = new PathRouter(null);
+            router.addAPI(new RecordingAPI("/t1/x", handledBy));
+            router.addAPI(new RecordingAPI("/x", handledBy));
+            router.addAPI(new RecordingAPI("/", handledBy));
+
+            assertEquals("/t1/x", route(router, "/appid-a1/t1/x", handledBy));
+            assertEquals("/x", route(router, "/t2/x", handledBy));
+        }
+
+        {
+            // APIs that only differ in case are both allowed, and the first one is used
+            List<String> handledBy = new ArrayList<>();
+            PathRouter router = new PathRouter(null);
+            router.addAPI(new RecordingAPI("/Case", handledBy));
+            router.addAPI(new RecordingAPI("/case", handledBy));
+            router.addAPI(new RecordingAPI("/", handledBy));
+
+            assertEquals("/Case", route(router, "/case", handledBy));
+            assertEquals("/Case", route(router, "/t1/CASE/", handledBy));
+        }
+    }
+
+    private static String route(PathRouter router, String path, List<String> handledBy) throws Exception {
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getServletPath()).thenReturn(path);
+        router.service((ServletRequest) req, (ServletResponse) mock(HttpServletResponse.class));
+        assertEquals(1, handledBy.size());
+        return handledBy.remove(0);
+    }
+
+    private static class RecordingAPI extends WebserverAPI {
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final transient List<String> handledBy;
+
+        RecordingAPI(String path, List<String> handledBy) {
+            super(null, "");
+            this.path = path;
+            this.handledBy = handledBy;
+        }
+
+        @Override
+        public String getPath() {
+            return this.path;
+        }
+
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) {
+            this.handledBy.add(this.path);
+        }
+    }
 }
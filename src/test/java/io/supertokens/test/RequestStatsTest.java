@@ -126,6 +126,116 @@ public class RequestStatsTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testPerApiStats() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        int numRequests = 10;
+        for (int i = 0; i < numRequests; i++) {
+            TestMultitenancyAPIHelper.epSignUp(TenantIdentifier.BASE_TENANT, "test" + i + "@example.com", "password",
+                    process.getProcess());
+        }
+
+        JsonObject stats = HttpRequestForTesting
+                .sendGETRequest(process.getProcess(), "", "http://localhost:3567/requests/stats", null, 5000,
+                        5000, null, Utils.getCdiVersionStringLatestForTests(), null);
+
+        JsonObject signUpStats = stats.get("apis").getAsJsonObject().get("/recipe/signup").getAsJsonObject();
+        assertEquals(numRequests, signUpStats.get("count").getAsLong());
+        assertEquals(numRequests, signUpStats.get("statusCodes").getAsJsonObject().get("200").getAsLong());
+
+        JsonObject latency = signUpStats.get("latencyInMs").getAsJsonObject();
+        assertTrue(latency.get("p50").getAsLong() <= latency.get("p95").getAsLong());
+        assertTrue(latency.get("p95").getAsLong() <= latency.get("p99").getAsLong());
+        assertTrue(latency.get("p99").getAsLong() <= latency.get("max").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testStatsHistoryWithSimulatedTime() throws Exception {
+        long start = (System.currentTimeMillis() / 3600000) * 3600000; // start of the current hour
+        RequestStats requestStats = RequestStats.createForTesting(start);
+
+        // 3 requests in the first minute, two of them in the same second
+        requestStats.updateRequestStats(start, "/recipe/signin", 200, 10);
+        requestStats.updateRequestStats(start + 500, "/recipe/signin", 200, 10);
+        requestStats.updateRequestStats(start + 1000, "/recipe/signin", 200, 10);
+        // nothing for 2 hours, then 1 request
+        long later = start + 2 * 3600000 + 5 * 60000;
+        requestStats.updateRequestStats(later, "/recipe/signin", 200, 10);
+
+        JsonObject stats = requestStats.getStats(later + 60000);
+        long atMinute = (later + 60000) / 60000;
+        assertEquals(atMinute, stats.get("atMinute").getAsLong());
+
+        JsonArray avgRps = stats.get("averageRequestsPerSecond").getAsJsonArray();
+        JsonArray peakRps = stats.get("peakRequestsPerSecond").getAsJsonArray();
+        assertEquals(1440, avgRps.size());
+        assertEquals(1440, peakRps.size());
+        for (int i = 0; i < 1440; i++) {
+            long minute = atMinute - 1440 + i;
+            if (minute < start / 60000) {
+                assertEquals(-1, avgRps.get(i).getAsDouble(), 0);
+                assertEquals(-1, peakRps.get(i).getAsInt());
+            } else if (minute == start / 60000) {
+                assertEquals(3 / 60.0, avgRps.get(i).getAsDouble(), 0);
+                assertEquals(2, peakRps.get(i).getAsInt());
+            } else if (minute == later / 60000) {
+                assertEquals(1 / 60.0, avgRps.get(i).getAsDouble(), 0);
+                assertEquals(1, peakRps.get(i).getAsInt());
+            } else {
+                assertEquals(0, avgRps.get(i).getAsDouble(), 0);
+                assertEquals(0, peakRps.get(i).getAsInt());
+            }
+        }
+
+        // a day later, the first minute is no longer part of the stats
+        stats = requestStats.getStats(start + 24 * 3600000 + 60000);
+        avgRps = stats.get("averageRequestsPerSecond").getAsJsonArray();
+        for (int i = 0; i < 1440; i++) {
+            long minute = stats.get("atMinute").getAsLong() - 1440 + i;
+            if (minute == later / 60000) {
+                assertEquals(1 / 60.0, avgRps.get(i).getAsDouble(), 0);
+            } else {
+                assertEquals(0, avgRps.get(i).getAsDouble(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testHistoryOnlyGrowsForMinutesWithRequests() throws Exception {
+        long start = System.currentTimeMillis();
+        long day = 24 * 3600000;
+
+        // an app with a single request keeps the initial history
+        RequestStats idleStats = RequestStats.createForTesting(start);
+        idleStats.updateRequestStats(start, "/recipe/signin", 200, 1);
+        assertNotNull(idleStats.getStats(start + day));
+        assertEquals(8, idleStats.getHistoryCapacity());
+
+        // an app that gets a request every 10 minutes for a day has 144 minutes with requests
+        RequestStats sparseStats = RequestStats.createForTesting(start);
+        for (long time = start; time < start + day; time += 10 * 60000) {
+            sparseStats.updateRequestStats(time, "/recipe/signin", 200, 1);
+            sparseStats.updateRequestStats(time, "/recipe/session/verify", 401, 1);
+        }
+        assertNotNull(sparseStats.getStats(start + day));
+        assertEquals(256, sparseStats.getHistoryCapacity());
+
+        // an app that gets requests every minute for two days never keeps more than a day of history
+        RequestStats busyStats = RequestStats.createForTesting(start);
+        for (long time = start; time < start + 2 * day; time += 60000) {
+            busyStats.updateRequestStats(time, "/recipe/signin", 200, 1);
+        }
+        assertNotNull(busyStats.getStats(start + 2 * day));
+        assertEquals(24 * 60, busyStats.getHistoryCapacity());
+    }
+
     @Test
     public void testLastMinuteStatsPerApp() throws Exception {
         String[] args = {"../"};
@@ -29,6 +29,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 public class ResourceDistributorTest {
@@ -104,4 +110,169 @@ public class ResourceDistributorTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
 
     }
+
+    @Test
+    public void testResourceIsAlwaysFoundWhileBeingReloadedWithLock() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ResourceDistributor resourceDistributor = process.getProcess().getResourceDistributor();
+        resourceDistributor.setResource(TenantIdentifier.BASE_TENANT, ResourceA.RESOURCE_ID, new ResourceA());
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicInteger notFoundCount = new AtomicInteger(0);
+        ExecutorService es = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            es.execute(() -> {
+                while (!done.get()) {
+                    try {
+                        assertTrue(resourceDistributor.getResource(TenantIdentifier.BASE_TENANT,
+                                ResourceA.RESOURCE_ID) instanceof ResourceA);
+                    } catch (TenantOrAppNotFoundException e) {
+                        notFoundCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        // readers that do not find the resource must wait for the writer to finish instead of failing
+        for (int i = 0; i < 1000; i++) {
+            resourceDistributor.withResourceDistributorLock(() -> {
+                resourceDistributor.clearAllResourcesWithResourceKey(ResourceA.RESOURCE_ID);
+                resourceDistributor.setResource(TenantIdentifier.BASE_TENANT, ResourceA.RESOURCE_ID,
+                        new ResourceA());
+                return null;
+            });
+        }
+        done.set(true);
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(0, notFoundCount.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testResourceForUnknownTenantIsFoundRightAfterItIsSet() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ResourceDistributor resourceDistributor = process.getProcess().getResourceDistributor();
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", "t1");
+
+        // the second lookup is answered from the not found cache
+        for (int i = 0; i < 2; i++) {
+            try {
+                resourceDistributor.getResource(t1, ResourceA.RESOURCE_ID);
+                fail();
+            } catch (TenantOrAppNotFoundException e) {
+                // ignored
+            }
+        }
+
+        resourceDistributor.setResource(t1, ResourceA.RESOURCE_ID, new ResourceA());
+        assertTrue(resourceDistributor.getResource(t1, ResourceA.RESOURCE_ID) instanceof ResourceA);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testNotFoundResourceIsLookedUpAgainAfterCacheExpiry() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ResourceDistributor resourceDistributor = process.getProcess().getResourceDistributor();
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", "t1");
+        long refreshes = resourceDistributor.getNumberOfRefreshesForMissingResources();
+
+        // the first lookup refreshes the tenants, the second one is answered from the not found cache
+        for (int i = 0; i < 2; i++) {
+            try {
+                resourceDistributor.getResource(t1, ResourceA.RESOURCE_ID);
+                fail();
+            } catch (TenantOrAppNotFoundException e) {
+                // ignored
+            }
+            assertEquals(refreshes + 1, resourceDistributor.getNumberOfRefreshesForMissingResources());
+        }
+
+        // resources that are not found are cached for 5 seconds
+        Thread.sleep(5500);
+
+        try {
+            resourceDistributor.getResource(t1, ResourceA.RESOURCE_ID);
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // ignored
+        }
+        assertEquals(refreshes + 2, resourceDistributor.getNumberOfRefreshesForMissingResources());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testConcurrentMissesRefreshTheTenantsOnce() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ResourceDistributor resourceDistributor = process.getProcess().getResourceDistributor();
+        long refreshes = resourceDistributor.getNumberOfRefreshesForMissingResources();
+
+        AtomicInteger notFoundCount = new AtomicInteger(0);
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            // each thread looks for a different tenant, so none of them is answered from the not found cache
+            TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", "t" + i);
+            threads[i] = new Thread(() -> {
+                try {
+                    resourceDistributor.getResource(tenantIdentifier, ResourceA.RESOURCE_ID);
+                } catch (TenantOrAppNotFoundException e) {
+                    notFoundCount.incrementAndGet();
+                }
+            });
+        }
+
+        // we hold the lock until all the threads have missed and are waiting for it
+        resourceDistributor.withResourceDistributorLock(() -> {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                while (thread.getState() != Thread.State.BLOCKED) {
+                    Thread.onSpinWait();
+                }
+            }
+            return null;
+        });
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threads.length, notFoundCount.get());
+        assertEquals(refreshes + 1, resourceDistributor.getNumberOfRefreshesForMissingResources());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
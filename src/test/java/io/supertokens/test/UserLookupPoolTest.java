@@ -0,0 +1,188 @@
+/*
+ *    Copyright (c) 2024, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.storageLayer.UserLookupPool;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+public class UserLookupPoolTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static Callable<String> returns(String result) {
+        return () -> result;
+    }
+
+    private static Callable<String> fails() {
+        return () -> {
+            throw new StorageQueryException(new Exception("storage is down"));
+        };
+    }
+
+    private static Callable<String> slow(String result) {
+        return () -> {
+            Thread.sleep(5000);
+            return result;
+        };
+    }
+
+    @Test
+    public void testFindFirst() throws Exception {
+        Utils.setValueInConfig("user_lookup_storage_timeout", "500");
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserLookupPool pool = UserLookupPool.getInstance(process.getProcess());
+        assertTrue(pool.isEnabled());
+
+        // one of the storages has the user
+        assertEquals("user", pool.findFirst(List.of(returns(null), returns("user"), returns(null))));
+
+        // none of the storages has the user
+        assertNull(pool.findFirst(List.of(returns(null), returns(null), returns(null))));
+
+        // a storage fails, so we cannot tell that the user does not exist
+        try {
+            pool.findFirst(List.of(returns(null), fails(), returns(null)));
+            fail();
+        } catch (StorageQueryException ignored) {
+        }
+
+        // a storage fails, but another one has the user
+        assertEquals("user", pool.findFirst(List.of(fails(), returns("user"), returns(null))));
+
+        // a storage does not respond in time
+        long start = System.currentTimeMillis();
+        try {
+            pool.findFirst(List.of(returns(null), slow("user"), returns(null)));
+            fail();
+        } catch (StorageQueryException ignored) {
+        }
+        assertTrue(System.currentTimeMillis() - start < 4000);
+
+        // a storage does not respond in time, but we do not wait for it since another one has the user
+        start = System.currentTimeMillis();
+        assertEquals("user", pool.findFirst(List.of(slow(null), returns("user"), returns(null))));
+        assertTrue(System.currentTimeMillis() - start < 4000);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testLookupsStillRunOnceThePoolIsShutDown() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserLookupPool pool = UserLookupPool.getInstance(process.getProcess());
+        UserLookupPool.shutdownAndAwaitTermination(process.getProcess());
+        assertFalse(pool.isEnabled());
+
+        // a request that saw the pool before it was shut down still gets its answer, from the request thread
+        assertEquals("user", pool.findFirst(List.of(returns(null), returns("user"))));
+        assertNull(pool.findFirst(List.of(returns(null), returns(null))));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testLookupsThatRunOnTheRequestThreadCountTowardsTheTimeout() throws Exception {
+        Utils.setValueInConfig("user_lookup_pool_size", "1");
+        Utils.setValueInConfig("user_lookup_storage_timeout", "500");
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserLookupPool pool = UserLookupPool.getInstance(process.getProcess());
+
+        // the first lookup takes the only thread, so the others run on this thread one after the other
+        Callable<String> takes400MS = () -> {
+            Thread.sleep(400);
+            return null;
+        };
+        long start = System.currentTimeMillis();
+        try {
+            pool.findFirst(List.of(slow("user"), takes400MS, takes400MS, takes400MS, takes400MS));
+            fail();
+        } catch (StorageQueryException ignored) {
+        }
+        // we stop once the lookups on this thread have used up the timeout, instead of running all of them and then
+        // waiting for the timeout again
+        assertTrue(System.currentTimeMillis() - start < 1500);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testLookupsThatDoNotFinishInTimeCannotTakeAllTheThreads() throws Exception {
+        Utils.setValueInConfig("user_lookup_pool_size", "2");
+        Utils.setValueInConfig("user_lookup_storage_timeout", "300");
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserLookupPool pool = UserLookupPool.getInstance(process.getProcess());
+        try {
+            pool.findFirst(List.of(slow(null), returns(null)));
+            fail();
+        } catch (StorageQueryException ignored) {
+        }
+
+        // the slow lookup holds one of the two threads, which is as many as we allow
+        assertEquals(1, pool.getNumberOfAbandonedLookups());
+        assertFalse(pool.isEnabled());
+
+        // once it finishes, the pool is used again
+        Thread.sleep(5500);
+        assertEquals(0, pool.getNumberOfAbandonedLookups());
+        assertTrue(pool.isEnabled());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
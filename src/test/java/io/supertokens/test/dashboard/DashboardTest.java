@@ -30,6 +30,7 @@ import io.supertokens.pluginInterface.dashboard.DashboardUser;
 import io.supertokens.pluginInterface.dashboard.exceptions.DuplicateEmailException;
 import io.supertokens.pluginInterface.dashboard.sqlStorage.DashboardSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -375,4 +376,36 @@ public class DashboardTest {
         assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testExpiredDashboardSessionsAreDeletedInBatchesOfTheGivenLimit() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        DashboardUser user = Dashboard.signUpDashboardUser(process.getProcess(), "test@example.com", "password123");
+        DashboardSQLStorage storage = (DashboardSQLStorage) StorageLayer.getStorage(process.getProcess());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            storage.createNewDashboardUserSession(new AppIdentifier(null, null), user.userId, "expired" + i, now,
+                    now - 1000);
+        }
+        storage.createNewDashboardUserSession(new AppIdentifier(null, null), user.userId, "active", now,
+                now + 3600 * 1000);
+
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredDashboardSessions(now, 2));
+        assertEquals(4, Dashboard.getAllDashboardSessionsForUser(process.getProcess(), user.userId).length);
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredDashboardSessions(now, 2));
+        assertEquals(1, ((ChunkedExpiryStorage) storage).deleteExpiredDashboardSessions(now, 2));
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredDashboardSessions(now, 2));
+        assertEquals(1, Dashboard.getAllDashboardSessionsForUser(process.getProcess(), user.userId).length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
 }
@@ -25,6 +25,7 @@ import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.emailpassword.PasswordResetTokenInfo;
 import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -35,6 +36,7 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertEquals;
 
 public class DeleteExpiredPasswordResetTokensCronjobTest {
     @Rule
@@ -94,4 +96,39 @@ public class DeleteExpiredPasswordResetTokensCronjobTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void expiredTokensAreDeletedInBatchesOfTheGivenLimit() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AuthRecipeUserInfo user = EmailPassword.signUp(process.getProcess(), "test1@example.com", "password");
+        for (int i = 0; i < 5; i++) {
+            EmailPassword.generatePasswordResetTokenBeforeCdi4_0(process.getProcess(), user.getSupertokensUserId());
+        }
+
+        EmailPasswordSQLStorage storage = (EmailPasswordSQLStorage) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        long now = System.currentTimeMillis();
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(now, 2));
+
+        // all the tokens have expired two days from now
+        long inTwoDays = now + 2 * 24 * 3600 * 1000L;
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(inTwoDays, 2));
+        assertEquals(3,
+                storage.getAllPasswordResetTokenInfoForUser(appIdentifier, user.getSupertokensUserId()).length);
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(inTwoDays, 2));
+        assertEquals(1, ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(inTwoDays, 2));
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredPasswordResetTokens(inTwoDays, 2));
+        assertEquals(0,
+                storage.getAllPasswordResetTokenInfoForUser(appIdentifier, user.getSupertokensUserId()).length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
 }
@@ -22,6 +22,8 @@ import io.supertokens.config.CoreConfig;
 import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.emailpassword.ParsedFirebaseSCryptResponse;
 import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.emailpassword.PasswordHashingLimiter;
+import io.supertokens.emailpassword.exceptions.PasswordHashingOverloadedException;
 import io.supertokens.emailpassword.exceptions.WrongCredentialsException;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
@@ -897,4 +899,81 @@ public class PasswordHashingTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void hashingFailsFastWhenTooManyRequestsAreWaiting() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+        Utils.setValueInConfig("argon2_hashing_pool_size", "1");
+        Utils.setValueInConfig("password_hashing_max_queue_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+        AtomicInteger numberOfHashes = new AtomicInteger(0);
+        AtomicInteger numberOfRejections = new AtomicInteger(0);
+
+        ExecutorService ex = Executors.newFixedThreadPool(20);
+        for (int i = 0; i < 20; i++) {
+            int finalI = i;
+            ex.execute(() -> {
+                try {
+                    passwordHashing.createHashWithSalt("somePassword" + finalI);
+                    numberOfHashes.incrementAndGet();
+                } catch (PasswordHashingOverloadedException e) {
+                    numberOfRejections.incrementAndGet();
+                }
+            });
+        }
+
+        ex.shutdown();
+        ex.awaitTermination(2, TimeUnit.MINUTES);
+
+        PasswordHashingLimiter limiter = passwordHashing.getArgon2Limiter();
+        assertEquals(20, numberOfHashes.get() + numberOfRejections.get());
+        assertTrue(numberOfRejections.get() > 0);
+        assertEquals(numberOfRejections.get(), limiter.getNumberOfRejections());
+        assertEquals(numberOfHashes.get(), limiter.getNumberOfHashes());
+        assertEquals(0, limiter.getQueueSize());
+        assertEquals(0, limiter.getNumberOfActiveHashes());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void hashingFailsWhenWaitingForTooLong() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("argon2_hashing_pool_size", "1");
+        Utils.setValueInConfig("password_hashing_max_wait_time", "1");
+        Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+        Utils.setValueInConfig("argon2_iterations", "10");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+        AtomicInteger numberOfRejections = new AtomicInteger(0);
+
+        ExecutorService ex = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 10; i++) {
+            ex.execute(() -> {
+                try {
+                    passwordHashing.createHashWithSalt("somePassword");
+                } catch (PasswordHashingOverloadedException e) {
+                    numberOfRejections.incrementAndGet();
+                }
+            });
+        }
+
+        ex.shutdown();
+        ex.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertTrue(numberOfRejections.get() > 0);
+        assertTrue(passwordHashing.getArgon2Limiter().getNumberOfWaits() >= numberOfRejections.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
@@ -26,6 +26,7 @@ import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.emailverification.EmailVerificationTokenInfo;
 import io.supertokens.pluginInterface.emailverification.sqlStorage.EmailVerificationSQLStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -36,6 +37,7 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertEquals;
 
 public class DeleteExpiredEmailVerificationTokensCronjobTest {
     @Rule
@@ -96,4 +98,41 @@ public class DeleteExpiredEmailVerificationTokensCronjobTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void expiredTokensAreDeletedInBatchesOfTheGivenLimit() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        AuthRecipeUserInfo user = EmailPassword.signUp(process.getProcess(), "test1@example.com", "password");
+        String email = user.loginMethods[0].email;
+        for (int i = 0; i < 5; i++) {
+            EmailVerification.generateEmailVerificationToken(process.getProcess(), user.getSupertokensUserId(), email);
+        }
+
+        EmailVerificationSQLStorage storage = (EmailVerificationSQLStorage) StorageLayer.getStorage(
+                process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        long now = System.currentTimeMillis();
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(now, 2));
+
+        // all the tokens have expired two days from now
+        long inTwoDays = now + 2 * 24 * 3600 * 1000L;
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(inTwoDays, 2));
+        assertEquals(3, storage.getAllEmailVerificationTokenInfoForUser(tenantIdentifier,
+                user.getSupertokensUserId(), email).length);
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(inTwoDays, 2));
+        assertEquals(1, ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(inTwoDays, 2));
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredEmailVerificationTokens(inTwoDays, 2));
+        assertEquals(0, storage.getAllEmailVerificationTokenInfoForUser(tenantIdentifier,
+                user.getSupertokensUserId(), email).length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
 }
@@ -245,7 +245,7 @@ public class AppTenantUserTest {
             assertFalse(AuthRecipe.deleteNonAuthRecipeUser(tenantWithStorage,
                     userId)); // Nothing deleted indicates that the non auth recipe user data was deleted already
 
-            AuthRecipe.deleteUser(appWithStorage.toAppIdentifierWithStorage(), userId);
+            AuthRecipe.deleteUser(appWithStorage.toAppIdentifierWithStorage(), process.getProcess(), userId);
         }
 
         process.kill();
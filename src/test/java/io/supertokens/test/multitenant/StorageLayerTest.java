@@ -18,14 +18,19 @@ package io.supertokens.test.multitenant;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.supertokens.AppIdentifierWithStorageAndUserIdMapping;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.inmemorydb.Start;
 import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.emailpassword.exceptions.UnknownUserIdException;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.*;
@@ -36,8 +41,10 @@ import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoun
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
+import io.supertokens.useridmapping.UserIdType;
 import org.junit.*;
 import org.junit.rules.TestRule;
+import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -2060,4 +2067,237 @@ public class StorageLayerTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatStoragesForAppAreUpdatedWhenTenantsChange() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        if (StorageLayer.isInMemDb(process.getProcess())) {
+            return;
+        }
+
+        AppIdentifier app = new AppIdentifier(null, null);
+        assertEquals(1, StorageLayer.getStoragesForApp(process.getProcess(), app).length);
+        assertEquals(0, StorageLayer.getStoragesForApp(process.getProcess(), new AppIdentifier(null, "unknown")).length);
+
+        JsonObject config = new JsonObject();
+        StorageLayer.getStorage(new TenantIdentifier(null, null, null), process.getProcess())
+                .modifyConfigToAddANewUserPoolForTesting(config, 1);
+
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                new TenantIdentifier(null, null, "t1"),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                config
+        ), false);
+
+        {
+            Storage[] storages = StorageLayer.getStoragesForApp(process.getProcess(), app);
+            assertEquals(2, storages.length);
+            Set<Storage> storageSet = Set.of(storages);
+            assertTrue(storageSet.contains(StorageLayer.getStorage(process.getProcess())));
+            assertTrue(storageSet.contains(
+                    StorageLayer.getStorage(new TenantIdentifier(null, null, "t1"), process.getProcess())));
+        }
+
+        Multitenancy.deleteTenant(new TenantIdentifier(null, null, "t1"), process.getProcess());
+        MultitenancyHelper.getInstance(process.getProcess()).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+
+        {
+            Storage[] storages = StorageLayer.getStoragesForApp(process.getProcess(), app);
+            assertEquals(1, storages.length);
+            assertSame(StorageLayer.getStorage(process.getProcess()), storages[0]);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatStoragesForAppAreTheSameAsGoingThroughAllStorages() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        // all the tenants use the same user pool here, so this also runs with the in memory db
+        AppIdentifier[] apps = {new AppIdentifier(null, null), new AppIdentifier(null, "a1"),
+                new AppIdentifier(null, "unknown")};
+        assertStoragesForAppAreTheSameAsGoingThroughAllStorages(process, apps);
+
+        for (TenantIdentifier tenantIdentifier : new TenantIdentifier[]{new TenantIdentifier(null, null, "t1"),
+                new TenantIdentifier(null, "a1", null), new TenantIdentifier(null, "a1", "t1")}) {
+            Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                    tenantIdentifier,
+                    new EmailPasswordConfig(true),
+                    new ThirdPartyConfig(true, null),
+                    new PasswordlessConfig(true),
+                    new JsonObject()
+            ), false);
+            assertStoragesForAppAreTheSameAsGoingThroughAllStorages(process, apps);
+        }
+        assertEquals(1, StorageLayer.getStoragesForApp(process.getProcess(), apps[1]).length);
+
+        Multitenancy.deleteTenant(new TenantIdentifier(null, null, "t1"), process.getProcess());
+        assertStoragesForAppAreTheSameAsGoingThroughAllStorages(process, apps);
+
+        Multitenancy.deleteTenant(new TenantIdentifier(null, "a1", "t1"), process.getProcess());
+        assertStoragesForAppAreTheSameAsGoingThroughAllStorages(process, apps);
+
+        Multitenancy.deleteApp(apps[1], process.getProcess());
+        assertStoragesForAppAreTheSameAsGoingThroughAllStorages(process, apps);
+        assertEquals(0, StorageLayer.getStoragesForApp(process.getProcess(), apps[1]).length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void assertStoragesForAppAreTheSameAsGoingThroughAllStorages(
+            TestingProcessManager.TestingProcess process, AppIdentifier[] apps) {
+        for (AppIdentifier app : apps) {
+            Storage[] storages = StorageLayer.getStoragesForApp(process.getProcess(), app);
+            Storage[] allStorages = StorageLayer.getStoragesForAppFromAllStorages(process.getProcess(), app);
+            assertEquals(allStorages.length, storages.length);
+            assertEquals(Set.of(allStorages), Set.of(storages));
+        }
+    }
+
+    @Test
+    public void testThatUsersAreFoundInAllTheGivenStoragesOfAnApp() throws Exception {
+        // this uses storages that never have any user along with the real one, so it also runs with the in memory db
+        for (String poolSize : new String[]{"10", "0"}) {
+            Utils.reset();
+            Utils.setValueInConfig("user_lookup_pool_size", poolSize);
+            String[] args = {"../"};
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+                return;
+            }
+
+            Storage storage = StorageLayer.getStorage(process.getProcess());
+            Storage emptyStorage1 = Mockito.mock(Start.class);
+            Storage emptyStorage2 = Mockito.mock(Start.class);
+            Mockito.when(emptyStorage1.getType()).thenReturn(STORAGE_TYPE.SQL);
+            Mockito.when(emptyStorage2.getType()).thenReturn(STORAGE_TYPE.SQL);
+            Storage[] storages = {emptyStorage1, storage, emptyStorage2};
+            AppIdentifier app = new AppIdentifier(null, null);
+
+            AuthRecipeUserInfo user = EmailPassword.signUp(process.getProcess(), "user@example.com", "password");
+
+            // the storage of the tenant is checked first, and then the other two
+            for (UserIdType userIdType : new UserIdType[]{UserIdType.SUPERTOKENS, UserIdType.ANY}) {
+                AppIdentifierWithStorageAndUserIdMapping result = StorageLayer
+                        .getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+                                process.getProcess(), app, emptyStorage1, storages, user.getSupertokensUserId(),
+                                userIdType);
+                assertSame(storage, result.appIdentifierWithStorage.getStorage());
+            }
+
+            // the storage of the tenant has the user
+            assertSame(storage, StorageLayer
+                    .getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+                            process.getProcess(), app, storage, storages, user.getSupertokensUserId(),
+                            UserIdType.SUPERTOKENS).appIdentifierWithStorage.getStorage());
+
+            try {
+                StorageLayer.getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+                        process.getProcess(), app, emptyStorage1, storages, "unknown", UserIdType.SUPERTOKENS);
+                fail();
+            } catch (UnknownUserIdException ignored) {
+            }
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+    }
+
+    @Test
+    public void testThatUsersAreFoundInAllStoragesOfAnApp() throws Exception {
+        // the storages are checked at the same time by default, and one after the other if the pool size is 0
+        for (String poolSize : new String[]{"10", "0"}) {
+            Utils.reset();
+            Utils.setValueInConfig("user_lookup_pool_size", poolSize);
+            String[] args = {"../"};
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+            FeatureFlagTestContent.getInstance(process.getProcess())
+                    .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+            process.startProcess();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+                return;
+            }
+
+            if (StorageLayer.isInMemDb(process.getProcess())) {
+                return;
+            }
+
+            AppIdentifier app = new AppIdentifier(null, "a1");
+            String[] tenantIds = {null, "t1", "t2"};
+            AuthRecipeUserInfo[] users = new AuthRecipeUserInfo[tenantIds.length];
+            for (int i = 0; i < tenantIds.length; i++) {
+                TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", tenantIds[i]);
+                JsonObject config = new JsonObject();
+                StorageLayer.getStorage(new TenantIdentifier(null, null, null), process.getProcess())
+                        .modifyConfigToAddANewUserPoolForTesting(config, i + 1);
+                Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                        tenantIdentifier,
+                        new EmailPasswordConfig(true),
+                        new ThirdPartyConfig(true, null),
+                        new PasswordlessConfig(true),
+                        config
+                ), false);
+
+                users[i] = EmailPassword.signUp(
+                        tenantIdentifier.withStorage(StorageLayer.getStorage(tenantIdentifier, process.getProcess())),
+                        process.getProcess(), "user" + i + "@example.com", "password");
+            }
+            assertEquals(3, StorageLayer.getStoragesForApp(process.getProcess(), app).length);
+
+            // the base storage is not one of the storages of the app, so all of them are checked after it
+            Storage priorityStorage = StorageLayer.getStorage(process.getProcess());
+            for (int i = 0; i < tenantIds.length; i++) {
+                TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", tenantIds[i]);
+                AppIdentifierWithStorageAndUserIdMapping result =
+                        StorageLayer.getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+                                process.getProcess(), app, priorityStorage, users[i].getSupertokensUserId(),
+                                UserIdType.SUPERTOKENS);
+                assertSame(StorageLayer.getStorage(tenantIdentifier, process.getProcess()),
+                        result.appIdentifierWithStorage.getStorage());
+                assertNull(result.userIdMapping);
+            }
+
+            try {
+                StorageLayer.getAppIdentifierWithStorageAndUserIdMappingForUserWithPriorityForTenantStorage(
+                        process.getProcess(), app, priorityStorage, "unknown", UserIdType.ANY);
+                fail();
+            } catch (UnknownUserIdException ignored) {
+            }
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+    }
 }
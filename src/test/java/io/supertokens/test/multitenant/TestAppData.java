@@ -19,6 +19,7 @@ package io.supertokens.test.multitenant;
 import com.eatthepath.otp.TimeBasedOneTimePasswordGenerator;
 import com.google.gson.JsonObject;
 import io.supertokens.ActiveUsers;
+import io.supertokens.ActiveUsersBuffer;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.dashboard.Dashboard;
@@ -158,6 +159,7 @@ public class TestAppData {
                 generateTotpCode(process.getProcess(), totpDevice, 0), true);
 
         ActiveUsers.updateLastActive(appWithStorage.toAppIdentifierWithStorage(), process.getProcess(), epUser.getSupertokensUserId());
+        ActiveUsersBuffer.getInstance(process.getProcess()).flush(app.toAppIdentifier());
 
         UserMetadata.updateUserMetadata(appWithStorage.toAppIdentifierWithStorage(), epUser.getSupertokensUserId(), new JsonObject());
 
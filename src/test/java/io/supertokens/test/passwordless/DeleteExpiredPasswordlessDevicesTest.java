@@ -20,10 +20,12 @@ import io.supertokens.ProcessState;
 import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.cronjobs.deleteExpiredPasswordlessDevices.DeleteExpiredPasswordlessDevices;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.passwordless.PasswordlessCode;
 import io.supertokens.pluginInterface.passwordless.PasswordlessStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -35,6 +37,7 @@ import org.junit.rules.TestRule;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertEquals;
 
 public class DeleteExpiredPasswordlessDevicesTest {
     @Rule
@@ -118,4 +121,90 @@ public class DeleteExpiredPasswordlessDevicesTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void expiredDevicesAreDeletedInBatchesOfTheGivenLimitTest() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        PasswordlessStorage passwordlessStorage = (PasswordlessStorage) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        long codeLifetime = Config.getConfig(process.getProcess()).getPasswordlessCodeLifetime();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 5; i++) {
+            passwordlessStorage.createDeviceWithCode(tenantIdentifier, "test" + i + "@example.com", null,
+                    "linkCodeSalt", new PasswordlessCode("expiredCode" + i, "expiredDevice" + i, "linkCodeHash" + i,
+                            now - codeLifetime - 1000));
+        }
+        // a device with an expired code and an active one is kept
+        passwordlessStorage.createDeviceWithCode(tenantIdentifier, "active@example.com", null, "linkCodeSalt",
+                new PasswordlessCode("expiredCode", "activeDevice", "linkCodeHash", now - codeLifetime - 1000));
+        passwordlessStorage.createCode(tenantIdentifier,
+                new PasswordlessCode("activeCode", "activeDevice", "linkCodeHash2", now));
+
+        ChunkedExpiryStorage storage = (ChunkedExpiryStorage) passwordlessStorage;
+        long cutoff = now - codeLifetime;
+        assertEquals(2, storage.deleteExpiredPasswordlessDevices(tenantIdentifier, cutoff, 2));
+        assertEquals(2, storage.deleteExpiredPasswordlessDevices(tenantIdentifier, cutoff, 2));
+        assertEquals(1, storage.deleteExpiredPasswordlessDevices(tenantIdentifier, cutoff, 2));
+        assertEquals(0, storage.deleteExpiredPasswordlessDevices(tenantIdentifier, cutoff, 2));
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(passwordlessStorage.getDevice(tenantIdentifier, "expiredDevice" + i));
+            assertNull(passwordlessStorage.getCode(tenantIdentifier, "expiredCode" + i));
+        }
+        assertNotNull(passwordlessStorage.getDevice(tenantIdentifier, "activeDevice"));
+        assertEquals(2, passwordlessStorage.getCodesOfDevice(tenantIdentifier, "activeDevice").length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void jobCountsOnlyDeletedDevicesTest() throws Exception {
+        Utils.setValueInConfig("expiry_cleanup_batch_size", "2");
+        Utils.setValueInConfig("expiry_cleanup_batch_pause", "10");
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess())
+                .setIntervalInSeconds(DeleteExpiredPasswordlessDevices.RESOURCE_KEY, 1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        PasswordlessStorage passwordlessStorage = (PasswordlessStorage) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        long codeLifetime = Config.getConfig(process.getProcess()).getPasswordlessCodeLifetime();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 5; i++) {
+            passwordlessStorage.createDeviceWithCode(tenantIdentifier, "test" + i + "@example.com", null,
+                    "linkCodeSalt", new PasswordlessCode("expiredCode" + i, "expiredDevice" + i, "linkCodeHash" + i,
+                            now - codeLifetime - 1000));
+        }
+        passwordlessStorage.createDeviceWithCode(tenantIdentifier, "active@example.com", null, "linkCodeSalt",
+                new PasswordlessCode("expiredCode", "activeDevice", "linkCodeHash", now - codeLifetime - 1000));
+        passwordlessStorage.createCode(tenantIdentifier,
+                new PasswordlessCode("activeCode", "activeDevice", "linkCodeHash2", now));
+
+        Thread.sleep(2500);
+
+        assertNotNull(passwordlessStorage.getDevice(tenantIdentifier, "activeDevice"));
+        assertEquals(5, Metrics.getInstance(process.getProcess())
+                .counter("supertokens_expiry_cleanup_rows_total", "", "table", "passwordless_devices").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
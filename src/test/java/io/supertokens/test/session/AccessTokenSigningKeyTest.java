@@ -207,4 +207,34 @@ public class AccessTokenSigningKeyTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void signingKeysCanBeLookedUpById()
+            throws InterruptedException, StorageQueryException, StorageTransactionLogicException,
+            TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
+        Utils.setValueInConfig("access_token_dynamic_signing_key_update_interval", "0.00027"); // 1 seconds
+
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.start(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        SigningKeys signingKeys = SigningKeys.getInstance(process.getProcess());
+        List<JWTSigningKeyInfo> keys = signingKeys.getAllKeys();
+        for (JWTSigningKeyInfo key : keys) {
+            assertEquals(key.keyString, signingKeys.getSigningKeyById(key.keyId).keyString);
+        }
+        assertNull(signingKeys.getSigningKeyById("d-0"));
+
+        // the lookup should also pick up a dynamic key that was created after the previous one was rotated out
+        Thread.sleep(1500);
+        JWTSigningKeyInfo latestKey = io.supertokens.utils.Utils.getJWTSigningKeyInfoFromKeyInfo(
+                signingKeys.getLatestIssuedDynamicKey());
+        assertFalse(keys.stream().anyMatch(k -> k.keyId.equals(latestKey.keyId)));
+        assertEquals(latestKey.keyString, signingKeys.getSigningKeyById(latestKey.keyId).keyString);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
 }
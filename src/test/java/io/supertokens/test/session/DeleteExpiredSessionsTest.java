@@ -16,8 +16,16 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
+import io.supertokens.cronjobs.CronTaskTest;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
+import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
@@ -55,4 +63,56 @@ public class DeleteExpiredSessionsTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void expiredSessionsAreDeletedInBatchesOfTheGivenLimit() throws Exception {
+        Utils.setValueInConfig("refresh_token_validity", "" + 1.0 / 60.0);
+
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 5; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+        }
+        Thread.sleep(1500);
+
+        SessionStorage storage = (SessionStorage) StorageLayer.getStorage(process.getProcess());
+        long now = System.currentTimeMillis();
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredSessions(now, 2));
+        assertEquals(3, storage.getNumberOfSessions(new TenantIdentifier(null, null, null)));
+        assertEquals(2, ((ChunkedExpiryStorage) storage).deleteExpiredSessions(now, 2));
+        assertEquals(1, ((ChunkedExpiryStorage) storage).deleteExpiredSessions(now, 2));
+        assertEquals(0, ((ChunkedExpiryStorage) storage).deleteExpiredSessions(now, 2));
+        assertEquals(0, storage.getNumberOfSessions(new TenantIdentifier(null, null, null)));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void cronjobDeletesAllExpiredSessionsInBatches() throws Exception {
+        Utils.setValueInConfig("refresh_token_validity", "" + 1.0 / 60.0);
+        Utils.setValueInConfig("expiry_cleanup_batch_size", "2");
+        Utils.setValueInConfig("expiry_cleanup_batch_pause", "10");
+
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(DeleteExpiredSessions.RESOURCE_KEY, 1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 5; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+        }
+
+        Thread.sleep(2500);
+        SessionStorage storage = (SessionStorage) StorageLayer.getStorage(process.getProcess());
+        assertEquals(0, storage.getNumberOfSessions(new TenantIdentifier(null, null, null)));
+        assertEquals(5, Metrics.getInstance(process.getProcess())
+                .counter("supertokens_expiry_cleanup_rows_total", "", "table", "session_info").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
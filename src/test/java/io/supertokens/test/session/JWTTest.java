@@ -20,6 +20,7 @@ import com.google.gson.Gson;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.jwt.JWT;
 import io.supertokens.session.jwt.JWT.JWTException;
+import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -29,6 +30,8 @@ import org.junit.rules.TestRule;
 
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 
@@ -125,6 +128,34 @@ public class JWTTest {
         }
     }
 
+    @Test
+    public void signingWithParsedKeysAfterFailedVerification()
+            throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException,
+            JWTException {
+        io.supertokens.utils.Utils.PubPriKey key = io.supertokens.utils.Utils.generateNewPubPriKey();
+        PublicKey publicKey = io.supertokens.utils.Utils.getPublicKeyFromString(key.publicKey,
+                JWTSigningKey.SupportedAlgorithms.RS256);
+        PrivateKey privateKey = io.supertokens.utils.Utils.getPrivateKeyFromString(key.privateKey,
+                JWTSigningKey.SupportedAlgorithms.RS256);
+
+        String signature = io.supertokens.utils.Utils.signWithPrivateKey("hello", privateKey, false);
+        try {
+            io.supertokens.utils.Utils.verifyWithPublicKey("hello", signature + "random", publicKey, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        // the same thread reuses its Signature instance, so this checks that the failure above left no state behind
+        assertTrue(io.supertokens.utils.Utils.verifyWithPublicKey("hello", signature, publicKey, false));
+        assertEquals(signature, io.supertokens.utils.Utils.signWithPrivateKey("hello", key.privateKey, false));
+
+        TestInput input = new TestInput("value");
+        String token = JWT.createAndSignLegacyAccessToken(new Gson().toJsonTree(input), privateKey,
+                AccessToken.VERSION.V2);
+        TestInput output = new Gson().fromJson(JWT.verifyJWTAndGetPayload(JWT.preParseJWTInfo(token), publicKey)
+                .payload, TestInput.class);
+        assertEquals(input, output);
+    }
+
     private static class TestInput {
         final String key;
 
@@ -28,6 +28,7 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.session.Session;
+import io.supertokens.session.SessionBlacklistingCache;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.storageLayer.StorageLayer;
@@ -48,9 +49,13 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class SessionTest3 {
@@ -114,6 +119,133 @@ public class SessionTest3 {
 
     }
 
+    @Test
+    public void revokeSessionWithBlacklistingCacheAndGetSessionThrows() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting_cache_staleness", "60000");
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String userId = "userId";
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        JsonObject userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), userId, userDataInJWT,
+                userDataInDatabase);
+        assert sessionInfo.accessToken != null;
+
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false,
+                true, true);
+        assertEquals(1, SessionBlacklistingCache.getInstance(process.getProcess()).getNumberOfAliveSessions());
+
+        // changing the JWT payload should be noticed even though the session is cached
+        JsonObject newUserDataInJWT = new JsonObject();
+        newUserDataInJWT.addProperty("key", "value2");
+        Session.updateSession(process.getProcess(), sessionInfo.session.handle, null, newUserDataInJWT,
+                AccessToken.getLatestVersion());
+        SessionInformationHolder verifyInfo = Session.getSession(process.getProcess(),
+                sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false, true, true);
+        assertNotNull(verifyInfo.accessToken);
+        assertEquals(newUserDataInJWT, verifyInfo.session.userDataInJWT);
+
+        Session.revokeSessionUsingSessionHandles(process.getProcess(), new String[]{sessionInfo.session.handle});
+        assertEquals(0, SessionBlacklistingCache.getInstance(process.getProcess()).getNumberOfAliveSessions());
+
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false,
+                    true, true);
+            fail();
+        } catch (UnauthorisedException e) {
+
+        }
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void revokedSessionsInBlacklistingCacheStayBounded() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting_cache_staleness", "60000");
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionBlacklistingCache cache = SessionBlacklistingCache.getInstance(process.getProcess());
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        // the cache keeps at most 10000 revoked sessions
+        int maxRevokedSessions = 10000;
+
+        // more handles in one call than the cache can keep
+        String[] sessionHandles = new String[maxRevokedSessions + 5000];
+        for (int i = 0; i < sessionHandles.length; i++) {
+            sessionHandles[i] = "handle" + i;
+        }
+        cache.revoke(tenantIdentifier, sessionHandles);
+        assertTrue(cache.getNumberOfRevokedSessions() <= maxRevokedSessions);
+        assertTrue(cache.isRevoked(tenantIdentifier, sessionHandles[sessionHandles.length - 1]));
+
+        // many calls at the same time
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            int thread = i;
+            es.execute(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    cache.revoke(tenantIdentifier, new String[]{"thread" + thread + "handle" + j});
+                }
+            });
+        }
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+        assertTrue(cache.getNumberOfRevokedSessions() <= maxRevokedSessions);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void sessionRemovedFromDbIsNoticedAfterBlacklistingCacheStaleness() throws Exception {
+        Utils.setValueInConfig("access_token_blacklisting_cache_staleness", "1000");
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        JsonObject userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                userDataInJWT, userDataInDatabase);
+        assert sessionInfo.accessToken != null;
+
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false,
+                true, true);
+
+        // this is like the session being revoked by another core
+        ((SessionStorage) StorageLayer.getStorage(process.getProcess()))
+                .deleteSession(new TenantIdentifier(null, null, null), new String[]{sessionInfo.session.handle});
+
+        // within the staleness window, the cached result is used
+        Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false,
+                true, true);
+
+        Thread.sleep(1500);
+
+        try {
+            Session.getSession(process.getProcess(), sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false,
+                    true, true);
+            fail();
+        } catch (UnauthorisedException e) {
+
+        }
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void removeSessionFromDbButAccessTokenStillValidUntilExpiry() throws Exception {
 
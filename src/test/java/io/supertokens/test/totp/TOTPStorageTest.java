@@ -18,6 +18,7 @@ import io.supertokens.pluginInterface.totp.exception.TotpNotEnabledException;
 import io.supertokens.pluginInterface.totp.exception.UnknownDeviceException;
 import io.supertokens.pluginInterface.totp.exception.UsedCodeAlreadyExistsException;
 import io.supertokens.pluginInterface.totp.sqlStorage.TOTPSQLStorage;
+import io.supertokens.storageLayer.ChunkedExpiryStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -31,6 +32,7 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertEquals;
 
 public class TOTPStorageTest {
 
@@ -517,4 +519,37 @@ public class TOTPStorageTest {
         assert (usedCodes[0].equals(invalidCodeToLive));
         assert (usedCodes[1].equals(validCodeToLive));
     }
+
+    @Test
+    public void removeExpiredCodesInBatchesOfTheGivenLimitTest() throws Exception {
+        TestSetupResult result = initSteps();
+        if (result == null) {
+            return;
+        }
+        TOTPSQLStorage storage = result.storage;
+
+        long now = System.currentTimeMillis();
+        long nextDay = now + 1000 * 60 * 60 * 24;
+        long prevDay = now - 1000 * 60 * 60 * 24;
+
+        storage.createDevice(new AppIdentifier(null, null), new TOTPDevice("user", "device", "secretKey", 30, 1,
+                false));
+        TOTPUsedCode[] codes = new TOTPUsedCode[6];
+        for (int i = 0; i < 5; i++) {
+            codes[i] = new TOTPUsedCode("user", "expired" + i, true, prevDay, now + i);
+        }
+        codes[5] = new TOTPUsedCode("user", "valid", true, nextDay, now + 5);
+        insertUsedCodesUtil(storage, codes);
+
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, null, null);
+        assertEquals(2, ((ChunkedExpiryStorage) storage).removeExpiredTotpCodes(tenantIdentifier, now, 2));
+        assertEquals(4, getAllUsedCodesUtil(storage, "user").length);
+        assertEquals(2, ((ChunkedExpiryStorage) storage).removeExpiredTotpCodes(tenantIdentifier, now, 2));
+        assertEquals(1, ((ChunkedExpiryStorage) storage).removeExpiredTotpCodes(tenantIdentifier, now, 2));
+        assertEquals(0, ((ChunkedExpiryStorage) storage).removeExpiredTotpCodes(tenantIdentifier, now, 2));
+
+        TOTPUsedCode[] usedCodes = getAllUsedCodesUtil(storage, "user");
+        assertEquals(1, usedCodes.length);
+        assertEquals(codes[5], usedCodes[0]);
+    }
 }
@@ -24,13 +24,21 @@ import io.supertokens.featureflag.EE_FEATURES;
 import io.supertokens.featureflag.FeatureFlagTestContent;
 import io.supertokens.pluginInterface.ActiveUsersStorage;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.emailverification.EmailVerificationStorage;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifierWithStorage;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.nonAuthRecipe.NonAuthRecipeStorage;
+import io.supertokens.pluginInterface.session.SessionStorage;
+import io.supertokens.pluginInterface.totp.TOTPStorage;
 import io.supertokens.pluginInterface.useridmapping.UserIdMappingStorage;
 import io.supertokens.pluginInterface.useridmapping.exception.UnknownSuperTokensUserIdException;
 import io.supertokens.pluginInterface.useridmapping.exception.UserIdMappingAlreadyExistsException;
+import io.supertokens.pluginInterface.usermetadata.UserMetadataStorage;
+import io.supertokens.pluginInterface.userroles.UserRolesStorage;
+import io.supertokens.storageLayer.NonAuthRecipeUsageStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -839,6 +847,59 @@ public class UserIdMappingTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void checkThatTheSingleQueryFindsTheSameNonAuthRecipesAsCheckingEachRecipe() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Storage storage = StorageLayer.getStorage(process.main);
+        if (!(storage instanceof NonAuthRecipeUsageStorage)) {
+            return;
+        }
+
+        FeatureFlagTestContent.getInstance(process.main).setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[] { EE_FEATURES.TOTP });
+
+        List<String> classNames = List.of(SessionStorage.class.getName(), UserMetadataStorage.class.getName(),
+                UserRolesStorage.class.getName(), EmailVerificationStorage.class.getName(),
+                TOTPStorage.class.getName());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        assertEquals(0, ((NonAuthRecipeUsageStorage) storage).findNonAuthRecipesWhereForUserIdIsUsed(appIdentifier,
+                "unknownUserId").size());
+
+        for (String className : classNames) {
+            AuthRecipeUserInfo user = EmailPassword.signUp(process.main, "test@example.com", "password");
+            String userId = user.getSupertokensUserId();
+
+            storage.addInfoToNonAuthRecipesBasedOnUserId(TenantIdentifier.BASE_TENANT, className, userId);
+            assertTrue(storage.isUserIdBeingUsedInNonAuthRecipe(appIdentifier, className, userId));
+            assertEquals(List.of(className),
+                    ((NonAuthRecipeUsageStorage) storage).findNonAuthRecipesWhereForUserIdIsUsed(appIdentifier,
+                            userId));
+
+            AuthRecipe.deleteUser(process.main, userId);
+        }
+
+        // the ones that are used by the same user come in the same order as the checks of each recipe
+        AuthRecipeUserInfo user = EmailPassword.signUp(process.main, "test@example.com", "password");
+        String userId = user.getSupertokensUserId();
+        for (String className : classNames) {
+            storage.addInfoToNonAuthRecipesBasedOnUserId(TenantIdentifier.BASE_TENANT, className, userId);
+        }
+        assertEquals(classNames,
+                ((NonAuthRecipeUsageStorage) storage).findNonAuthRecipesWhereForUserIdIsUsed(appIdentifier, userId));
+        assertEquals(classNames, UserIdMapping.findNonAuthStoragesWhereUserIdIsUsedOrAssertIfUsed(
+                new AppIdentifierWithStorage(null, null, storage), userId, false));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void checkThatAddInfoToNonAuthRecipesBasedOnUserIdThrowsAnErrorWithUnknownRecipe() throws Exception {
         String[] args = {"../"};